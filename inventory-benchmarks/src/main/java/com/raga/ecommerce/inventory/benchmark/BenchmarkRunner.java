@@ -0,0 +1,47 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks once per thread count, given as a comma separated list
+ * by the benchmark.threads system property, with the allocation rate profiled.
+ * Arguments are passed on to JMH, so that e.g. a benchmark name pattern runs
+ * only the matching ones. Results of each thread count are written to
+ * jmh-result-{threads}t.json.
+ **/
+public final class BenchmarkRunner {
+
+  private static final String DEFAULT_THREADS = "1,4,16,64";
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    int[] threadCounts = Arrays.stream(System.getProperty("benchmark.threads", DEFAULT_THREADS).split(","))
+      .map(String::trim)
+      .mapToInt(Integer::parseInt)
+      .toArray();
+
+    for (int threads : threadCounts) {
+      Options options = new OptionsBuilder()
+        .parent(commandLineOptions)
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result("jmh-result-" + threads + "t.json")
+        .build();
+
+      new Runner(options).run();
+    }
+  }
+}
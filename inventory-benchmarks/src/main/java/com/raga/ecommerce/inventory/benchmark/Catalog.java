@@ -0,0 +1,51 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.vo.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Products of a benchmark, described as "products x items per product", such
+ * as "1x100000" for a single hot product or "10000x10" for many products
+ * reserved uniformly.
+ **/
+final class Catalog {
+
+  static final BigDecimal PRICE = BigDecimal.valueOf(100);
+
+  private Catalog() {
+  }
+
+  static List<Product> of(String description) {
+    String[] counts = description.split("x");
+    return of(Integer.parseInt(counts[0]), Integer.parseInt(counts[1]));
+  }
+
+  static List<Product> of(int productCount, int itemCount) {
+    List<Product> products = new ArrayList<>(productCount);
+
+    for (int product = 0; product < productCount; product++) {
+      products.add(product(productIdOf(product), itemCount));
+    }
+
+    return products;
+  }
+
+  static Product product(String productId, int itemCount) {
+    Product product = new Product(productId, "Product " + productId, PRICE);
+    List<String> itemIds = new ArrayList<>(itemCount);
+
+    for (int item = 0; item < itemCount; item++) {
+      itemIds.add(productId + "-I-" + item);
+    }
+
+    product.addItems(itemIds);
+    return product;
+  }
+
+  static String productIdOf(int product) {
+    return String.format("P-%05d", product);
+  }
+}
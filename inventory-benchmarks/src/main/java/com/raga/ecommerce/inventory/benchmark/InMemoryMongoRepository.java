@@ -0,0 +1,155 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Repository keeping its documents in a map, so that benchmarks measure the
+ * service and its locking and not the database. Documents are handed out as
+ * stored, without the copy a database read makes, hence they must only be
+ * changed while the caller keeps others from reading them. Queries by
+ * example, sort or page are not supported.
+ **/
+abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+  protected final ConcurrentMap<String, T> documents;
+  private final Function<T, String> idOf;
+
+  InMemoryMongoRepository(Function<T, String> idOf) {
+    this.documents = new ConcurrentHashMap<>();
+    this.idOf = idOf;
+  }
+
+  @Override
+  public <S extends T> S save(S document) {
+    documents.put(idOf.apply(document), document);
+    return document;
+  }
+
+  @Override
+  public <S extends T> List<S> saveAll(Iterable<S> documents) {
+    List<S> saved = new ArrayList<>();
+    documents.forEach(document -> saved.add(save(document)));
+    return saved;
+  }
+
+  @Override
+  public <S extends T> S insert(S document) {
+    return save(document);
+  }
+
+  @Override
+  public <S extends T> List<S> insert(Iterable<S> documents) {
+    return saveAll(documents);
+  }
+
+  @Override
+  public Optional<T> findById(String id) {
+    return Optional.ofNullable(documents.get(id));
+  }
+
+  @Override
+  public boolean existsById(String id) {
+    return documents.containsKey(id);
+  }
+
+  @Override
+  public List<T> findAll() {
+    return new ArrayList<>(documents.values());
+  }
+
+  @Override
+  public Iterable<T> findAllById(Iterable<String> ids) {
+    List<T> found = new ArrayList<>();
+
+    for (String id : ids) {
+      T document = documents.get(id);
+
+      if (Objects.nonNull(document)) {
+        found.add(document);
+      }
+    }
+
+    return found;
+  }
+
+  @Override
+  public long count() {
+    return documents.size();
+  }
+
+  @Override
+  public void deleteById(String id) {
+    documents.remove(id);
+  }
+
+  @Override
+  public void delete(T document) {
+    documents.remove(idOf.apply(document));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> documents) {
+    documents.forEach(this::delete);
+  }
+
+  @Override
+  public void deleteAll() {
+    documents.clear();
+  }
+
+  @Override
+  public List<T> findAll(Sort sort) {
+    throw unsupported();
+  }
+
+  @Override
+  public Page<T> findAll(Pageable pageable) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> Optional<S> findOne(Example<S> example) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> List<S> findAll(Example<S> example) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> long count(Example<S> example) {
+    throw unsupported();
+  }
+
+  @Override
+  public <S extends T> boolean exists(Example<S> example) {
+    throw unsupported();
+  }
+
+  protected static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException("Not used by the benchmarks");
+  }
+}
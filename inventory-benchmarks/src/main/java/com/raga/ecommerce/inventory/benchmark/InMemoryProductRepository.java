@@ -0,0 +1,135 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Products kept in memory, implementing what the locking strategy uses. The
+ * whole document writes only replace the stored instance, which the strategy
+ * changed in place already.
+ **/
+class InMemoryProductRepository extends InMemoryMongoRepository<Product> implements ProductRepository {
+
+  InMemoryProductRepository() {
+    super(Product::getProductId);
+  }
+
+  @Override
+  public Optional<Product> findByProductId(String productId) {
+    return findById(productId);
+  }
+
+  @Override
+  public void saveInBulk(Collection<Product> products) {
+    products.forEach(this::save);
+  }
+
+  @Override
+  public boolean pushItems(String productId, List<String> itemIds) {
+    Product product = documents.get(productId);
+
+    if (Objects.isNull(product) || product.hasItemRanges()) {
+      return false;
+    }
+
+    product.addItems(itemIds);
+    return true;
+  }
+
+  @Override
+  public List<Product> findAvailableProducts() {
+    throw unsupported();
+  }
+
+  @Override
+  public List<Product> findAvailableProductsAfter(String productId, Pageable pageable) {
+    throw unsupported();
+  }
+
+  @Override
+  public Stream<Product> streamAvailableProducts() {
+    throw unsupported();
+  }
+
+  @Override
+  public Stream<Product> streamProductAvailability() {
+    throw unsupported();
+  }
+
+  @Override
+  public Optional<Product> findAvailabilityByProductId(String productId) {
+    throw unsupported();
+  }
+
+  @Override
+  public Stream<Product> findAllWithoutItemIndex() {
+    throw unsupported();
+  }
+
+  @Override
+  public Stream<Product> findAllWithEmbeddedItems() {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean reserveItems(Product product, List<Integer> positions, String orderId) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean reserveItemsOutOfOrder(Product product, List<Integer> positions, String orderId) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean releaseItems(String productId, List<Integer> positions, String orderId) {
+    throw unsupported();
+  }
+
+  @Override
+  public void initializeItemIndex(Product product) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean fence(String productId, long fencingToken) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean saveFenced(Product product, long fencingToken) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean takeAvailableQuantity(Product product, int quantity) {
+    throw unsupported();
+  }
+
+  @Override
+  public void addAvailableQuantity(String productId, int quantity) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean pushItemsFenced(String productId, List<String> itemIds, long fencingToken) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean clearEmbeddedItems(Product product) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean saveItemRanges(Product product) {
+    throw unsupported();
+  }
+}
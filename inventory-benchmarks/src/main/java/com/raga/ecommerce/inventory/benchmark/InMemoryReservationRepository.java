@@ -0,0 +1,62 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.repository.ReservationRepository;
+import com.raga.ecommerce.inventory.vo.Reservation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reservations kept in memory. Finding the reservations of an order goes
+ * through all of them, which stay few as the benchmarks release every order
+ * they reserve.
+ **/
+class InMemoryReservationRepository extends InMemoryMongoRepository<Reservation> implements ReservationRepository {
+
+  InMemoryReservationRepository() {
+    super(Reservation::getId);
+  }
+
+  @Override
+  public List<Reservation> findByOrderId(String orderId) {
+    return documents.values()
+      .stream()
+      .filter(reservation -> reservation.getOrderId().equals(orderId))
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  public Stream<Reservation> streamHolds() {
+    return documents.values()
+      .stream()
+      .filter(Reservation::isHold);
+  }
+
+  @Override
+  public void addItems(String orderId, String productId, List<String> items, BigDecimal price, Instant expiresAt) {
+    documents.merge(Reservation.idOf(orderId, productId),
+      new Reservation(Reservation.idOf(orderId, productId), orderId, productId, new ArrayList<>(items), price, expiresAt),
+      (existing, added) -> {
+        List<String> merged = new ArrayList<>(existing.getItems());
+        merged.addAll(items);
+        return new Reservation(existing.getId(), orderId, productId, merged, price, expiresAt);
+      });
+  }
+
+  @Override
+  public int confirmHolds(String orderId, Instant now) {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean deleteExpired(String reservationId, Instant now) {
+    Reservation reservation = documents.get(reservationId);
+
+    return Objects.nonNull(reservation) && reservation.isExpiredAt(now) && documents.remove(reservationId, reservation);
+  }
+}
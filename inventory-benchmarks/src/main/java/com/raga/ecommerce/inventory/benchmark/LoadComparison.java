@@ -0,0 +1,140 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reserves products through the HTTP API of each target, the servlet service
+ * and the reactive one by default, with as many requests in flight as there
+ * are connections, and prints the throughput and latencies of each side by
+ * side. The database is seeded with the same catalog before each target, so
+ * every target starts from the same stock. Settings are system properties:
+ * load.targets, load.mongo-uri, load.catalog ("products x items"),
+ * load.connections, load.requests and load.quantity.
+ **/
+public final class LoadComparison {
+
+  private static final String DEFAULT_TARGETS = "servlet=http://localhost:8082,reactive=http://localhost:8083";
+  private static final String RESERVE_BODY = "{\"orderId\":\"%s\",\"quantity\":%d,\"expectedPrice\":%s}";
+  private static final int INSERT_BATCH_SIZE = 100;
+  private static final int OK = 200;
+
+  private LoadComparison() {
+  }
+
+  public static void main(String[] args) {
+    String mongoUri = System.getProperty("load.mongo-uri", "mongodb://localhost:27017/test");
+    String catalog = System.getProperty("load.catalog", "1000x100");
+    int connections = Integer.getInteger("load.connections", 10000);
+    int requests = Integer.getInteger("load.requests", 50000);
+    int quantity = Integer.getInteger("load.quantity", 1);
+
+    System.out.printf("%d reservations of %d items over %d connections, catalog %s%n%n",
+      requests, quantity, connections, catalog);
+    System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+      "target", "ok", "rejected", "failed", "req/s", "p50 ms", "p99 ms", "max ms");
+
+    for (String target : System.getProperty("load.targets", DEFAULT_TARGETS).split(",")) {
+      String[] nameAndUrl = target.split("=", 2);
+      String[] productIds = seed(mongoUri, catalog);
+
+      run(nameAndUrl[0], nameAndUrl[1], productIds, connections, requests, quantity);
+    }
+  }
+
+  private static String[] seed(String mongoUri, String catalog) {
+    MongoClientURI uri = new MongoClientURI(mongoUri);
+    MongoClient client = new MongoClient(uri);
+
+    try {
+      MongoTemplate mongoTemplate = new MongoTemplate(client, uri.getDatabase());
+      mongoTemplate.dropCollection(Product.class);
+      mongoTemplate.dropCollection(Reservation.class);
+
+      List<Product> products = Catalog.of(catalog);
+      for (int from = 0; from < products.size(); from += INSERT_BATCH_SIZE) {
+        mongoTemplate.insertAll(products.subList(from, Math.min(from + INSERT_BATCH_SIZE, products.size())));
+      }
+
+      return products.stream()
+        .map(Product::getProductId)
+        .toArray(String[]::new);
+    } finally {
+      client.close();
+    }
+  }
+
+  private static void run(String name, String url, String[] productIds, int connections, int requests,
+                          int quantity) {
+    ConnectionProvider connectionProvider = ConnectionProvider.fixed(name, connections);
+    HttpClient client = HttpClient.create(connectionProvider)
+      .baseUrl(url)
+      .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON));
+
+    long[] latencies = new long[requests];
+    AtomicInteger responses = new AtomicInteger();
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    long start = System.nanoTime();
+
+    Flux.range(0, requests)
+      .flatMap(request -> {
+        String productId = productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+        String body = String.format(RESERVE_BODY, name + "-" + request, quantity, Catalog.PRICE);
+        long sentAt = System.nanoTime();
+
+        return client.post()
+          .uri("/products/" + productId + "/reserve")
+          .send(ByteBufFlux.fromString(Mono.just(body)))
+          .responseSingle((response, content) -> content.asString()
+            .defaultIfEmpty("")
+            .thenReturn(response.status().code()))
+          .doOnNext(status -> {
+            latencies[responses.getAndIncrement()] = System.nanoTime() - sentAt;
+            if (status == OK) {
+              reserved.incrementAndGet();
+            }
+          })
+          .onErrorResume(e -> {
+            failed.incrementAndGet();
+            return Mono.empty();
+          });
+      }, connections)
+      .blockLast();
+
+    long elapsed = System.nanoTime() - start;
+    connectionProvider.dispose();
+
+    long[] answered = Arrays.copyOf(latencies, responses.get());
+    Arrays.sort(answered);
+
+    System.out.printf("%-10s %10d %10d %10d %10.0f %10.1f %10.1f %10.1f%n", name, reserved.get(),
+      responses.get() - reserved.get(), failed.get(), responses.get() * 1e9 / elapsed,
+      percentileMillis(answered, 0.5), percentileMillis(answered, 0.99), percentileMillis(answered, 1));
+  }
+
+  private static double percentileMillis(long[] sortedLatencies, double percentile) {
+    if (sortedLatencies.length == 0) {
+      return 0;
+    }
+
+    int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
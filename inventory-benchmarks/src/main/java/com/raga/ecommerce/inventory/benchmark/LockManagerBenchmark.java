@@ -0,0 +1,65 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.lock.ProductLock;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets, locks and unlocks the lock of a product picked at random, the three
+ * going together as a lock is registered by the first and evicted by the last.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockManagerBenchmark {
+
+  private static final int CONTENTION_SKETCH_SIZE = 64;
+
+  // Never throttled, so that the whole cost of contention is measured
+  private static final long ACQUIRE_TIMEOUT_MILLIS = Long.MAX_VALUE;
+  private static final int MAX_WAITERS_PER_PRODUCT = Integer.MAX_VALUE;
+
+  @Param({"1", "10000"})
+  private int products;
+
+  private ProductReservationLockManager lockManager;
+  private String[] productIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    lockManager = new ProductReservationLockManager(new SimpleMeterRegistry(), CONTENTION_SKETCH_SIZE,
+      ACQUIRE_TIMEOUT_MILLIS, MAX_WAITERS_PER_PRODUCT);
+    productIds = new String[products];
+
+    for (int product = 0; product < products; product++) {
+      productIds[product] = Catalog.productIdOf(product);
+    }
+  }
+
+  @Benchmark
+  public ProductLock getLock() {
+    ProductLock lock = lockManager.getLock(productIds[ThreadLocalRandom.current().nextInt(products)]);
+
+    lock.lock();
+    lock.unlock();
+    return lock;
+  }
+}
@@ -0,0 +1,63 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the unreserved items of a single product, by scanning all its
+ * items and by the positions found from the unreserved cursor. The reserved
+ * items come first, as reservations leave them, and enough items are left
+ * unreserved for the largest quantity.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductBenchmark {
+
+  private static final int MAX_QUANTITY = 5;
+
+  @Param({"10", "1000", "100000"})
+  private int items;
+
+  @Param({"0", "50", "99"})
+  private int reservedPercent;
+
+  @Param({"1", "5"})
+  private int quantity;
+
+  private Product product;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    product = Catalog.product(Catalog.productIdOf(0), items);
+    product.reserveItems("O-1", Math.min(items * reservedPercent / 100, items - MAX_QUANTITY));
+  }
+
+  @Benchmark
+  public List<Item> getUnreservedItems() {
+    return product.getUnreservedItems();
+  }
+
+  @Benchmark
+  public List<Integer> getUnreservedPositions() {
+    return product.getUnreservedPositions(quantity);
+  }
+}
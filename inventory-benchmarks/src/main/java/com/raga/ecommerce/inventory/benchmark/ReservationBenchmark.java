@@ -0,0 +1,100 @@
+package com.raga.ecommerce.inventory.benchmark;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.hold.ReservationHolds;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.reservation.LockingReservationStrategy;
+import com.raga.ecommerce.inventory.reservation.ReservationStrategy;
+import com.raga.ecommerce.inventory.service.ProductService;
+import com.raga.ecommerce.inventory.service.ReservationAdmission;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reserves and releases items through the product service and the locking
+ * strategy, over repositories kept in memory. Every order reserves a single
+ * product picked at random and releases it right after, so the stock of a
+ * product stays put and threads only contend on its lock. A reservation
+ * finding too few items, as happens on a hot product with many threads, is
+ * measured as well.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReservationBenchmark {
+
+  private static final int DEDUPE_MAX_SIZE = 1024;
+  private static final long DEDUPE_TTL_MILLIS = 60000;
+  private static final int CONTENTION_SKETCH_SIZE = 64;
+
+  // Never throttled, so that the whole cost of contention is measured
+  private static final long ACQUIRE_TIMEOUT_MILLIS = Long.MAX_VALUE;
+  private static final int MAX_WAITERS_PER_PRODUCT = Integer.MAX_VALUE;
+
+  @Param({"1x10", "1x1000", "1x100000", "10000x10", "10000x100"})
+  private String catalog;
+
+  @Param({"1", "5"})
+  private int quantity;
+
+  private ProductService productService;
+  private String[] productIds;
+  private AtomicLong orders;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    InMemoryProductRepository productRepository = new InMemoryProductRepository();
+    productRepository.saveAll(Catalog.of(catalog));
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReservationStrategy reservationStrategy = new LockingReservationStrategy(productRepository,
+      new ProductReservationLockManager(meterRegistry, CONTENTION_SKETCH_SIZE,
+      ACQUIRE_TIMEOUT_MILLIS, MAX_WAITERS_PER_PRODUCT), meterRegistry);
+    ReservationHolds reservationHolds = new ReservationHolds(new InMemoryReservationRepository(),
+      reservationStrategy, event -> { }, meterRegistry, 0, 1000, DEDUPE_MAX_SIZE, DEDUPE_TTL_MILLIS);
+
+    productService = new ProductService(productRepository, reservationStrategy, Optional.empty(),
+      reservationHolds, new ReservationAdmission(meterRegistry, Integer.MAX_VALUE), event -> { }, meterRegistry, 1000);
+    productIds = productRepository.findAll()
+      .stream()
+      .map(Product::getProductId)
+      .toArray(String[]::new);
+    orders = new AtomicLong();
+  }
+
+  @Benchmark
+  public Object reserveAndRelease() {
+    String orderId = "O-" + orders.incrementAndGet();
+    String productId = productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+
+    try {
+      ReserveProductResponse response = productService.reserveItems(orderId, productId, quantity, Catalog.PRICE);
+      productService.releaseReservations(orderId);
+      return response;
+    } catch (ProductAvailableInLessQuantityException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs the operations on a product one after the other without blocking, the
+ * reactive counterpart of the product locks. An operation arriving while
+ * another one on the same product runs is queued, and started once the
+ * running one terminates. Products are registered while they have an
+ * operation running and evicted as soon as they have none left, so only the
+ * products being reserved right now are held.
+ * Only works within a single JVM, like the locking strategy.
+ **/
+@Component
+public class ProductSerializer {
+
+  // Operations waiting for the running one by product, only changed inside compute calls
+  private final ConcurrentMap<String, Queue<Runnable>> waiting;
+  private final Scheduler scheduler;
+
+  @Autowired
+  public ProductSerializer(MeterRegistry meterRegistry) {
+    this(meterRegistry, Schedulers.parallel());
+  }
+
+  ProductSerializer(MeterRegistry meterRegistry, Scheduler scheduler) {
+    this.waiting = new ConcurrentHashMap<>();
+    this.scheduler = scheduler;
+    meterRegistry.gauge("inventory.serializer.live", waiting, Map::size);
+  }
+
+  /**
+   * The operation is subscribed to once every operation on the product before
+   * it terminated. An operation cancelled while it waits is skipped, one
+   * cancelled while it runs is left to terminate before the next one starts.
+   **/
+  public <T> Mono<T> serialize(String productId, Supplier<Mono<T>> operation) {
+    return Mono.create(sink -> {
+      AtomicBoolean cancelled = new AtomicBoolean();
+      sink.onCancel(() -> cancelled.set(true));
+
+      submit(productId, () -> {
+        if (cancelled.get()) {
+          next(productId);
+          return;
+        }
+
+        Mono.defer(operation)
+          .doFinally(signal -> next(productId))
+          .subscribe(sink::success, sink::error, sink::success);
+      });
+    });
+  }
+
+  public int getLiveProductCount() {
+    return waiting.size();
+  }
+
+  private void submit(String productId, Runnable runnable) {
+    AtomicBoolean idle = new AtomicBoolean();
+
+    waiting.compute(productId, (id, queue) -> {
+      if (Objects.isNull(queue)) {
+        idle.set(true);
+        return new ArrayDeque<>();
+      }
+
+      queue.add(runnable);
+      return queue;
+    });
+
+    if (idle.get()) {
+      runnable.run();
+    }
+  }
+
+  /**
+   * Starts the next operation on the scheduler, so that operations which
+   * terminate right away do not nest the ones queued after them on the stack.
+   **/
+  private void next(String productId) {
+    Runnable[] next = new Runnable[1];
+
+    waiting.computeIfPresent(productId, (id, queue) -> {
+      next[0] = queue.poll();
+      return Objects.isNull(next[0]) ? null : queue;
+    });
+
+    if (Objects.nonNull(next[0])) {
+      scheduler.schedule(next[0]);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableMap;
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.exception.ProductsException;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductResponse;
+import com.raga.ecommerce.inventory.web.request.ReserveProductRequest;
+import com.raga.ecommerce.inventory.web.response.Error;
+import com.raga.ecommerce.inventory.web.response.ProductsPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+/**
+ * Handlers of the product routes, answering as the products controller of
+ * the servlet service does, errors included.
+ **/
+@Component
+public class ProductsHandler {
+
+  static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  private static final String ERRORS_FIELD = "errors";
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final String NEW_LINE = "\n";
+
+  private static final Map<Class<? extends ProductsException>, String> ERROR_CODES = ImmutableMap.of(
+    ProductUnavailableException.class, "2001",
+    ProductAvailableInLessQuantityException.class, "2002",
+    ProductPriceIncreasedException.class, "2003");
+
+  private final ReactiveProductService productService;
+  private final ObjectWriter productWriter;
+
+  @Autowired
+  public ProductsHandler(ReactiveProductService productService, ObjectMapper objectMapper) {
+    this.productService = productService;
+    this.productWriter = objectMapper.writerFor(ProductResponse.class);
+  }
+
+  /**
+   * Whole catalog of available products, written as it is read.
+   **/
+  public Mono<ServerResponse> getProducts(ServerRequest request) {
+    return ServerResponse.ok()
+      .contentType(MediaType.APPLICATION_JSON_UTF8)
+      .body(productService.getAvailableProducts().map(ProductResponse::new), ProductResponse.class);
+  }
+
+  /**
+   * Page of available products after the cursor, which is the id of the last
+   * product of the previous page. There are no more pages once the next
+   * cursor is null.
+   **/
+  public Mono<ServerResponse> getProductsPage(ServerRequest request) {
+    int pageSize = Math.max(1, Math.min(Integer.parseInt(request.queryParam("size").get()), MAX_PAGE_SIZE));
+
+    return productService.getAvailableProducts(request.queryParam("cursor").orElse(null), pageSize)
+      .map(ProductResponse::new)
+      .collectList()
+      .flatMap(products -> {
+        String nextCursor = products.size() < pageSize ? null : products.get(products.size() - 1).getProductId();
+        return ServerResponse.ok()
+          .contentType(MediaType.APPLICATION_JSON_UTF8)
+          .syncBody(new ProductsPage(products, nextCursor));
+      });
+  }
+
+  /**
+   * Available products as newline delimited JSON, written while they are read
+   * from the database. Each line is written out as text, the JSON encoder
+   * only knowing of arrays and server sent events.
+   **/
+  public Mono<ServerResponse> streamProducts(ServerRequest request) {
+    return ServerResponse.ok()
+      .contentType(NDJSON)
+      .body(productService.getAvailableProducts().map(this::toJsonLine), String.class);
+  }
+
+  public Mono<ServerResponse> reserveItems(ServerRequest request) {
+    String productId = request.pathVariable("productId");
+
+    return request.bodyToMono(ReserveProductRequest.class)
+      .flatMap(reservation -> productService.reserveItems(reservation.getOrderId(), productId,
+        reservation.getQuantity(), reservation.getExpectedPrice()))
+      .flatMap(response -> ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_JSON_UTF8)
+        .syncBody(response))
+      .onErrorResume(ProductsException.class, this::error);
+  }
+
+  private String toJsonLine(Product product) {
+    try {
+      return productWriter.writeValueAsString(new ProductResponse(product)) + NEW_LINE;
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Mono<ServerResponse> error(ProductsException e) {
+    String code = ERROR_CODES.get(e.getClass());
+
+    if (Objects.isNull(code)) {
+      return Mono.error(e);
+    }
+
+    Error error = new Error.ErrorBuilder()
+      .withCode(code)
+      .withTitle(e.getTitle())
+      .withMessage(e.getMessage())
+      .build();
+
+    Map<String, List<Error>> errors = ImmutableMap.of(ERRORS_FIELD, Collections.singletonList(error));
+
+    return ServerResponse.status(UNPROCESSABLE_ENTITY)
+      .contentType(MediaType.APPLICATION_JSON_UTF8)
+      .syncBody(errors);
+  }
+}
@@ -0,0 +1,32 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the products controller of the servlet service, except for the
+ * reservation of several products at once and the restock, which are left
+ * to the servlet service.
+ **/
+@Configuration
+public class ProductsRouter {
+
+  @Bean
+  public RouterFunction<ServerResponse> productRoutes(ProductsHandler productsHandler) {
+    return route(GET("/products").and(queryParam("size", size -> true)), productsHandler::getProductsPage)
+      .andRoute(GET("/products"), productsHandler::getProducts)
+      .andRoute(GET("/products/stream").and(accept(ProductsHandler.NDJSON)), productsHandler::streamProducts)
+      .andRoute(POST("/products/{productId}/reserve").and(contentType(APPLICATION_JSON)),
+        productsHandler::reserveItems);
+  }
+}
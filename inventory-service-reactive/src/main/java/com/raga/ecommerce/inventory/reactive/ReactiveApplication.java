@@ -0,0 +1,17 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+import static org.springframework.boot.SpringApplication.run;
+
+/**
+ * Inventory service on WebFlux and the reactive Mongo driver, reserving
+ * products without a thread waiting for a lock or a database round trip.
+ **/
+@SpringBootApplication
+public class ReactiveApplication {
+
+  public static void main(String[] args) {
+    run(ReactiveApplication.class);
+  }
+}
@@ -0,0 +1,17 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveProductRepository extends ReactiveMongoRepository<Product, String> {
+
+  @Query(value = ProductRepository.AVAILABLE_PRODUCTS, fields = ProductRepository.CATALOG_FIELDS)
+  Flux<Product> findAvailableProducts();
+
+  @Query(value = ProductRepository.AVAILABLE_PRODUCTS_AFTER, fields = ProductRepository.CATALOG_FIELDS)
+  Flux<Product> findAvailableProductsAfter(String productId, Pageable pageable);
+}
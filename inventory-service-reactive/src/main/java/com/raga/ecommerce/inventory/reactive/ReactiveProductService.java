@@ -0,0 +1,88 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.reservation.ReservationChecks;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class ReactiveProductService {
+
+  private static final String PRODUCT_ID_FIELD = "productId";
+
+  private final ReactiveProductRepository productRepository;
+  private final ReactiveReservationRepository reservationRepository;
+  private final ProductSerializer productSerializer;
+
+  @Autowired
+  public ReactiveProductService(ReactiveProductRepository productRepository,
+                                ReactiveReservationRepository reservationRepository,
+                                ProductSerializer productSerializer) {
+    this.productRepository = productRepository;
+    this.reservationRepository = reservationRepository;
+    this.productSerializer = productSerializer;
+  }
+
+  public Flux<Product> getAvailableProducts() {
+    return productRepository.findAvailableProducts();
+  }
+
+  /**
+   * Page of the available products whose id comes after the cursor, in
+   * product id order.
+   **/
+  public Flux<Product> getAvailableProducts(String cursor, int size) {
+    PageRequest page = PageRequest.of(0, size, Sort.by(PRODUCT_ID_FIELD));
+
+    return productRepository.findAvailableProductsAfter(Objects.isNull(cursor) ? "" : cursor, page);
+  }
+
+  /**
+   * Reads, reserves and writes back the product after every other reservation
+   * of it terminated, as the locking strategy does under the product lock but
+   * without holding a thread meanwhile. A product the order reserved already
+   * returns the items reserved the first time. Reservations are recorded
+   * without an expiry, holds are left to the servlet service.
+   **/
+  public Mono<ReserveProductResponse> reserveItems(String orderId, String productId, int quantity,
+                                                   BigDecimal expectedPrice) {
+    String reservationId = Reservation.idOf(orderId, productId);
+
+    return productSerializer.serialize(productId, () -> reservationRepository.findById(reservationId)
+      .map(reservation -> new ReserveProductResponse(reservation.getItems(), reservation.getPrice()))
+      .switchIfEmpty(Mono.defer(() -> reserve(reservationId, orderId, productId, quantity, expectedPrice))));
+  }
+
+  private Mono<ReserveProductResponse> reserve(String reservationId, String orderId, String productId, int quantity,
+                                               BigDecimal expectedPrice) {
+    return productRepository.findById(productId)
+      .switchIfEmpty(Mono.defer(() -> Mono.error(new ProductUnavailableException(productId))))
+      .flatMap(product -> {
+        ReservationChecks.requireReservable(Optional.of(product), productId, quantity, expectedPrice);
+
+        List<String> items = product.reserveItems(orderId, quantity)
+          .stream()
+          .map(Item::getItemId)
+          .collect(Collectors.toList());
+        Reservation reservation = new Reservation(reservationId, orderId, productId, items, product.getPrice(), null);
+
+        return productRepository.save(product)
+          .then(reservationRepository.save(reservation))
+          .thenReturn(new ReserveProductResponse(items, product.getPrice()));
+      });
+  }
+}
@@ -0,0 +1,7 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.raga.ecommerce.inventory.vo.Reservation;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveReservationRepository extends ReactiveMongoRepository<Reservation, String> {
+}
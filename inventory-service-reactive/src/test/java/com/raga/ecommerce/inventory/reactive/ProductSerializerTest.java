@@ -0,0 +1,116 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductSerializerTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+
+  private ProductSerializer productSerializer;
+
+  @Before
+  public void setUp() {
+    productSerializer = new ProductSerializer(new SimpleMeterRegistry(), Schedulers.immediate());
+  }
+
+  @Test
+  public void shouldStartOperationOnProductOnceTheRunningOneTerminated() {
+    MonoProcessor<String> first = MonoProcessor.create();
+    List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+    Mono<String> firstResult = productSerializer.serialize(PRODUCT_ID, () -> {
+      started.add("first");
+      return first;
+    });
+    Mono<String> secondResult = productSerializer.serialize(PRODUCT_ID, () -> {
+      started.add("second");
+      return Mono.just("second");
+    });
+
+    StepVerifier.create(Flux.merge(firstResult, secondResult))
+      .then(() -> assertThat(started).containsExactly("first"))
+      .then(() -> first.onNext("first"))
+      .expectNext("first", "second")
+      .verifyComplete();
+
+    assertThat(started).containsExactly("first", "second");
+    assertThat(productSerializer.getLiveProductCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRunOperationsOnDifferentProductsAtOnce() {
+    productSerializer.serialize(PRODUCT_ID, MonoProcessor::<String>create).subscribe();
+
+    StepVerifier.create(productSerializer.serialize("prod-123", () -> Mono.just("other")))
+      .expectNext("other")
+      .verifyComplete();
+    assertThat(productSerializer.getLiveProductCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldStartNextOperationWhenRunningOneFails() {
+    Mono<String> failing = productSerializer.serialize(PRODUCT_ID, () -> Mono.error(new IllegalStateException()));
+    Mono<String> next = productSerializer.serialize(PRODUCT_ID, () -> Mono.just("next"));
+
+    StepVerifier.create(failing).verifyError(IllegalStateException.class);
+    StepVerifier.create(next).expectNext("next").verifyComplete();
+    assertThat(productSerializer.getLiveProductCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldSkipOperationCancelledWhileWaiting() {
+    MonoProcessor<String> first = MonoProcessor.create();
+    AtomicInteger cancelledRuns = new AtomicInteger();
+
+    productSerializer.serialize(PRODUCT_ID, () -> first).subscribe();
+    Disposable cancelled = productSerializer.serialize(PRODUCT_ID, () -> {
+      cancelledRuns.incrementAndGet();
+      return Mono.just("cancelled");
+    }).subscribe();
+    Mono<String> last = productSerializer.serialize(PRODUCT_ID, () -> Mono.just("last"));
+
+    cancelled.dispose();
+
+    StepVerifier.create(last)
+      .then(() -> first.onNext("first"))
+      .expectNext("last")
+      .verifyComplete();
+    assertThat(cancelledRuns.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRunEveryOperationOnceUnderConcurrentReservations() {
+    productSerializer = new ProductSerializer(new SimpleMeterRegistry());
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+
+    Flux<Integer> operations = Flux.range(0, 1000)
+      .flatMap(operation -> productSerializer.serialize(PRODUCT_ID, () -> Mono.fromCallable(() -> {
+        if (running.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        return operation;
+      }).delayElement(Duration.ofNanos(1)).doOnNext(value -> running.decrementAndGet())), 1000);
+
+    StepVerifier.create(operations.count())
+      .expectNext(1000L)
+      .verifyComplete();
+    assertThat(overlaps.get()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,99 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.request.ReserveProductRequest;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest
+@Import({ProductsRouter.class, ProductsHandler.class})
+public class ProductsRouterTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @MockBean
+  private ReactiveProductService productService;
+
+  @Test
+  public void shouldReserveItems() {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, BigDecimal.valueOf(100)))
+      .thenReturn(Mono.just(new ReserveProductResponse(Arrays.asList("item-a1", "item-a2"), BigDecimal.valueOf(90))));
+
+    webTestClient.post()
+      .uri("/products/{productId}/reserve", PRODUCT_ID)
+      .contentType(MediaType.APPLICATION_JSON)
+      .syncBody(new ReserveProductRequest(ORDER_ID, 2, BigDecimal.valueOf(100)))
+      .exchange()
+      .expectStatus().isOk()
+      .expectBody()
+      .jsonPath("$.items[1]").isEqualTo("item-a2")
+      .jsonPath("$.currentPrice").isEqualTo(90);
+  }
+
+  @Test
+  public void shouldAnswerWithErrorCodeOfServletService() {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, BigDecimal.valueOf(100))).thenReturn(
+      Mono.error(new ProductPriceIncreasedException(PRODUCT_ID, BigDecimal.valueOf(100), BigDecimal.valueOf(110))));
+
+    webTestClient.post()
+      .uri("/products/{productId}/reserve", PRODUCT_ID)
+      .contentType(MediaType.APPLICATION_JSON)
+      .syncBody(new ReserveProductRequest(ORDER_ID, 2, BigDecimal.valueOf(100)))
+      .exchange()
+      .expectStatus().isEqualTo(422)
+      .expectBody()
+      .jsonPath("$.errors[0].code").isEqualTo("2003");
+  }
+
+  @Test
+  public void shouldReturnPageOfAvailableProductsWithNextCursor() {
+    when(productService.getAvailableProducts("prod-100", 2)).thenReturn(Flux.just(
+      new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(10)),
+      new Product(PRODUCT_ID, "Titan Watch", BigDecimal.valueOf(20))));
+
+    webTestClient.get()
+      .uri("/products?cursor=prod-100&size=2")
+      .exchange()
+      .expectStatus().isOk()
+      .expectBody()
+      .jsonPath("$.products[0].productId").isEqualTo("prod-123")
+      .jsonPath("$.nextCursor").isEqualTo(PRODUCT_ID);
+  }
+
+  @Test
+  public void shouldStreamAvailableProductsAsNewlineDelimitedJson() {
+    when(productService.getAvailableProducts()).thenReturn(Flux.just(
+      new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(10)),
+      new Product(PRODUCT_ID, "Titan Watch", BigDecimal.valueOf(20))));
+
+    webTestClient.get()
+      .uri("/products/stream")
+      .accept(ProductsHandler.NDJSON)
+      .exchange()
+      .expectStatus().isOk()
+      .expectBody(String.class)
+      .isEqualTo("{\"productId\":\"prod-123\",\"productName\":\"Fasttrack Watch\",\"price\":10}\n" +
+        "{\"productId\":\"prod-456\",\"productName\":\"Titan Watch\",\"price\":20}\n");
+  }
+}
@@ -0,0 +1,107 @@
+package com.raga.ecommerce.inventory.reactive;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveProductServiceTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+  private static final BigDecimal PRICE = BigDecimal.valueOf(2222.25);
+
+  @Mock
+  private ReactiveProductRepository productRepository;
+
+  @Mock
+  private ReactiveReservationRepository reservationRepository;
+
+  private ReactiveProductService productService;
+
+  @Before
+  public void setUp() {
+    productService = new ReactiveProductService(productRepository, reservationRepository,
+      new ProductSerializer(new SimpleMeterRegistry(), Schedulers.immediate()));
+    when(reservationRepository.findById(anyString())).thenReturn(Mono.empty());
+    lenient().when(productRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    lenient().when(reservationRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+  }
+
+  @Test
+  public void shouldReserveItemsAndRecordReservation() {
+    Product watch = watch("item-a1", "item-a2", "item-a3");
+    when(productRepository.findById(PRODUCT_ID)).thenReturn(Mono.just(watch));
+
+    StepVerifier.create(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, PRICE))
+      .assertNext(response -> {
+        assertThat(response.getItems()).containsExactly("item-a1", "item-a2");
+        assertThat(response.getCurrentPrice()).isEqualTo(PRICE);
+      })
+      .verifyComplete();
+
+    ArgumentCaptor<Reservation> reservation = ArgumentCaptor.forClass(Reservation.class);
+    verify(productRepository).save(watch);
+    verify(reservationRepository).save(reservation.capture());
+    assertThat(reservation.getValue().getId()).isEqualTo(Reservation.idOf(ORDER_ID, PRODUCT_ID));
+    assertThat(reservation.getValue().getItems()).containsExactly("item-a1", "item-a2");
+    assertThat(reservation.getValue().isHold()).isFalse();
+    assertThat(watch.getAvailableQuantity()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReturnRecordedReservationWithoutReadingProduct() {
+    when(reservationRepository.findById(Reservation.idOf(ORDER_ID, PRODUCT_ID))).thenReturn(Mono.just(
+      new Reservation(Reservation.idOf(ORDER_ID, PRODUCT_ID), ORDER_ID, PRODUCT_ID, Arrays.asList("item-a1"), PRICE,
+        null)));
+
+    StepVerifier.create(productService.reserveItems(ORDER_ID, PRODUCT_ID, 1, PRICE))
+      .assertNext(response -> assertThat(response.getItems()).containsExactly("item-a1"))
+      .verifyComplete();
+
+    verify(productRepository, never()).findById(anyString());
+  }
+
+  @Test
+  public void shouldFailIfProductDoesNotExist() {
+    when(productRepository.findById(PRODUCT_ID)).thenReturn(Mono.empty());
+
+    StepVerifier.create(productService.reserveItems(ORDER_ID, PRODUCT_ID, 1, PRICE))
+      .verifyError(ProductUnavailableException.class);
+  }
+
+  @Test
+  public void shouldFailWithoutWritingIfNotEnoughItemsAreAvailable() {
+    when(productRepository.findById(PRODUCT_ID)).thenReturn(Mono.just(watch("item-a1")));
+
+    StepVerifier.create(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, PRICE))
+      .verifyError(ProductAvailableInLessQuantityException.class);
+
+    verify(productRepository, never()).save(any());
+    verify(reservationRepository, never()).save(any());
+  }
+
+  private static Product watch(String... itemIds) {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", PRICE);
+    watch.addItems(Arrays.asList(itemIds));
+    return watch;
+  }
+}
@@ -0,0 +1,70 @@
+package com.raga.ecommerce.inventory.catalog;
+
+import com.raga.ecommerce.inventory.vo.Product;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+class AvailableProduct {
+
+  private final String productId;
+  private final String productName;
+  private final BigDecimal price;
+  private final int availableQuantity;
+
+  AvailableProduct(String productId, String productName, BigDecimal price, int availableQuantity) {
+    this.productId = productId;
+    this.productName = productName;
+    this.price = price;
+    this.availableQuantity = availableQuantity;
+  }
+
+  static AvailableProduct of(Product product) {
+    return new AvailableProduct(product.getProductId(), product.getProductName(), product.getPrice(),
+      product.getAvailableQuantity());
+  }
+
+  String getProductId() {
+    return productId;
+  }
+
+  int getAvailableQuantity() {
+    return availableQuantity;
+  }
+
+  boolean isAvailable() {
+    return availableQuantity > 0;
+  }
+
+  AvailableProduct withQuantityChange(int quantityChange) {
+    return withAvailableQuantity(Math.max(0, availableQuantity + quantityChange));
+  }
+
+  AvailableProduct withAvailableQuantity(int availableQuantity) {
+    return new AvailableProduct(productId, productName, price, availableQuantity);
+  }
+
+  Product toProduct() {
+    return new Product(productId, productName, price);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AvailableProduct that = (AvailableProduct) o;
+    return availableQuantity == that.availableQuantity &&
+      Objects.equals(productId, that.productId) &&
+      Objects.equals(productName, that.productName) &&
+      Objects.equals(price, that.price);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(productId, productName, price, availableQuantity);
+  }
+}
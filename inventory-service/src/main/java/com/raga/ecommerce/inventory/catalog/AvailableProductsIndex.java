@@ -0,0 +1,158 @@
+package com.raga.ecommerce.inventory.catalog;
+
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Name, price and available quantity of every product in memory, so that
+ * catalog reads do not go to the database. The index is loaded once the
+ * application is ready and then follows the stock changes published by this
+ * instance. Changes made by other instances, or missed in any other way, are
+ * picked up by a periodic resynchronization with the database, which counts
+ * the entries it had to correct.
+ **/
+@Component
+@ConditionalOnProperty(name = "inventory.catalog.index.enabled", havingValue = "true")
+public class AvailableProductsIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AvailableProductsIndex.class);
+
+  private final ProductRepository productRepository;
+  private final Clock clock;
+  private final ConcurrentNavigableMap<String, AvailableProduct> products;
+  private final Counter corrections;
+  private volatile Instant lastSynchronized;
+
+  @Autowired
+  public AvailableProductsIndex(ProductRepository productRepository, MeterRegistry meterRegistry) {
+    this(productRepository, meterRegistry, Clock.systemUTC());
+  }
+
+  AvailableProductsIndex(ProductRepository productRepository, MeterRegistry meterRegistry, Clock clock) {
+    this.productRepository = productRepository;
+    this.clock = clock;
+    this.products = new ConcurrentSkipListMap<>();
+    this.corrections = meterRegistry.counter("inventory.catalog.index.corrections");
+    meterRegistry.gauge("inventory.catalog.index.size", products, Map::size);
+    Gauge.builder("inventory.catalog.index.staleness", this, AvailableProductsIndex::secondsSinceSynchronized)
+      .baseUnit("seconds")
+      .register(meterRegistry);
+  }
+
+  public boolean isLoaded() {
+    return Objects.nonNull(lastSynchronized);
+  }
+
+  public List<Product> getAvailableProducts() {
+    return streamAvailableProducts().collect(Collectors.toList());
+  }
+
+  public List<Product> getAvailableProducts(String cursor, int size) {
+    NavigableMap<String, AvailableProduct> productsAfterCursor = Objects.isNull(cursor) ?
+      products : products.tailMap(cursor, false);
+
+    return productsAfterCursor.values()
+      .stream()
+      .filter(AvailableProduct::isAvailable)
+      .limit(size)
+      .map(AvailableProduct::toProduct)
+      .collect(Collectors.toList());
+  }
+
+  public List<ProductAvailability> getProductAvailability() {
+    return products.values()
+      .stream()
+      .filter(AvailableProduct::isAvailable)
+      .map(product -> new ProductAvailability(product.toProduct(), product.getAvailableQuantity()))
+      .collect(Collectors.toList());
+  }
+
+  public Stream<Product> streamAvailableProducts() {
+    return products.values()
+      .stream()
+      .filter(AvailableProduct::isAvailable)
+      .map(AvailableProduct::toProduct);
+  }
+
+  @EventListener
+  public void onStockChanged(ProductStockChangedEvent event) {
+    AvailableProduct changed = products.computeIfPresent(event.getProductId(),
+      (productId, product) -> product.withQuantityChange(event.getQuantityChange()));
+
+    if (Objects.isNull(changed) && isLoaded()) {
+      productRepository.findAvailabilityByProductId(event.getProductId())
+        .ifPresent(product -> products.putIfAbsent(product.getProductId(), AvailableProduct.of(product)));
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    synchronize();
+    LOGGER.info("Loaded {} products into the available products index", products.size());
+  }
+
+  /**
+   * Overwrites the entries which differ from the database. Stock changes made
+   * by this instance while the database is read may be overwritten with the
+   * quantity read, the next resynchronization corrects them.
+   **/
+  @Scheduled(initialDelayString = "${inventory.catalog.index.resync-interval-millis:60000}",
+    fixedDelayString = "${inventory.catalog.index.resync-interval-millis:60000}")
+  public void synchronize() {
+    Set<String> availableProductIds = new HashSet<>();
+    boolean loaded = isLoaded();
+
+    try (Stream<Product> availableProducts = productRepository.streamProductAvailability()) {
+      availableProducts.forEach(product -> {
+        availableProductIds.add(product.getProductId());
+        AvailableProduct stored = AvailableProduct.of(product);
+
+        if (!stored.equals(products.put(product.getProductId(), stored)) && loaded) {
+          corrections.increment();
+        }
+      });
+    }
+
+    products.replaceAll((productId, product) -> {
+      if (product.isAvailable() && !availableProductIds.contains(productId)) {
+        corrections.increment();
+        return product.withAvailableQuantity(0);
+      }
+      return product;
+    });
+
+    lastSynchronized = clock.instant();
+  }
+
+  private double secondsSinceSynchronized() {
+    Instant synchronizedAt = lastSynchronized;
+    return Objects.isNull(synchronizedAt) ? Double.NaN : Duration.between(synchronizedAt, clock.instant()).getSeconds();
+  }
+}
@@ -0,0 +1,257 @@
+package com.raga.ecommerce.inventory.engine;
+
+import com.raga.ecommerce.inventory.vo.CompactItems;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the products held in memory, along with the sequence of
+ * the last write-ahead log record it reflects. The products are written one
+ * after the other, each behind a product marker and with the table of the
+ * orders reserving its items followed by the code of the order reserving
+ * each item, and the file ends with a checksum of everything before it.
+ * A snapshot is written to a temporary file which then replaces the previous
+ * one, and it is read back by mapping the file, so loading it costs about as
+ * much as reading it from disk.
+ **/
+public class SnapshotFile {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFile.class);
+
+  private static final int MAGIC = 0x494E5653;
+  private static final int VERSION = 1;
+  private static final int UNRESERVED = -1;
+  private static final byte PRODUCT = 1;
+  private static final byte END = 0;
+
+  private final Path file;
+
+  public SnapshotFile(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Starts a snapshot reflecting the records up to the sequence.
+   **/
+  public Writer write(long sequence) {
+    return new Writer(sequence);
+  }
+
+  /**
+   * Reads back the products of the snapshot, if there is one and it is
+   * intact.
+   *
+   * @return the sequence the snapshot reflects
+   **/
+  public OptionalLong read(Consumer<SnapshotProduct> consumer) {
+    if (!Files.exists(file)) {
+      return OptionalLong.empty();
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE || channel.size() < Integer.BYTES) {
+        LOGGER.warn("Ignoring the inventory snapshot {} of {} bytes", file, channel.size());
+        return OptionalLong.empty();
+      }
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int bodySize = buffer.limit() - Integer.BYTES;
+
+      CRC32 crc = new CRC32();
+      ByteBuffer body = buffer.duplicate();
+      body.limit(bodySize);
+      crc.update(body);
+
+      if ((int) crc.getValue() != buffer.getInt(bodySize) || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        LOGGER.warn("Ignoring the inventory snapshot {} which is corrupt or of another version", file);
+        return OptionalLong.empty();
+      }
+
+      long sequence = buffer.getLong();
+
+      while (buffer.get() == PRODUCT) {
+        consumer.accept(readProduct(buffer));
+      }
+
+      return OptionalLong.of(sequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (BufferUnderflowException e) {
+      LOGGER.warn("Ignoring the inventory snapshot {} which is truncated", file);
+      return OptionalLong.empty();
+    }
+  }
+
+  private static SnapshotProduct readProduct(ByteBuffer buffer) {
+    String productId = readString(buffer);
+    String productName = readString(buffer);
+    String price = readString(buffer);
+    boolean itemRanges = buffer.get() != 0;
+
+    String[] orderIds = new String[buffer.getInt()];
+    for (int code = 0; code < orderIds.length; code++) {
+      orderIds[code] = readString(buffer);
+    }
+
+    int itemCount = buffer.getInt();
+    String[] itemIds = new String[itemCount];
+    String[] reservedByOrderIds = new String[itemCount];
+    for (int slot = 0; slot < itemCount; slot++) {
+      itemIds[slot] = readString(buffer);
+      int orderCode = buffer.getInt();
+      reservedByOrderIds[slot] = orderCode == UNRESERVED ? null : orderIds[orderCode];
+    }
+
+    return new SnapshotProduct(productId, productName, Objects.isNull(price) ? null : new BigDecimal(price),
+      itemRanges, CompactItems.of(itemIds, reservedByOrderIds));
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+
+    if (length < 0) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the products of a snapshot as they are added, and replaces the
+   * previous snapshot once it is committed. A snapshot closed before it is
+   * committed is discarded.
+   **/
+  public class Writer implements AutoCloseable {
+
+    private final Path temporary;
+    private final FileChannel channel;
+    private final CheckedOutputStream checked;
+    private final DataOutputStream output;
+    private boolean committed;
+
+    private Writer(long sequence) {
+      this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+      try {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+        this.checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32());
+        this.output = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(sequence);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Writes the product, whose items must not change meanwhile.
+     **/
+    public void add(SnapshotProduct product) {
+      CompactItems items = product.getItems();
+      Map<String, Integer> orderCodes = new HashMap<>();
+      String[] orderIds = new String[items.size()];
+
+      for (int slot = 0; slot < items.size(); slot++) {
+        String orderId = items.getReservedByOrderId(slot);
+        if (Objects.nonNull(orderId) && !orderCodes.containsKey(orderId)) {
+          orderIds[orderCodes.size()] = orderId;
+          orderCodes.put(orderId, orderCodes.size());
+        }
+      }
+
+      try {
+        output.writeByte(PRODUCT);
+        writeString(product.getProductId());
+        writeString(product.getProductName());
+        writeString(Objects.isNull(product.getPrice()) ? null : product.getPrice().toPlainString());
+        output.writeByte(product.hasItemRanges() ? 1 : 0);
+
+        output.writeInt(orderCodes.size());
+        for (int code = 0; code < orderCodes.size(); code++) {
+          writeString(orderIds[code]);
+        }
+
+        output.writeInt(items.size());
+        for (int slot = 0; slot < items.size(); slot++) {
+          String orderId = items.getReservedByOrderId(slot);
+          writeString(items.getItemId(slot));
+          output.writeInt(Objects.isNull(orderId) ? UNRESERVED : orderCodes.get(orderId));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Completes the snapshot, forces it to disk and replaces the previous one
+     * with it.
+     **/
+    public void commit() {
+      try {
+        output.writeByte(END);
+        output.flush();
+        channel.write((ByteBuffer) ByteBuffer.allocate(Integer.BYTES)
+          .putInt((int) checked.getChecksum().getValue()).flip());
+        channel.force(true);
+        channel.close();
+
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        channel.close();
+        if (!committed) {
+          Files.deleteIfExists(temporary);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      if (Objects.isNull(value)) {
+        output.writeInt(-1);
+        return;
+      }
+
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+}
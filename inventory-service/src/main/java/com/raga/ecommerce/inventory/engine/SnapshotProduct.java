@@ -0,0 +1,46 @@
+package com.raga.ecommerce.inventory.engine;
+
+import com.raga.ecommerce.inventory.vo.CompactItems;
+
+import java.math.BigDecimal;
+
+/**
+ * Product as it is written to or read from an inventory snapshot.
+ **/
+public class SnapshotProduct {
+
+  private final String productId;
+  private final String productName;
+  private final BigDecimal price;
+  private final boolean itemRanges;
+  private final CompactItems items;
+
+  public SnapshotProduct(String productId, String productName, BigDecimal price, boolean itemRanges,
+                         CompactItems items) {
+    this.productId = productId;
+    this.productName = productName;
+    this.price = price;
+    this.itemRanges = itemRanges;
+    this.items = items;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public String getProductName() {
+    return productName;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public boolean hasItemRanges() {
+    return itemRanges;
+  }
+
+  public CompactItems getItems() {
+    return items;
+  }
+}
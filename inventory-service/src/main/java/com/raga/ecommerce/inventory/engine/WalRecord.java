@@ -0,0 +1,156 @@
+package com.raga.ecommerce.inventory.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reservation or release of an order, covering the item slots of one or more
+ * products, as it is written to the write-ahead log. A record is applied as
+ * a whole, so the lines of a batch reservation share one record. Items added
+ * to a product are recorded with their ids and the slots they take, under
+ * no order.
+ **/
+public class WalRecord {
+
+  public enum Type {
+    RESERVE, RELEASE, ADD
+  }
+
+  private final long sequence;
+  private final Type type;
+  private final String orderId;
+  private final List<Entry> entries;
+
+  public WalRecord(long sequence, Type type, String orderId, List<Entry> entries) {
+    this.sequence = sequence;
+    this.type = type;
+    this.orderId = orderId;
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  WalRecord withSequence(long sequence) {
+    return new WalRecord(sequence, type, orderId, entries);
+  }
+
+  int encodedSize() {
+    int size = Long.BYTES + 1 + stringSize(orderId) + Integer.BYTES;
+    for (Entry entry : entries) {
+      size += stringSize(entry.productId) + Integer.BYTES + entry.slots.length * Integer.BYTES + Integer.BYTES;
+      for (String itemId : entry.itemIds) {
+        size += stringSize(itemId);
+      }
+    }
+    return size;
+  }
+
+  void encode(ByteBuffer buffer) {
+    buffer.putLong(sequence);
+    buffer.put((byte) type.ordinal());
+    putString(buffer, orderId);
+    buffer.putInt(entries.size());
+
+    for (Entry entry : entries) {
+      putString(buffer, entry.productId);
+      buffer.putInt(entry.slots.length);
+      for (int slot : entry.slots) {
+        buffer.putInt(slot);
+      }
+      buffer.putInt(entry.itemIds.size());
+      for (String itemId : entry.itemIds) {
+        putString(buffer, itemId);
+      }
+    }
+  }
+
+  static WalRecord decode(ByteBuffer buffer) {
+    long sequence = buffer.getLong();
+    Type type = Type.values()[buffer.get()];
+    String orderId = getString(buffer);
+    int entryCount = buffer.getInt();
+    List<Entry> entries = new ArrayList<>(entryCount);
+
+    for (int index = 0; index < entryCount; index++) {
+      String productId = getString(buffer);
+      int[] slots = new int[buffer.getInt()];
+      for (int slot = 0; slot < slots.length; slot++) {
+        slots[slot] = buffer.getInt();
+      }
+      int itemCount = buffer.getInt();
+      List<String> itemIds = new ArrayList<>(itemCount);
+      for (int item = 0; item < itemCount; item++) {
+        itemIds.add(getString(buffer));
+      }
+      entries.add(new Entry(productId, slots, itemIds));
+    }
+
+    return new WalRecord(sequence, type, orderId, entries);
+  }
+
+  private static int stringSize(String value) {
+    return Short.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static void putString(ByteBuffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Item slots of a product taken or given back by the record, or taken by
+   * the items added along with their ids.
+   **/
+  public static class Entry {
+
+    private final String productId;
+    private final int[] slots;
+    private final List<String> itemIds;
+
+    public Entry(String productId, int[] slots) {
+      this(productId, slots, Collections.emptyList());
+    }
+
+    public Entry(String productId, int[] slots, List<String> itemIds) {
+      this.productId = productId;
+      this.slots = slots;
+      this.itemIds = itemIds;
+    }
+
+    public String getProductId() {
+      return productId;
+    }
+
+    public int[] getSlots() {
+      return slots;
+    }
+
+    public List<String> getItemIds() {
+      return itemIds;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package com.raga.ecommerce.inventory.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records in memory-mapped segment files named after the
+ * sequence of their first record. A record is framed by its length and a
+ * checksum, so a record torn by a crash ends its segment when it is read
+ * back, and appends after the crash go to a new segment.
+ * Appending only copies the record into the mapped segment, the callers
+ * which need it on disk wait for it to be durable, and one of them forces
+ * the segment for every record appended so far, so concurrent appends share
+ * an fsync. The checkpoint is the sequence up to which the records have been
+ * applied elsewhere, segments holding only such records are deleted.
+ **/
+public class WriteAheadLog implements AutoCloseable {
+
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final int FRAME_BYTES = 2 * Integer.BYTES;
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final Object appendLock;
+  private final Object forceLock;
+  private final Counter fsyncs;
+  private final DistributionSummary fsyncBatchSize;
+  private MappedByteBuffer segment;
+  private long lastSequence;
+  private volatile long durableSequence;
+  private long checkpoint;
+
+  /**
+   * Opens the log in the directory. Appends go to a new segment following the
+   * last record which can be read back.
+   **/
+  public WriteAheadLog(Path directory, int segmentBytes, MeterRegistry meterRegistry) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.appendLock = new Object();
+    this.forceLock = new Object();
+    this.fsyncs = meterRegistry.counter("inventory.engine.wal.fsyncs");
+    this.fsyncBatchSize = meterRegistry.summary("inventory.engine.wal.fsync.batch.size");
+
+    try {
+      Files.createDirectories(directory);
+      Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+      this.checkpoint = Files.exists(checkpointFile) ?
+        ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    this.lastSequence = checkpoint;
+    replay(checkpoint, record -> lastSequence = Math.max(lastSequence, record.getSequence()));
+    this.durableSequence = lastSequence;
+    this.segment = newSegment(lastSequence + 1);
+  }
+
+  public long getCheckpoint() {
+    return checkpoint;
+  }
+
+  public long getLastSequence() {
+    synchronized (appendLock) {
+      return lastSequence;
+    }
+  }
+
+  /**
+   * Copies the record into the log under the next sequence, without waiting
+   * for it to be on disk.
+   *
+   * @return the sequence of the record
+   **/
+  public long append(WalRecord record) {
+    int size = record.encodedSize();
+    if (size + FRAME_BYTES > segmentBytes) {
+      throw new IllegalArgumentException(String.format("Record of %d bytes exceeds the segment size", size));
+    }
+
+    synchronized (appendLock) {
+      long sequence = lastSequence + 1;
+
+      if (segment.remaining() < size + FRAME_BYTES) {
+        force(segment);
+        segment = newSegment(sequence);
+      }
+
+      ByteBuffer body = ByteBuffer.allocate(size);
+      record.withSequence(sequence).encode(body);
+      CRC32 crc = new CRC32();
+      crc.update(body.array());
+
+      segment.putInt(size);
+      segment.putInt((int) crc.getValue());
+      segment.put(body.array());
+      lastSequence = sequence;
+      return sequence;
+    }
+  }
+
+  /**
+   * Waits until the record with the sequence is on disk, forcing every
+   * record appended so far unless another caller is doing it already.
+   **/
+  public void awaitDurable(long sequence) {
+    if (durableSequence >= sequence) {
+      return;
+    }
+
+    synchronized (forceLock) {
+      if (durableSequence >= sequence) {
+        return;
+      }
+
+      long appendedSequence;
+      MappedByteBuffer appendedSegment;
+      synchronized (appendLock) {
+        appendedSequence = lastSequence;
+        appendedSegment = segment;
+      }
+
+      force(appendedSegment);
+      fsyncBatchSize.record(appendedSequence - durableSequence);
+      durableSequence = appendedSequence;
+    }
+  }
+
+  /**
+   * Reads back every record after the given sequence, in sequence order.
+   **/
+  public void replay(long afterSequence, Consumer<WalRecord> consumer) {
+    for (Path segmentFile : segmentFiles()) {
+      replaySegment(segmentFile, afterSequence, consumer);
+    }
+  }
+
+  /**
+   * Records that everything up to the sequence has been applied elsewhere,
+   * and deletes the segments holding nothing after it.
+   **/
+  public void checkpoint(long sequence) {
+    try {
+      Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        channel.write((ByteBuffer) ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip());
+        channel.force(true);
+      }
+      Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+      checkpoint = sequence;
+
+      List<Path> segments = segmentFiles();
+      for (int index = 0; index + 1 < segments.size(); index++) {
+        if (firstSequenceOf(segments.get(index + 1)) <= sequence + 1) {
+          Files.delete(segments.get(index));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (appendLock) {
+      force(segment);
+    }
+  }
+
+  private void replaySegment(Path segmentFile, long afterSequence, Consumer<WalRecord> consumer) {
+    try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      while (buffer.remaining() >= FRAME_BYTES) {
+        int size = buffer.getInt();
+        int checksum = buffer.getInt();
+
+        if (size <= 0 || size > buffer.remaining()) {
+          return;
+        }
+
+        byte[] body = new byte[size];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        if ((int) crc.getValue() != checksum) {
+          return;
+        }
+
+        WalRecord record = WalRecord.decode(ByteBuffer.wrap(body));
+        if (record.getSequence() > afterSequence) {
+          consumer.accept(record);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Maps a new segment file, replacing the one left with no readable record
+   * by a previous run.
+   **/
+  private MappedByteBuffer newSegment(long firstSequence) {
+    Path segmentFile = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+
+    try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void force(MappedByteBuffer mappedSegment) {
+    mappedSegment.force();
+    fsyncs.increment();
+  }
+
+  private List<Path> segmentFiles() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+        .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+        .sorted()
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long firstSequenceOf(Path segmentFile) {
+    String name = segmentFile.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
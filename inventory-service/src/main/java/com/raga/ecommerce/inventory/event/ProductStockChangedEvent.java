@@ -0,0 +1,25 @@
+package com.raga.ecommerce.inventory.event;
+
+/**
+ * Published once the available quantity of a product has changed in the
+ * database, negative when items got reserved and positive when items got added
+ * or released.
+ **/
+public class ProductStockChangedEvent {
+
+  private final String productId;
+  private final int quantityChange;
+
+  public ProductStockChangedEvent(String productId, int quantityChange) {
+    this.productId = productId;
+    this.quantityChange = quantityChange;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public int getQuantityChange() {
+    return quantityChange;
+  }
+}
@@ -0,0 +1,17 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class InvalidItemIdException extends ProductsException {
+
+  private static final String MESSAGE = "No valid item id on line %d of the items added to product %s, " +
+    "the items on the lines before it have been added";
+  private static final String TITLE = "Invalid Item Id";
+
+  public InvalidItemIdException(String productId, long lineNumber) {
+    super(String.format(MESSAGE, lineNumber, productId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
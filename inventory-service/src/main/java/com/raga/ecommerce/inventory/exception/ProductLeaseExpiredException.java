@@ -0,0 +1,16 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ProductLeaseExpiredException extends ProductsException {
+
+  private static final String MESSAGE = "Lease on product with id %s expired before the reservation could be saved";
+  private static final String TITLE = "Product Lease Expired";
+
+  public ProductLeaseExpiredException(String productId) {
+    super(String.format(MESSAGE, productId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
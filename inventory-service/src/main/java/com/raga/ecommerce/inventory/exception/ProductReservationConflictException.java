@@ -0,0 +1,17 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ProductReservationConflictException extends ProductsException {
+
+  private static final String MESSAGE = "Product with id %s could not be reserved after %d attempts " +
+    "because of concurrent reservations";
+  private static final String TITLE = "Product Reservation Conflict";
+
+  public ProductReservationConflictException(String productId, int attempts) {
+    super(String.format(MESSAGE, productId, attempts));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
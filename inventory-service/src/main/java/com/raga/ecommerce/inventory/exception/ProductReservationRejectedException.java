@@ -0,0 +1,16 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ProductReservationRejectedException extends ProductsException {
+
+  private static final String MESSAGE = "Reservation of product with id %s rejected, too many reservations are queued";
+  private static final String TITLE = "Product Reservation Rejected";
+
+  public ProductReservationRejectedException(String productId) {
+    super(String.format(MESSAGE, productId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
@@ -0,0 +1,16 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ProductReservedTwiceException extends ProductsException {
+
+  private static final String MESSAGE = "Product with id %s appears in more than one line of the reservation";
+  private static final String TITLE = "Product Reserved Twice";
+
+  public ProductReservedTwiceException(String productId) {
+    super(String.format(MESSAGE, productId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
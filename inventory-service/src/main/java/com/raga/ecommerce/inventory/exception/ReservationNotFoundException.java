@@ -0,0 +1,16 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ReservationNotFoundException extends ProductsException {
+
+  private static final String MESSAGE = "No reservation found for order with id: %s";
+  private static final String TITLE = "Reservation Not Found";
+
+  public ReservationNotFoundException(String orderId) {
+    super(String.format(MESSAGE, orderId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
@@ -0,0 +1,22 @@
+package com.raga.ecommerce.inventory.exception;
+
+public class ReservationThrottledException extends ProductsException {
+
+  private static final String MESSAGE = "Reservation throttled, too many reservations are in progress";
+  private static final String PRODUCT_MESSAGE =
+    "Reservation of product with id %s throttled, too many reservations of it are waiting";
+  private static final String TITLE = "Reservation Throttled";
+
+  public ReservationThrottledException() {
+    super(MESSAGE);
+  }
+
+  public ReservationThrottledException(String productId) {
+    super(String.format(PRODUCT_MESSAGE, productId));
+  }
+
+  @Override
+  public String getTitle() {
+    return TITLE;
+  }
+}
@@ -0,0 +1,358 @@
+package com.raga.ecommerce.inventory.hold;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.repository.ReservationRepository;
+import com.raga.ecommerce.inventory.reservation.ReservationStrategy;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Records every reservation by order and product. With a hold duration set,
+ * reservations are holds which release their items once they expire unless
+ * the order confirms them first. Expiries are kept on a timing wheel, so
+ * neither scheduling nor expiring a hold scans anything in the database.
+ * The wheel only knows the holds made by this instance, or present when it
+ * started, and a confirmed hold is only skipped once it comes due.
+ * Reservations are made once per order and product, a repeated one gets the
+ * recorded reservation back from a bounded cache of the recent ones or from
+ * the record itself, looked up in the database and timed as the lookup
+ * reservation phase. Reservations of the same order and product, single or
+ * part of a batch, exclude each other through a lock striped by order and
+ * product, so a retry running alongside the first attempt waits for it.
+ **/
+@Component
+public class ReservationHolds {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReservationHolds.class);
+  private static final int WHEEL_SIZE = 64;
+  private static final int RESERVATION_LOCK_STRIPES = 1024;
+
+  private final ReservationRepository reservationRepository;
+  private final ReservationStrategy reservationStrategy;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Duration holdDuration;
+  private final Duration retryDelay;
+  private final Clock clock;
+  private final TimingWheel<String> expiries;
+  private final Counter expired;
+  private final Cache<String, ReserveProductResponse> recentReservations;
+  private final Striped<Lock> reservationLocks;
+  private final Timer lookupTime;
+
+  @Autowired
+  public ReservationHolds(ReservationRepository reservationRepository, ReservationStrategy reservationStrategy,
+                          ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                          @Value("${inventory.reservation.hold.duration-millis:0}") long holdDurationMillis,
+                          @Value("${inventory.reservation.hold.tick-millis:1000}") long tickMillis,
+                          @Value("${inventory.reservation.dedupe.max-size:100000}") long dedupeMaxSize,
+                          @Value("${inventory.reservation.dedupe.ttl-millis:600000}") long dedupeTtlMillis) {
+    this(reservationRepository, reservationStrategy, eventPublisher, meterRegistry,
+      Duration.ofMillis(holdDurationMillis), tickMillis, dedupeMaxSize, Duration.ofMillis(dedupeTtlMillis),
+      Clock.systemUTC());
+  }
+
+  ReservationHolds(ReservationRepository reservationRepository, ReservationStrategy reservationStrategy,
+                   ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                   Duration holdDuration, long tickMillis, long dedupeMaxSize, Duration dedupeTtl, Clock clock) {
+    this.reservationRepository = reservationRepository;
+    this.reservationStrategy = reservationStrategy;
+    this.eventPublisher = eventPublisher;
+    this.holdDuration = holdDuration;
+    this.retryDelay = Duration.ofMillis(tickMillis * WHEEL_SIZE);
+    this.clock = clock;
+    this.expiries = new TimingWheel<>(tickMillis, WHEEL_SIZE, clock.millis());
+    this.expired = meterRegistry.counter("inventory.reservation.holds.expired");
+    meterRegistry.gauge("inventory.reservation.holds.pending", this, ReservationHolds::getPendingCount);
+    this.recentReservations = CacheBuilder.newBuilder()
+      .maximumSize(dedupeMaxSize)
+      .expireAfterWrite(dedupeTtl.toMillis(), TimeUnit.MILLISECONDS)
+      .build();
+    this.reservationLocks = Striped.lock(RESERVATION_LOCK_STRIPES);
+    this.lookupTime = Timer.builder("inventory.reservation.phase")
+      .tag("phase", "lookup")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+
+  public boolean isHolding() {
+    return !holdDuration.isZero();
+  }
+
+  /**
+   * Makes the reservation unless the order reserved the product already, in
+   * which case the recorded reservation is returned without touching the
+   * product. Repeated reservations made while the first one is running wait
+   * for its outcome. The reservation has to record itself.
+   **/
+  public ReserveProductResponse reserveOnce(String orderId, String productId,
+                                            Supplier<ReserveProductResponse> reservation) {
+    String reservationId = Reservation.idOf(orderId, productId);
+    Lock lock = reservationLocks.get(reservationId);
+
+    lock.lock();
+    try {
+      return recentReservations.get(reservationId, () -> findRecorded(reservationId).orElseGet(reservation));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Makes the reservations of the products the order did not reserve yet, in
+   * a single reservation given the ids of those products, and returns the
+   * recorded reservations of the others. Every product is held against
+   * reservations of the same order and product until the batch is done, so
+   * concurrent retries of the batch reserve each product once. The
+   * reservation has to record itself.
+   *
+   * @return the reservation of every product by product id
+   **/
+  public Map<String, ReserveProductResponse> reserveOnce(
+    String orderId, List<String> productIds, Function<List<String>, Map<String, ReserveProductResponse>> reservation) {
+    List<String> reservationIds = productIds.stream()
+      .map(productId -> Reservation.idOf(orderId, productId))
+      .collect(Collectors.toList());
+    List<Lock> locks = Lists.newArrayList(reservationLocks.bulkGet(reservationIds));
+
+    locks.forEach(Lock::lock);
+    try {
+      Map<String, ReserveProductResponse> responses = new HashMap<>();
+      List<String> productIdsToReserve = new ArrayList<>(productIds.size());
+
+      for (String productId : productIds) {
+        Optional<ReserveProductResponse> recorded = findRecent(Reservation.idOf(orderId, productId));
+
+        if (recorded.isPresent()) {
+          responses.put(productId, recorded.get());
+        } else {
+          productIdsToReserve.add(productId);
+        }
+      }
+
+      if (!productIdsToReserve.isEmpty()) {
+        Map<String, ReserveProductResponse> reserved = reservation.apply(productIdsToReserve);
+
+        reserved.forEach((productId, response) ->
+          recentReservations.put(Reservation.idOf(orderId, productId), response));
+        responses.putAll(reserved);
+      }
+
+      return responses;
+    } finally {
+      Lists.reverse(locks).forEach(Lock::unlock);
+    }
+  }
+
+  /**
+   * Records the items reserved by the order, as a hold if holds are enabled.
+   * The items are released if they cannot be recorded, see
+   * {@link #record(String, Map)}.
+   **/
+  public void record(String orderId, String productId, ReserveProductResponse response) {
+    record(orderId, Collections.singletonMap(productId, response));
+  }
+
+  /**
+   * Records the items reserved by the order for every product, as holds if
+   * holds are enabled. If any of them cannot be recorded, the items of every
+   * product are released and their records deleted before the failure is
+   * rethrown, so no item stays reserved without a record to release it and
+   * a retry reserves them again. The record of a product whose items cannot
+   * be released is kept, so the items stay tracked.
+   **/
+  public void record(String orderId, Map<String, ReserveProductResponse> reservations) {
+    try {
+      reservations.forEach((productId, response) -> write(orderId, productId, response));
+    } catch (RuntimeException e) {
+      reservations.forEach((productId, response) -> discard(orderId, productId, response, e));
+      throw e;
+    }
+  }
+
+  /**
+   * Makes the holds of the order permanent, holds which expired already are
+   * left to be released.
+   *
+   * @return the reservations of the order once confirmed
+   **/
+  public List<Reservation> confirm(String orderId) {
+    Instant now = clock.instant();
+
+    reservationRepository.confirmHolds(orderId, now);
+
+    return reservationRepository.findByOrderId(orderId)
+      .stream()
+      .filter(reservation -> !reservation.isExpiredAt(now))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Releases the items of every reservation of the order, found through the
+   * order id index, and deletes the reservations. Each product is released
+   * in a single write which also puts the items back into its available
+   * quantity.
+   *
+   * @return the reservations released
+   **/
+  public List<Reservation> release(String orderId) {
+    List<Reservation> reservations = reservationRepository.findByOrderId(orderId);
+
+    for (Reservation reservation : reservations) {
+      int released = reservationStrategy.releaseItems(orderId, reservation.getProductId(), reservation.getItems());
+
+      reservationRepository.deleteById(reservation.getId());
+      recentReservations.invalidate(reservation.getId());
+
+      if (released > 0) {
+        eventPublisher.publishEvent(new ProductStockChangedEvent(reservation.getProductId(), released));
+      }
+    }
+
+    return reservations;
+  }
+
+  @Scheduled(fixedDelayString = "${inventory.reservation.hold.tick-millis:1000}")
+  public void expireDueHolds() {
+    List<String> due;
+
+    synchronized (expiries) {
+      due = expiries.advanceTo(clock.millis());
+    }
+
+    due.forEach(this::expire);
+  }
+
+  /**
+   * Holds left by a previous run are scheduled again, those which expired
+   * meanwhile are released right away.
+   **/
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    try (Stream<Reservation> holds = reservationRepository.streamHolds()) {
+      holds.forEach(hold -> schedule(hold.getId(), hold.getExpiresAt()));
+    }
+
+    LOGGER.info("Loaded {} reservation holds", getPendingCount());
+    expireDueHolds();
+  }
+
+  public int getPendingCount() {
+    synchronized (expiries) {
+      return expiries.size();
+    }
+  }
+
+  private void write(String orderId, String productId, ReserveProductResponse response) {
+    Instant expiresAt = isHolding() ? clock.instant().plus(holdDuration) : null;
+
+    reservationRepository.addItems(orderId, productId, response.getItems(), response.getCurrentPrice(), expiresAt);
+
+    if (isHolding()) {
+      schedule(Reservation.idOf(orderId, productId), expiresAt);
+    }
+  }
+
+  private void discard(String orderId, String productId, ReserveProductResponse response, RuntimeException failure) {
+    try {
+      reservationStrategy.releaseItems(orderId, productId, response.getItems());
+      reservationRepository.deleteById(Reservation.idOf(orderId, productId));
+    } catch (RuntimeException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  private Optional<ReserveProductResponse> findRecent(String reservationId) {
+    ReserveProductResponse recent = recentReservations.getIfPresent(reservationId);
+
+    return Objects.nonNull(recent) ? Optional.of(recent) : findRecorded(reservationId);
+  }
+
+  private Optional<ReserveProductResponse> findRecorded(String reservationId) {
+    return lookupTime.record(() -> reservationRepository.findById(reservationId))
+      .map(reservation -> new ReserveProductResponse(reservation.getItems(), reservation.getPrice()));
+  }
+
+  private void schedule(String reservationId, Instant expiresAt) {
+    boolean scheduled;
+
+    synchronized (expiries) {
+      scheduled = expiries.schedule(reservationId, expiresAt.toEpochMilli());
+    }
+
+    if (!scheduled) {
+      expire(reservationId);
+    }
+  }
+
+  /**
+   * Items are released before the hold is deleted, releasing them again
+   * after a failure in between only skips them. A hold cannot be confirmed
+   * any more once it expired, so none of its items can be released while
+   * the order relies on them.
+   **/
+  private void expire(String reservationId) {
+    Instant now = clock.instant();
+
+    try {
+      reservationRepository.findById(reservationId)
+        .filter(reservation -> reservation.isExpiredAt(now))
+        .ifPresent(reservation -> {
+          int released = reservationStrategy.releaseItems(reservation.getOrderId(), reservation.getProductId(),
+            reservation.getItems());
+
+          reservationRepository.deleteExpired(reservationId, now);
+          recentReservations.invalidate(reservationId);
+          expired.increment();
+
+          if (released > 0) {
+            eventPublisher.publishEvent(new ProductStockChangedEvent(reservation.getProductId(), released));
+          }
+        });
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not release expired hold {}, retrying in {}", reservationId, retryDelay, e);
+
+      synchronized (expiries) {
+        expiries.schedule(reservationId, now.plus(retryDelay).toEpochMilli());
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.raga.ecommerce.inventory.hold;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Every level is a ring of buckets, a bucket of
+ * level n spanning wheelSize^n ticks. A value is put in the bucket of the
+ * lowest level able to hold its expiry, so scheduling takes constant time
+ * whatever the number of pending values. Whenever the clock enters a bucket
+ * of an upper level, its values are moved down to the levels below, and the
+ * values of the lowest level bucket of the current tick are due.
+ * Not thread safe, callers have to synchronize.
+ **/
+class TimingWheel<T> {
+
+  private final long tickMillis;
+  private final int wheelSize;
+  private final List<List<List<Entry<T>>>> levels;
+  private long currentTick;
+  private int size;
+
+  TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+    this.tickMillis = tickMillis;
+    this.wheelSize = wheelSize;
+    this.levels = new ArrayList<>();
+    this.currentTick = startMillis / tickMillis;
+  }
+
+  /**
+   * Schedules the value to be due at the first tick at or after its expiry.
+   *
+   * @return whether the value got scheduled, false if it is due already
+   **/
+  boolean schedule(T value, long expiresAtMillis) {
+    long tick = (expiresAtMillis + tickMillis - 1) / tickMillis;
+
+    if (!place(new Entry<>(value, tick))) {
+      return false;
+    }
+
+    size++;
+    return true;
+  }
+
+  /**
+   * Moves the clock to the given time.
+   *
+   * @return the values which became due, in no particular order
+   **/
+  List<T> advanceTo(long nowMillis) {
+    long targetTick = nowMillis / tickMillis;
+    List<T> due = new ArrayList<>();
+
+    while (currentTick < targetTick) {
+      currentTick++;
+      cascade(due);
+
+      List<Entry<T>> bucket = bucket(0, currentTick);
+      bucket.forEach(entry -> due.add(entry.value));
+      size -= bucket.size();
+      bucket.clear();
+    }
+
+    return due;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Moves the values of the upper level buckets the clock just entered down
+   * to the lower levels, from the top so that values can move down several
+   * levels at once.
+   **/
+  private void cascade(List<T> due) {
+    for (int level = levels.size() - 1; level > 0; level--) {
+      if (currentTick % span(level) == 0) {
+        List<Entry<T>> bucket = bucket(level, currentTick);
+        List<Entry<T>> entries = new ArrayList<>(bucket);
+        bucket.clear();
+
+        for (Entry<T> entry : entries) {
+          if (!place(entry)) {
+            due.add(entry.value);
+            size--;
+          }
+        }
+      }
+    }
+  }
+
+  private boolean place(Entry<T> entry) {
+    long ticksLeft = entry.tick - currentTick;
+
+    if (ticksLeft <= 0) {
+      return false;
+    }
+
+    int level = 0;
+    while (ticksLeft >= span(level + 1)) {
+      level++;
+    }
+
+    bucket(level, entry.tick).add(entry);
+    return true;
+  }
+
+  private List<Entry<T>> bucket(int level, long tick) {
+    while (levels.size() <= level) {
+      List<List<Entry<T>>> buckets = new ArrayList<>(wheelSize);
+      for (int index = 0; index < wheelSize; index++) {
+        buckets.add(new ArrayList<>());
+      }
+      levels.add(buckets);
+    }
+
+    return levels.get(level).get((int) ((tick / span(level)) % wheelSize));
+  }
+
+  /**
+   * Number of ticks spanned by a bucket of the level.
+   **/
+  private long span(int level) {
+    long span = 1;
+    for (int index = 0; index < level; index++) {
+      span *= wheelSize;
+    }
+    return span;
+  }
+
+  private static class Entry<T> {
+
+    private final T value;
+    private final long tick;
+
+    private Entry(T value, long tick) {
+      this.value = value;
+      this.tick = tick;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.raga.ecommerce.inventory.lock;
+
+/**
+ * Product among the most contended ones, with an upper and a lower bound of
+ * the number of times a request had to wait for its lock.
+ **/
+public class ContendedProduct {
+
+  private final String productId;
+  private final long contentions;
+  private final long guaranteedContentions;
+
+  public ContendedProduct(String productId, long contentions, long guaranteedContentions) {
+    this.productId = productId;
+    this.contentions = contentions;
+    this.guaranteedContentions = guaranteedContentions;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public long getContentions() {
+    return contentions;
+  }
+
+  public long getGuaranteedContentions() {
+    return guaranteedContentions;
+  }
+}
@@ -0,0 +1,40 @@
+package com.raga.ecommerce.inventory.lock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Actuator endpoint listing the products whose lock is contended the most,
+ * counted since the start or the last reset, which is done by a delete so
+ * that a count covers the incident being looked at only.
+ **/
+@Component
+@Endpoint(id = "contention")
+public class ContentionEndpoint {
+
+  private static final int DEFAULT_LIMIT = 10;
+
+  private final ProductReservationLockManager productReservationLockManager;
+
+  @Autowired
+  public ContentionEndpoint(ProductReservationLockManager productReservationLockManager) {
+    this.productReservationLockManager = productReservationLockManager;
+  }
+
+  @ReadOperation
+  public List<ContendedProduct> mostContended(@Nullable Integer limit) {
+    return productReservationLockManager.getMostContended(Objects.isNull(limit) ? DEFAULT_LIMIT : limit);
+  }
+
+  @DeleteOperation
+  public void reset() {
+    productReservationLockManager.resetContention();
+  }
+}
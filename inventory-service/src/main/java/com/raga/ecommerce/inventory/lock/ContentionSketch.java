@@ -0,0 +1,89 @@
+package com.raga.ecommerce.inventory.lock;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Space-Saving sketch of the products whose lock is contended the most. It
+ * counts contentions for a fixed number of products at most, a product not
+ * counted yet takes over the counter of the least contended one and inherits
+ * its count, which it may overestimate by that much. A product contended more
+ * often than the total contentions over the number of counters is always
+ * among the counted ones.
+ **/
+class ContentionSketch {
+
+  private final int capacity;
+  private final Map<String, ContentionCounter> counters;
+
+  ContentionSketch(int capacity) {
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+  }
+
+  /**
+   * Only called on contention, while the caller is about to wait for the lock
+   * anyway, so that looking for the least contended product does not slow
+   * down the acquisitions which do not wait.
+   **/
+  synchronized void add(String productId) {
+    ContentionCounter counter = counters.get(productId);
+
+    if (Objects.isNull(counter)) {
+      if (counters.size() < capacity) {
+        counter = new ContentionCounter(0);
+      } else {
+        ContentionCounter evicted = counters.remove(leastContended());
+        counter = new ContentionCounter(evicted.count);
+      }
+      counters.put(productId, counter);
+    }
+
+    counter.count++;
+  }
+
+  synchronized List<ContendedProduct> top(int limit) {
+    return counters.entrySet()
+      .stream()
+      .map(entry -> new ContendedProduct(entry.getKey(), entry.getValue().count,
+        entry.getValue().count - entry.getValue().overestimate))
+      .sorted(Comparator.comparingLong(ContendedProduct::getContentions).reversed()
+        .thenComparing(ContendedProduct::getProductId))
+      .limit(limit)
+      .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  synchronized void clear() {
+    counters.clear();
+  }
+
+  private String leastContended() {
+    String leastContended = null;
+    long leastCount = Long.MAX_VALUE;
+
+    for (Map.Entry<String, ContentionCounter> entry : counters.entrySet()) {
+      if (entry.getValue().count < leastCount) {
+        leastContended = entry.getKey();
+        leastCount = entry.getValue().count;
+      }
+    }
+
+    return leastContended;
+  }
+
+  private static class ContentionCounter {
+
+    private final long overestimate;
+    private long count;
+
+    private ContentionCounter(long count) {
+      this.overestimate = count;
+      this.count = count;
+    }
+  }
+}
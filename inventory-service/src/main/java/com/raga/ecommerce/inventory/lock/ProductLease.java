@@ -0,0 +1,34 @@
+package com.raga.ecommerce.inventory.lock;
+
+import java.time.Instant;
+
+public class ProductLease {
+
+  private final String productId;
+  private final long fencingToken;
+  private final Instant acquiredAt;
+  private final Instant expiresAt;
+
+  public ProductLease(String productId, long fencingToken, Instant acquiredAt, Instant expiresAt) {
+    this.productId = productId;
+    this.fencingToken = fencingToken;
+    this.acquiredAt = acquiredAt;
+    this.expiresAt = expiresAt;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public long getFencingToken() {
+    return fencingToken;
+  }
+
+  public Instant getAcquiredAt() {
+    return acquiredAt;
+  }
+
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+}
@@ -0,0 +1,128 @@
+package com.raga.ecommerce.inventory.lock;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.repository.ProductReservationLockLogRepository;
+import com.raga.ecommerce.inventory.vo.ProductReservationLockLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hands out leases on products shared by all inventory instances through the
+ * product reservation lock log collection. A lease is taken over once it
+ * expired, so a crashed instance blocks a product for one lease duration at
+ * most. Every lease comes with a fencing token greater than the one of any
+ * earlier lease, which writes check so that an instance whose lease expired
+ * while it was paused cannot overwrite the work of the next holder.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "lease")
+public class ProductLeaseManager {
+
+  private static final long MAX_BACK_OFF_MILLIS = 50;
+
+  private final ProductReservationLockLogRepository lockLogRepository;
+  private final Clock clock;
+  private final String owner;
+  private final Duration leaseDuration;
+  private final Duration acquireTimeout;
+  private final Counter acquisitions;
+  private final Counter steals;
+  private final Counter contentions;
+  private final Timer holds;
+
+  @Autowired
+  public ProductLeaseManager(ProductReservationLockLogRepository lockLogRepository, MeterRegistry meterRegistry,
+                             @Value("${inventory.reservation.lease.duration-millis:5000}") long leaseDurationMillis,
+                             @Value("${inventory.reservation.lease.acquire-timeout-millis:2000}") long acquireTimeoutMillis) {
+    this(lockLogRepository, meterRegistry, Clock.systemUTC(), UUID.randomUUID().toString(),
+      Duration.ofMillis(leaseDurationMillis), Duration.ofMillis(acquireTimeoutMillis));
+  }
+
+  ProductLeaseManager(ProductReservationLockLogRepository lockLogRepository, MeterRegistry meterRegistry, Clock clock,
+                      String owner, Duration leaseDuration, Duration acquireTimeout) {
+    this.lockLogRepository = lockLogRepository;
+    this.clock = clock;
+    this.owner = owner;
+    this.leaseDuration = leaseDuration;
+    this.acquireTimeout = acquireTimeout;
+    this.acquisitions = meterRegistry.counter("inventory.lease.acquisitions");
+    this.steals = meterRegistry.counter("inventory.lease.steals");
+    this.contentions = meterRegistry.counter("inventory.lease.contentions");
+    this.holds = meterRegistry.timer("inventory.lease.holds");
+  }
+
+  /**
+   * Takes over the lease of the product if it is free or expired, creating it
+   * for products never leased before, and retries with a random back off until
+   * the acquire timeout otherwise.
+   **/
+  public ProductLease acquire(String orderId, String productId) {
+    Instant deadline = clock.instant().plus(acquireTimeout);
+
+    for (int attempt = 1; ; attempt++) {
+      Instant now = clock.instant();
+      Instant expiresAt = now.plus(leaseDuration);
+      LocalDateTime lockedAt = LocalDateTime.ofInstant(now, clock.getZone());
+
+      Optional<ProductReservationLockLog> previous = lockLogRepository.takeOverExpired(
+        productId, orderId, owner, lockedAt, now, expiresAt);
+
+      if (previous.isPresent()) {
+        if (Objects.nonNull(previous.get().getOwner())) {
+          steals.increment();
+        }
+        return acquired(productId, previous.get().getFencingToken() + 1, now, expiresAt);
+      }
+
+      ProductReservationLockLog firstLease = new ProductReservationLockLog(productId, orderId,
+        lockedAt, owner, 1, expiresAt);
+
+      if (lockLogRepository.insertIfAbsent(firstLease)) {
+        return acquired(productId, 1, now, expiresAt);
+      }
+
+      contentions.increment();
+
+      if (!clock.instant().isBefore(deadline)) {
+        throw new ProductReservationConflictException(productId, attempt);
+      }
+
+      backOff(productId, attempt);
+    }
+  }
+
+  public void release(ProductLease lease) {
+    lockLogRepository.release(lease.getProductId(), lease.getFencingToken());
+    holds.record(Duration.between(lease.getAcquiredAt(), clock.instant()));
+  }
+
+  private ProductLease acquired(String productId, long fencingToken, Instant now, Instant expiresAt) {
+    acquisitions.increment();
+    return new ProductLease(productId, fencingToken, now, expiresAt);
+  }
+
+  private void backOff(String productId, int attempt) {
+    long maxMillis = Math.min(MAX_BACK_OFF_MILLIS, 1L << Math.min(attempt, 6));
+
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(1, maxMillis + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProductReservationConflictException(productId, attempt);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.raga.ecommerce.inventory.lock;
+
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+
+/**
+ * Lock of a product handed out by {@link ProductReservationLockManager}. Each
+ * time it is handed out it carries a reference on the lock, which unlock
+ * gives back, so it must be locked and unlocked exactly once per time it was
+ * handed out, unless lock throws a {@link ReservationThrottledException},
+ * which gives the reference back itself. Locking is reentrant.
+ **/
+public interface ProductLock {
+
+  void lock();
+
+  void unlock();
+}
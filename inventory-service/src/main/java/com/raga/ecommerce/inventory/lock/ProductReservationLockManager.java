@@ -1,27 +1,170 @@
 package com.raga.ecommerce.inventory.lock;
 
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Registry of per product locks. A lock is registered when the first request
+ * for a product asks for it and evicted as soon as no request refers to it any
+ * more, so the registry only holds locks of products being reserved right now.
+ * How long requests wait for a lock and hold it is recorded as histograms, and
+ * the products requests had to wait for the most are kept in a sketch of
+ * bounded size.
+ * Waiting is bounded too, a request is throttled if too many requests wait
+ * for the product already or if it does not get the lock in time, so that a
+ * hot product cannot hold every request thread.
+ **/
 @Service
 public class ProductReservationLockManager {
 
-  private final Map<String, Lock> locks;
+  private final ConcurrentMap<String, ReferencedLock> locks;
+  private final ContentionSketch contention;
+  private final long acquireTimeoutNanos;
+  private final int maxWaitersPerProduct;
+  private final Counter acquisitions;
+  private final Counter waits;
+  private final Counter waiterRejections;
+  private final Counter timeoutRejections;
+  private final Timer waitTime;
+  private final Timer holdTime;
 
-  private ProductReservationLockManager() {
-    locks = new HashMap<>();
+  @Autowired
+  public ProductReservationLockManager(MeterRegistry meterRegistry,
+                                       @Value("${inventory.lock.contention.sketch-size:64}") int contentionSketchSize,
+                                       @Value("${inventory.lock.acquire-timeout-millis:2000}") long acquireTimeoutMillis,
+                                       @Value("${inventory.lock.max-waiters-per-product:50}") int maxWaitersPerProduct) {
+    this.locks = new ConcurrentHashMap<>();
+    this.contention = new ContentionSketch(contentionSketchSize);
+    this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+    this.maxWaitersPerProduct = maxWaitersPerProduct;
+    this.acquisitions = meterRegistry.counter("inventory.lock.acquisitions");
+    this.waits = meterRegistry.counter("inventory.lock.waits");
+    this.waiterRejections = meterRegistry.counter("inventory.lock.rejections", "reason", "waiters");
+    this.timeoutRejections = meterRegistry.counter("inventory.lock.rejections", "reason", "timeout");
+    this.waitTime = Timer.builder("inventory.lock.wait.time")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    this.holdTime = Timer.builder("inventory.lock.hold.time")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    meterRegistry.gauge("inventory.lock.live", locks, Map::size);
   }
 
-  public Lock getLock(String productId) {
-    if (!locks.containsKey(productId)) {
-      Lock lock = new ReentrantLock();
-      locks.put(productId, lock);
+  /**
+   * Every call takes a reference on the lock of the product, see
+   * {@link ProductLock}.
+   **/
+  public ProductLock getLock(String productId) {
+    return locks.compute(productId, (id, existingLock) -> {
+      ReferencedLock lock = Objects.isNull(existingLock) ? new ReferencedLock(id) : existingLock;
+      lock.references++;
+      return lock;
+    });
+  }
+
+  public int getLiveLockCount() {
+    return locks.size();
+  }
+
+  /**
+   * Products requests had to wait for the most, most contended first. Their
+   * counts may be overestimated, by no more than their guaranteed count falls
+   * short of it.
+   **/
+  public List<ContendedProduct> getMostContended(int limit) {
+    return contention.top(limit);
+  }
+
+  public void resetContention() {
+    contention.clear();
+  }
+
+  private void release(ReferencedLock lock) {
+    locks.computeIfPresent(lock.productId, (id, existingLock) -> --existingLock.references == 0 ? null : existingLock);
+  }
+
+  private class ReferencedLock implements ProductLock {
+
+    private final String productId;
+    private final ReentrantLock lock;
+    private final AtomicInteger waiters;
+
+    // Only read and written inside compute calls of the registry for this product
+    private int references;
+
+    // Only read and written by the thread holding the lock
+    private long lockedAt;
+
+    private ReferencedLock(String productId) {
+      this.productId = productId;
+      this.lock = new ReentrantLock();
+      this.waiters = new AtomicInteger();
     }
 
-    return locks.get(productId);
+    @Override
+    public void lock() {
+      long start = System.nanoTime();
+
+      if (!lock.tryLock()) {
+        waits.increment();
+        contention.add(productId);
+        awaitLock();
+      }
+
+      acquisitions.increment();
+
+      if (lock.getHoldCount() == 1) {
+        lockedAt = System.nanoTime();
+        waitTime.record(lockedAt - start, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    private void awaitLock() {
+      if (waiters.incrementAndGet() > maxWaitersPerProduct) {
+        waiters.decrementAndGet();
+        throw rejected(waiterRejections);
+      }
+
+      try {
+        if (!lock.tryLock(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+          throw rejected(timeoutRejections);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw rejected(timeoutRejections);
+      } finally {
+        waiters.decrementAndGet();
+      }
+    }
+
+    private ReservationThrottledException rejected(Counter rejections) {
+      rejections.increment();
+      release(this);
+      return new ReservationThrottledException(productId);
+    }
+
+    @Override
+    public void unlock() {
+      if (lock.isHeldByCurrentThread() && lock.getHoldCount() == 1) {
+        holdTime.record(System.nanoTime() - lockedAt, TimeUnit.NANOSECONDS);
+      }
+
+      lock.unlock();
+      release(this);
+    }
   }
 }
@@ -0,0 +1,69 @@
+package com.raga.ecommerce.inventory.migration;
+
+import com.google.common.collect.Lists;
+import com.raga.ecommerce.inventory.repository.ProductItemRepository;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves the items embedded in product documents to the product item
+ * collection used by the item-collection reservation strategy. Items are
+ * copied in batches, skipping the ones copied by an earlier run, before the
+ * embedded items are emptied, so an interrupted migration can be run again.
+ * Reservations have to be stopped while it runs.
+ **/
+@Component
+@ConditionalOnProperty(name = "inventory.storage.migrate-items-to-collection", havingValue = "true")
+public class ItemCollectionMigration implements ApplicationRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ItemCollectionMigration.class);
+
+  private final ProductRepository productRepository;
+  private final ProductItemRepository productItemRepository;
+  private final int batchSize;
+
+  @Autowired
+  public ItemCollectionMigration(ProductRepository productRepository, ProductItemRepository productItemRepository,
+                                 @Value("${inventory.storage.migration-batch-size:1000}") int batchSize) {
+    this.productRepository = productRepository;
+    this.productItemRepository = productItemRepository;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    try (Stream<Product> products = productRepository.findAllWithEmbeddedItems()) {
+      products.forEach(this::migrate);
+    }
+  }
+
+  private void migrate(Product product) {
+    int inserted = 0;
+
+    for (List<Item> batch : Lists.partition(product.getItems(), batchSize)) {
+      inserted += productItemRepository.insertIfAbsent(batch.stream()
+        .map(item -> new ProductItem(product.getProductId(), item.getItemId(), item.getReservedByOrderId()))
+        .collect(Collectors.toList()));
+    }
+
+    if (productRepository.clearEmbeddedItems(product)) {
+      LOGGER.info("Moved {} items of product {} to the product item collection", inserted, product.getProductId());
+    } else {
+      LOGGER.warn("Items of product {} changed while being moved, run the migration again", product.getProductId());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.raga.ecommerce.inventory.migration;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Persists the available quantity and unreserved cursor of products saved
+ * before they existed. Conditional updates such as the ones of the
+ * atomic-update reservation strategy rely on them being stored.
+ **/
+@Component
+public class ItemIndexMigration implements ApplicationRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ItemIndexMigration.class);
+
+  private final ProductRepository productRepository;
+
+  @Autowired
+  public ItemIndexMigration(ProductRepository productRepository) {
+    this.productRepository = productRepository;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    AtomicInteger migrated = new AtomicInteger();
+
+    try (Stream<Product> products = productRepository.findAllWithoutItemIndex()) {
+      products.forEach(product -> {
+        productRepository.initializeItemIndex(product);
+        migrated.incrementAndGet();
+      });
+    }
+
+    if (migrated.get() > 0) {
+      LOGGER.info("Initialized item index of {} products", migrated.get());
+    }
+  }
+}
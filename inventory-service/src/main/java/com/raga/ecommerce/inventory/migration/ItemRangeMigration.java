@@ -0,0 +1,67 @@
+package com.raga.ecommerce.inventory.migration;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.reservation.AtomicUpdateReservationStrategy;
+import com.raga.ecommerce.inventory.reservation.FlashSaleReservationStrategy;
+import com.raga.ecommerce.inventory.reservation.ReservationStrategy;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores the embedded items of products as ranges of item ids. A product is
+ * only written if every item is still reserved by the order it was encoded
+ * with and no item got added, otherwise it is skipped, so the migration can
+ * run alongside reservations and be run again for the products it skipped.
+ * Only the strategies writing back the whole product document can reserve
+ * the migrated products, the application refuses to start with the migration
+ * enabled along with a strategy reserving items by position.
+ **/
+@Component
+@ConditionalOnProperty(name = "inventory.storage.encode-item-ranges", havingValue = "true")
+public class ItemRangeMigration implements ApplicationRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ItemRangeMigration.class);
+
+  private final ProductRepository productRepository;
+
+  @Autowired
+  public ItemRangeMigration(ProductRepository productRepository, List<ReservationStrategy> reservationStrategies) {
+    reservationStrategies.stream()
+      .filter(strategy -> strategy instanceof AtomicUpdateReservationStrategy
+        || strategy instanceof FlashSaleReservationStrategy)
+      .findFirst()
+      .ifPresent(strategy -> {
+        throw new IllegalStateException(String.format(
+          "Items cannot be stored as ranges with %s, which reserves items by position",
+          strategy.getClass().getSimpleName()));
+      });
+    this.productRepository = productRepository;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    try (Stream<Product> products = productRepository.findAllWithEmbeddedItems()) {
+      products.forEach(this::migrate);
+    }
+  }
+
+  private void migrate(Product product) {
+    product.encodeItemRanges();
+
+    if (productRepository.saveItemRanges(product)) {
+      LOGGER.info("Stored {} items of product {} as {} ranges", product.getItemCount(), product.getProductId(),
+        product.getItemRanges().getRanges().size());
+    } else {
+      LOGGER.warn("Items of product {} changed while being encoded, run the migration again", product.getProductId());
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.ProductItem;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface ProductItemRepository extends MongoRepository<ProductItem, String>, ProductItemRepositoryCustom {
+
+  List<ProductItem> findByProductIdAndReservedByOrderId(String productId, String reservedByOrderId);
+}
@@ -0,0 +1,33 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.ProductItem;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductItemRepositoryCustom {
+
+  /**
+   * Atomically reserves any unreserved item of the product for the order.
+   **/
+  Optional<ProductItem> reserveAnyItem(String productId, String orderId);
+
+  /**
+   * Makes the given items of the product unreserved again.
+   **/
+  void unreserveItems(String productId, List<String> itemIds);
+
+  /**
+   * Releases the given items which are reserved by the order.
+   *
+   * @return the number of items released
+   **/
+  int releaseItems(String productId, String orderId, List<String> itemIds);
+
+  /**
+   * Inserts the items, skipping the ones the product has already.
+   *
+   * @return the number of items inserted
+   **/
+  int insertIfAbsent(List<ProductItem> items);
+}
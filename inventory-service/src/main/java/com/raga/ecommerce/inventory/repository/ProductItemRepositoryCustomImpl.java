@@ -0,0 +1,68 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.ProductItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ProductItemRepositoryCustomImpl implements ProductItemRepositoryCustom {
+
+  private static final int DUPLICATE_KEY_ERROR = 11000;
+
+  private final MongoTemplate mongoTemplate;
+
+  @Autowired
+  public ProductItemRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Optional<ProductItem> reserveAnyItem(String productId, String orderId) {
+    return Optional.ofNullable(mongoTemplate.findAndModify(
+      query(where("productId").is(productId).and("reservedByOrderId").is(null)),
+      new Update().set("reservedByOrderId", orderId),
+      options().returnNew(true), ProductItem.class));
+  }
+
+  @Override
+  public void unreserveItems(String productId, List<String> itemIds) {
+    mongoTemplate.updateMulti(query(where("productId").is(productId).and("itemId").in(itemIds)),
+      new Update().unset("reservedByOrderId"), ProductItem.class);
+  }
+
+  @Override
+  public int releaseItems(String productId, String orderId, List<String> itemIds) {
+    return (int) mongoTemplate.updateMulti(
+      query(where("productId").is(productId).and("itemId").in(itemIds).and("reservedByOrderId").is(orderId)),
+      new Update().unset("reservedByOrderId"), ProductItem.class)
+      .getModifiedCount();
+  }
+
+  @Override
+  public int insertIfAbsent(List<ProductItem> items) {
+    try {
+      return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductItem.class)
+        .insert(items)
+        .execute()
+        .getInsertedCount();
+
+    } catch (BulkOperationException e) {
+      boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+
+      if (!onlyDuplicates) {
+        throw e;
+      }
+
+      return e.getResult().getInsertedCount();
+    }
+  }
+}
@@ -1,11 +1,59 @@
 package com.raga.ecommerce.inventory.repository;
 
 import com.raga.ecommerce.inventory.vo.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
 
   Optional<Product> findByProductId(String productId);
+
+  String AVAILABLE_PRODUCTS = "{ $or: [ { availableQuantity: { $gt: 0 } }, " +
+    "{ availableQuantity: { $exists: false }, items: { $elemMatch: { reservedByOrderId: null } } } ] }";
+  String AVAILABLE_PRODUCTS_AFTER = "{ _id: { $gt: ?0 }, $or: [ { availableQuantity: { $gt: 0 } }, " +
+    "{ availableQuantity: { $exists: false }, items: { $elemMatch: { reservedByOrderId: null } } } ] }";
+  String CATALOG_FIELDS = "{ productName: 1, price: 1 }";
+  String AVAILABILITY_FIELDS = "{ productName: 1, price: 1, availableQuantity: 1, unreservedCursor: 1 }";
+
+  /**
+   * Products with at least one unreserved item, holding only their id, name
+   * and price. Products saved before the available quantity was stored are
+   * matched on their embedded items.
+   **/
+  @Query(value = AVAILABLE_PRODUCTS, fields = CATALOG_FIELDS)
+  List<Product> findAvailableProducts();
+
+  /**
+   * Page of the available products whose id comes after the given one, in
+   * product id order, so that each page is read straight off the id index.
+   **/
+  @Query(value = AVAILABLE_PRODUCTS_AFTER, fields = CATALOG_FIELDS)
+  List<Product> findAvailableProductsAfter(String productId, Pageable pageable);
+
+  /**
+   * Available products read off a database cursor, the stream has to be closed.
+   **/
+  @Query(value = AVAILABLE_PRODUCTS, fields = CATALOG_FIELDS)
+  Stream<Product> streamAvailableProducts();
+
+  /**
+   * Available products holding their id, name, price and available quantity
+   * only, the stream has to be closed.
+   **/
+  @Query(value = AVAILABLE_PRODUCTS, fields = AVAILABILITY_FIELDS)
+  Stream<Product> streamProductAvailability();
+
+  @Query(value = "{ _id: ?0 }", fields = AVAILABILITY_FIELDS)
+  Optional<Product> findAvailabilityByProductId(String productId);
+
+  @Query("{ availableQuantity: { $exists: false } }")
+  Stream<Product> findAllWithoutItemIndex();
+
+  @Query("{ 'items.0': { $exists: true } }")
+  Stream<Product> findAllWithEmbeddedItems();
 }
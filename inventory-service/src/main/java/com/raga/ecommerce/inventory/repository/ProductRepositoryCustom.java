@@ -0,0 +1,120 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+  /**
+   * Marks the items at the given positions as reserved by the order in a
+   * single atomic update, which only applies if the price of the product has
+   * not changed, none of the given items has been reserved and neither the
+   * available quantity nor the unreserved cursor has changed since the product
+   * was read. The positions must be the first unreserved ones from the cursor,
+   * which is moved past the last of them, so an item released in the meantime
+   * cannot be left behind the cursor.
+   *
+   * @return whether the items got reserved
+   **/
+  boolean reserveItems(Product product, List<Integer> positions, String orderId);
+
+  /**
+   * Marks the items at the given positions as reserved by the order in a
+   * single atomic update, which only applies if the price of the product has
+   * not changed, enough items are available and none of the given items has
+   * been reserved since the product was read. The positions may be any, so
+   * the unreserved cursor is left where it is, unreserved items may be left
+   * behind the positions but never behind the cursor.
+   *
+   * @return whether the items got reserved
+   **/
+  boolean reserveItemsOutOfOrder(Product product, List<Integer> positions, String orderId);
+
+  /**
+   * Gives back the items at the given positions which the order reserved, in
+   * a single atomic update which also adds them to the available quantity.
+   *
+   * @return whether the items got released
+   **/
+  boolean releaseItems(String productId, List<Integer> positions, String orderId);
+
+  /**
+   * Replaces all the products in a single bulk write. Products are written
+   * independently of each other, so they have to be kept from changing by
+   * other means while they are written.
+   **/
+  void saveInBulk(Collection<Product> products);
+
+  /**
+   * Persists the available quantity and the unreserved cursor of a product
+   * saved before they were introduced, unless another instance did already.
+   **/
+  void initializeItemIndex(Product product);
+
+  /**
+   * Records the fencing token on the product unless a greater one has been
+   * recorded already, so that writes with an earlier token are refused from
+   * now on. Has to be done before the product is read for a fenced write.
+   *
+   * @return whether the product carries the given token
+   **/
+  boolean fence(String productId, long fencingToken);
+
+  /**
+   * Replaces the product if it still carries the given fencing token, that
+   * is if no later lease fenced it since it was read.
+   *
+   * @return whether the product got written
+   **/
+  boolean saveFenced(Product product, long fencingToken);
+
+  /**
+   * Takes the quantity off the available quantity of the product if its price
+   * has not changed and enough items are available.
+   *
+   * @return whether the quantity got taken
+   **/
+  boolean takeAvailableQuantity(Product product, int quantity);
+
+  /**
+   * Adds the quantity to the available quantity of the product.
+   **/
+  void addAvailableQuantity(String productId, int quantity);
+
+  /**
+   * Appends the items to the embedded items of the product and adds them to
+   * its available quantity in a single atomic update, so that the items
+   * already there are not written again. Only applies to products storing
+   * their available quantity and no item ranges.
+   *
+   * @return whether the items got added
+   **/
+  boolean pushItems(String productId, List<String> itemIds);
+
+  /**
+   * Same as {@link #pushItems} unless the product has been written with a
+   * greater fencing token already, and records the given token on it.
+   *
+   * @return whether the items got added
+   **/
+  boolean pushItemsFenced(String productId, List<String> itemIds, long fencingToken);
+
+  /**
+   * Empties the embedded items of a product whose items have been copied to
+   * the product item collection, unless items got added in the meantime.
+   *
+   * @return whether the items got emptied
+   **/
+  boolean clearEmbeddedItems(Product product);
+
+  /**
+   * Stores the item ranges of a product in place of its embedded items,
+   * unless items got added, reserved or released in the meantime. The write
+   * is conditional on the order reserving every item as it was encoded.
+   *
+   * @return whether the item ranges got stored
+   **/
+  boolean saveItemRanges(Product product);
+}
@@ -0,0 +1,220 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Updates.set;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+  private static final String RESERVED_BY_ORDER_ID_FIELD = "items.%d.reservedByOrderId";
+  private static final String FENCING_TOKEN_FIELD = "fencingToken";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Autowired
+  public ProductRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public boolean reserveItems(Product product, List<Integer> positions, String orderId) {
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("price").is(product.getPrice())
+      .and("availableQuantity").is(product.getAvailableQuantity())
+      .and("unreservedCursor").is(product.getUnreservedCursor());
+
+    Update update = new Update()
+      .set("unreservedCursor", positions.get(positions.size() - 1) + 1);
+
+    return reserveAt(criteria, update, positions, orderId);
+  }
+
+  @Override
+  public boolean reserveItemsOutOfOrder(Product product, List<Integer> positions, String orderId) {
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("price").is(product.getPrice())
+      .and("availableQuantity").gte(positions.size());
+
+    return reserveAt(criteria, new Update(), positions, orderId);
+  }
+
+  @Override
+  public boolean releaseItems(String productId, List<Integer> positions, String orderId) {
+    Criteria criteria = where("productId").is(productId);
+
+    Update update = new Update()
+      .inc("availableQuantity", positions.size())
+      .min("unreservedCursor", Collections.min(positions));
+
+    for (int position : positions) {
+      String field = String.format(RESERVED_BY_ORDER_ID_FIELD, position);
+      criteria.and(field).is(orderId);
+      update.unset(field);
+    }
+
+    return mongoTemplate.updateFirst(query(criteria), update, Product.class).getModifiedCount() == 1;
+  }
+
+  @Override
+  public void saveInBulk(Collection<Product> products) {
+    if (products.isEmpty()) {
+      return;
+    }
+
+    List<ReplaceOneModel<Document>> replacements = products.stream()
+      .map(product -> new ReplaceOneModel<>(eq("_id", product.getProductId()), toDocument(product)))
+      .collect(Collectors.toList());
+
+    productCollection().bulkWrite(replacements, new BulkWriteOptions().ordered(false));
+  }
+
+  @Override
+  public void initializeItemIndex(Product product) {
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("availableQuantity").exists(false);
+
+    Update update = new Update()
+      .set("availableQuantity", product.getAvailableQuantity())
+      .set("unreservedCursor", product.getUnreservedCursor());
+
+    mongoTemplate.updateFirst(query(criteria), update, Product.class);
+  }
+
+  @Override
+  public boolean fence(String productId, long fencingToken) {
+    Bson notFencedByLaterLease = and(eq("_id", productId),
+      or(lte(FENCING_TOKEN_FIELD, fencingToken), exists(FENCING_TOKEN_FIELD, false)));
+
+    return productCollection()
+      .updateOne(notFencedByLaterLease, set(FENCING_TOKEN_FIELD, fencingToken))
+      .getMatchedCount() == 1;
+  }
+
+  @Override
+  public boolean saveFenced(Product product, long fencingToken) {
+    Document document = toDocument(product);
+    document.put(FENCING_TOKEN_FIELD, fencingToken);
+
+    return productCollection()
+      .replaceOne(and(eq("_id", product.getProductId()), eq(FENCING_TOKEN_FIELD, fencingToken)), document)
+      .getMatchedCount() == 1;
+  }
+
+  @Override
+  public boolean takeAvailableQuantity(Product product, int quantity) {
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("price").is(product.getPrice())
+      .and("availableQuantity").gte(quantity);
+
+    return mongoTemplate.updateFirst(query(criteria), new Update().inc("availableQuantity", -quantity), Product.class)
+      .getModifiedCount() == 1;
+  }
+
+  @Override
+  public void addAvailableQuantity(String productId, int quantity) {
+    mongoTemplate.updateFirst(query(where("productId").is(productId)),
+      new Update().inc("availableQuantity", quantity), Product.class);
+  }
+
+  @Override
+  public boolean pushItems(String productId, List<String> itemIds) {
+    return mongoTemplate.updateFirst(query(pushableProduct(productId)), pushUpdate(itemIds), Product.class)
+      .getModifiedCount() == 1;
+  }
+
+  @Override
+  public boolean pushItemsFenced(String productId, List<String> itemIds, long fencingToken) {
+    Criteria criteria = pushableProduct(productId).orOperator(
+      where(FENCING_TOKEN_FIELD).lte(fencingToken), where(FENCING_TOKEN_FIELD).exists(false));
+
+    return mongoTemplate.updateFirst(query(criteria), pushUpdate(itemIds).set(FENCING_TOKEN_FIELD, fencingToken),
+      Product.class).getModifiedCount() == 1;
+  }
+
+  @Override
+  public boolean clearEmbeddedItems(Product product) {
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("items").size(product.getItemCount());
+
+    Update update = new Update()
+      .set("items", new ArrayList<>())
+      .set("availableQuantity", product.getAvailableQuantity())
+      .set("unreservedCursor", 0);
+
+    return mongoTemplate.updateFirst(query(criteria), update, Product.class).getModifiedCount() == 1;
+  }
+
+  @Override
+  public boolean saveItemRanges(Product product) {
+    List<Item> items = product.getItems();
+    Criteria criteria = where("productId").is(product.getProductId())
+      .and("items").size(items.size());
+
+    for (int position = 0; position < items.size(); position++) {
+      criteria.and(String.format(RESERVED_BY_ORDER_ID_FIELD, position)).is(items.get(position).getReservedByOrderId());
+    }
+
+    Update update = new Update()
+      .set("itemRanges", product.getItemRanges())
+      .set("items", new ArrayList<>());
+
+    return mongoTemplate.updateFirst(query(criteria), update, Product.class).getModifiedCount() == 1;
+  }
+
+  private boolean reserveAt(Criteria criteria, Update update, List<Integer> positions, String orderId) {
+    update.inc("availableQuantity", -positions.size());
+
+    for (int position : positions) {
+      String field = String.format(RESERVED_BY_ORDER_ID_FIELD, position);
+      criteria.and(field).is(null);
+      update.set(field, orderId);
+    }
+
+    return mongoTemplate.updateFirst(query(criteria), update, Product.class).getModifiedCount() == 1;
+  }
+
+  private static Criteria pushableProduct(String productId) {
+    return where("productId").is(productId)
+      .and("availableQuantity").exists(true)
+      .and("itemRanges").exists(false);
+  }
+
+  private static Update pushUpdate(List<String> itemIds) {
+    return new Update()
+      .push("items").each(itemIds.stream().map(Item::new).toArray())
+      .inc("availableQuantity", itemIds.size());
+  }
+
+  private Document toDocument(Product product) {
+    Document document = new Document();
+    mongoTemplate.getConverter().write(product, document);
+    return document;
+  }
+
+  private MongoCollection<Document> productCollection() {
+    return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class));
+  }
+}
@@ -1,12 +1,12 @@
 package com.raga.ecommerce.inventory.repository;
 
-import com.raga.ecommerce.inventory.vo.Product;
 import com.raga.ecommerce.inventory.vo.ProductReservationLockLog;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.Optional;
 
-public interface ProductReservationLockLogRepository extends MongoRepository<ProductReservationLockLog, String> {
+public interface ProductReservationLockLogRepository extends MongoRepository<ProductReservationLockLog, String>,
+  ProductReservationLockLogRepositoryCustom {
 
-  Optional<Product> findByProductId(String productId);
+  Optional<ProductReservationLockLog> findByProductId(String productId);
 }
@@ -0,0 +1,30 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.ProductReservationLockLog;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface ProductReservationLockLogRepositoryCustom {
+
+  /**
+   * @return whether the lock log got inserted, false if the product has one already
+   **/
+  boolean insertIfAbsent(ProductReservationLockLog lockLog);
+
+  /**
+   * Hands the lease of the product over to the given owner if the current
+   * lease expired before now, incrementing its fencing token and recording
+   * when it got locked.
+   *
+   * @return the lock log as it was before being taken over
+   **/
+  Optional<ProductReservationLockLog> takeOverExpired(String productId, String orderId, String owner,
+                                                      LocalDateTime lockedAt, Instant now, Instant leaseExpiresAt);
+
+  /**
+   * Expires the lease right away if it is still the one with the given token.
+   **/
+  void release(String productId, long fencingToken);
+}
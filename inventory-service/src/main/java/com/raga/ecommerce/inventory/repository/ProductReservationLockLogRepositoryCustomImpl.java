@@ -0,0 +1,61 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.ProductReservationLockLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ProductReservationLockLogRepositoryCustomImpl implements ProductReservationLockLogRepositoryCustom {
+
+  private final MongoTemplate mongoTemplate;
+
+  @Autowired
+  public ProductReservationLockLogRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public boolean insertIfAbsent(ProductReservationLockLog lockLog) {
+    try {
+      mongoTemplate.insert(lockLog);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public Optional<ProductReservationLockLog> takeOverExpired(String productId, String orderId, String owner,
+                                                             LocalDateTime lockedAt, Instant now,
+                                                             Instant leaseExpiresAt) {
+    Update update = new Update()
+      .set("orderId", orderId)
+      .set("productLockedTimestamp", lockedAt)
+      .set("owner", owner)
+      .set("leaseExpiresAt", leaseExpiresAt)
+      .inc("fencingToken", 1);
+
+    return Optional.ofNullable(mongoTemplate.findAndModify(
+      query(where("productId").is(productId).and("leaseExpiresAt").lt(now)), update,
+      options().returnNew(false), ProductReservationLockLog.class));
+  }
+
+  @Override
+  public void release(String productId, long fencingToken) {
+    Update update = new Update()
+      .set("leaseExpiresAt", Instant.EPOCH)
+      .unset("owner");
+
+    mongoTemplate.updateFirst(query(where("productId").is(productId).and("fencingToken").is(fencingToken)),
+      update, ProductReservationLockLog.class);
+  }
+}
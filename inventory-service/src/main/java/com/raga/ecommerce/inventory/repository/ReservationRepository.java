@@ -0,0 +1,20 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.Reservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ReservationRepository extends MongoRepository<Reservation, String>, ReservationRepositoryCustom {
+
+  List<Reservation> findByOrderId(String orderId);
+
+  /**
+   * Holds which are neither confirmed nor released yet, holding only their
+   * id and expiry. The stream has to be closed.
+   **/
+  @Query(value = "{ expiresAt: { $exists: true } }", fields = "{ expiresAt: 1 }")
+  Stream<Reservation> streamHolds();
+}
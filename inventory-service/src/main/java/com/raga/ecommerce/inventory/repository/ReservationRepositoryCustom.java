@@ -0,0 +1,29 @@
+package com.raga.ecommerce.inventory.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public interface ReservationRepositoryCustom {
+
+  /**
+   * Adds the items to the reservation of the product by the order, creating
+   * it if there is none. The reservation becomes a hold expiring at the given
+   * instant, unless that is null.
+   **/
+  void addItems(String orderId, String productId, List<String> items, BigDecimal price, Instant expiresAt);
+
+  /**
+   * Makes the holds of the order which have not expired by now permanent.
+   *
+   * @return the number of holds confirmed
+   **/
+  int confirmHolds(String orderId, Instant now);
+
+  /**
+   * Deletes the reservation if it is a hold which expired by now.
+   *
+   * @return whether the reservation got deleted
+   **/
+  boolean deleteExpired(String reservationId, Instant now);
+}
@@ -0,0 +1,54 @@
+package com.raga.ecommerce.inventory.repository;
+
+import com.raga.ecommerce.inventory.vo.Reservation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ReservationRepositoryCustomImpl implements ReservationRepositoryCustom {
+
+  private static final String EXPIRES_AT_FIELD = "expiresAt";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Autowired
+  public ReservationRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public void addItems(String orderId, String productId, List<String> items, BigDecimal price, Instant expiresAt) {
+    Update update = new Update()
+      .setOnInsert("orderId", orderId)
+      .setOnInsert("productId", productId)
+      .push("items").each(items.toArray())
+      .set("price", price);
+
+    if (Objects.nonNull(expiresAt)) {
+      update.set(EXPIRES_AT_FIELD, expiresAt);
+    }
+
+    mongoTemplate.upsert(query(where("id").is(Reservation.idOf(orderId, productId))), update, Reservation.class);
+  }
+
+  @Override
+  public int confirmHolds(String orderId, Instant now) {
+    return (int) mongoTemplate.updateMulti(query(where("orderId").is(orderId).and(EXPIRES_AT_FIELD).gt(now)),
+      new Update().unset(EXPIRES_AT_FIELD), Reservation.class)
+      .getModifiedCount();
+  }
+
+  @Override
+  public boolean deleteExpired(String reservationId, Instant now) {
+    return mongoTemplate.remove(query(where("id").is(reservationId).and(EXPIRES_AT_FIELD).lte(now)), Reservation.class)
+      .getDeletedCount() == 1;
+  }
+}
@@ -0,0 +1,166 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.raga.ecommerce.inventory.reservation.ReservationChecks.requireReservable;
+
+/**
+ * Reserves without any lock in the JVM. The items to reserve are picked from
+ * the product as read, then marked by a single conditional update which only
+ * applies if the price and the available quantity still allow it and none of
+ * the picked items got reserved in the meantime. Lost races are retried with
+ * a fresh read, so any number of instances can reserve the same product.
+ * Products whose items are stored as ranges cannot be reserved this way.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "atomic-update")
+public class AtomicUpdateReservationStrategy implements ReservationStrategy {
+
+  private final ProductRepository productRepository;
+  private final int maxAttempts;
+
+  @Autowired
+  public AtomicUpdateReservationStrategy(ProductRepository productRepository,
+                                         @Value("${inventory.reservation.atomic-update.max-attempts:5}") int maxAttempts) {
+    this.productRepository = productRepository;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Override
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+
+    return reserve(orderId, productId, quantity, expectedPrice).response;
+  }
+
+  /**
+   * Reserves the lines one after the other in product id order. If a line
+   * fails, the items reserved for the lines before it are released again,
+   * so they may be seen as reserved for a short while.
+   **/
+  @Override
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    List<ReservationLine> sortedLines = lines.stream()
+      .sorted(Comparator.comparing(ReservationLine::getProductId))
+      .collect(Collectors.toList());
+
+    Map<String, Reservation> reservations = new LinkedHashMap<>();
+
+    try {
+      for (ReservationLine line : sortedLines) {
+        reservations.put(line.getProductId(),
+          reserve(orderId, line.getProductId(), line.getQuantity(), line.getExpectedPrice()));
+      }
+    } catch (RuntimeException e) {
+      reservations.forEach((productId, reservation) ->
+        productRepository.releaseItems(productId, reservation.positions, orderId));
+      throw e;
+    }
+
+    Map<String, ReserveProductResponse> responses = new LinkedHashMap<>();
+    reservations.forEach((productId, reservation) -> responses.put(productId, reservation.response));
+    return responses;
+  }
+
+  /**
+   * Releases the items with a conditional update which only applies if the
+   * order still holds all of them, retried with a fresh read otherwise.
+   **/
+  @Override
+  public int releaseItems(String orderId, String productId, List<String> itemIds) {
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      Optional<Product> product = productRepository.findByProductId(productId);
+
+      if (!product.isPresent()) {
+        return 0;
+      }
+
+      List<Integer> positions = product.get().getReservedPositions(orderId, itemIds);
+
+      if (positions.isEmpty() || productRepository.releaseItems(productId, positions, orderId)) {
+        return positions.size();
+      }
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  /**
+   * Appends the items with an atomic update, which leaves the positions of
+   * the items already there as they are. Products saved before the available
+   * quantity was stored get it first.
+   **/
+  @Override
+  public int addItems(String productId, List<String> itemIds) {
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      if (productRepository.pushItems(productId, itemIds)) {
+        return itemIds.size();
+      }
+
+      Product product = productRepository.findByProductId(productId)
+        .orElseThrow(() -> new ProductUnavailableException(productId));
+
+      if (product.hasItemRanges()) {
+        throw new IllegalStateException(String.format(
+          "Items of product %s are stored as ranges, which cannot be added by position", productId));
+      }
+
+      productRepository.initializeItemIndex(product);
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  private Reservation reserve(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      Product existingProduct = requireReservable(productRepository.findByProductId(productId),
+        productId, quantity, expectedPrice);
+
+      if (existingProduct.hasItemRanges()) {
+        throw new IllegalStateException(String.format(
+          "Items of product %s are stored as ranges, which cannot be reserved by position", productId));
+      }
+
+      List<Integer> positions = existingProduct.getUnreservedPositions(quantity);
+
+      if (productRepository.reserveItems(existingProduct, positions, orderId)) {
+        List<String> items = positions.stream()
+          .map(position -> existingProduct.getItems().get(position).getItemId())
+          .collect(Collectors.toList());
+
+        return new Reservation(positions, new ReserveProductResponse(items, existingProduct.getPrice()));
+      }
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  private static class Reservation {
+
+    private final List<Integer> positions;
+    private final ReserveProductResponse response;
+
+    private Reservation(List<Integer> positions, ReserveProductResponse response) {
+      this.positions = positions;
+      this.response = response;
+    }
+  }
+}
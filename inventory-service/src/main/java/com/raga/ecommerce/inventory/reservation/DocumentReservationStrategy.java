@@ -0,0 +1,131 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.raga.ecommerce.inventory.reservation.ReservationChecks.requireReservable;
+
+/**
+ * Reserves by reading the whole product document, changing it in memory and
+ * writing it back. Subclasses decide how other changes of the same product
+ * are kept out between the read and the write.
+ **/
+public abstract class DocumentReservationStrategy implements ReservationStrategy {
+
+  /**
+   * Stands for the order changing the product while items are added to it.
+   **/
+  protected static final String RESTOCK_ORDER_ID = "restock";
+
+  @Override
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+
+    return updateProduct(orderId, productId, product -> {
+      Product existingProduct = requireReservable(product, productId, quantity, expectedPrice);
+      return reserve(orderId, existingProduct, quantity);
+    });
+  }
+
+  /**
+   * Every line is checked before any product is changed, so a failing line
+   * leaves all products as they were read and nothing gets written.
+   **/
+  @Override
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    TreeMap<String, ReservationLine> linesByProduct = lines.stream()
+      .collect(Collectors.toMap(ReservationLine::getProductId, Function.identity(), (first, second) -> first,
+        TreeMap::new));
+
+    return updateProducts(orderId, linesByProduct.navigableKeySet(), products -> {
+      Map<String, Product> existingProducts = new LinkedHashMap<>();
+
+      linesByProduct.forEach((productId, line) -> existingProducts.put(productId, requireReservable(
+        products.get(productId), productId, line.getQuantity(), line.getExpectedPrice())));
+
+      Map<String, ReserveProductResponse> responses = new LinkedHashMap<>();
+      existingProducts.forEach((productId, product) ->
+        responses.put(productId, reserve(orderId, product, linesByProduct.get(productId).getQuantity())));
+      return responses;
+    });
+  }
+
+  @Override
+  public int releaseItems(String orderId, String productId, List<String> itemIds) {
+
+    return updateProduct(orderId, productId, product ->
+      product.map(existingProduct -> existingProduct.releaseItems(orderId, itemIds)).orElse(0));
+  }
+
+  /**
+   * Appends the items with a single atomic update where the product allows
+   * it, and otherwise adds them to the product as read and writes it back.
+   **/
+  @Override
+  public int addItems(String productId, List<String> itemIds) {
+    if (pushItems(productId, itemIds)) {
+      return itemIds.size();
+    }
+
+    return updateProduct(RESTOCK_ORDER_ID, productId, product -> {
+      product.orElseThrow(() -> new ProductUnavailableException(productId)).addItems(itemIds);
+      return itemIds.size();
+    });
+  }
+
+  /**
+   * Appends the items with {@link com.raga.ecommerce.inventory.repository.ProductRepositoryCustom#pushItems},
+   * with no change of the product going on meanwhile.
+   *
+   * @return whether the items got added
+   **/
+  protected abstract boolean pushItems(String productId, List<String> itemIds);
+
+  /**
+   * Reads the product, applies the change to it and saves it unless the change
+   * throws, with no other change of the product in between.
+   **/
+  protected abstract <T> T updateProduct(String orderId, String productId, Function<Optional<Product>, T> change);
+
+  /**
+   * Same as {@link #updateProduct} for several products at once, which are
+   * taken in the order of the given ids. The change is given every product
+   * by id, absent if there is none with that id.
+   **/
+  protected abstract <T> T updateProducts(String orderId, SortedSet<String> productIds,
+                                          Function<Map<String, Optional<Product>>, T> change);
+
+  /**
+   * Products read by id, along with an absent product for every id which was
+   * not found.
+   **/
+  protected static Map<String, Optional<Product>> byProductId(Set<String> productIds, Iterable<Product> products) {
+    Map<String, Optional<Product>> productsById = new HashMap<>();
+
+    productIds.forEach(productId -> productsById.put(productId, Optional.empty()));
+    products.forEach(product -> productsById.put(product.getProductId(), Optional.of(product)));
+    return productsById;
+  }
+
+  private ReserveProductResponse reserve(String orderId, Product product, int quantity) {
+    List<String> items = product.reserveItems(orderId, quantity)
+      .stream()
+      .map(Item::getItemId)
+      .collect(Collectors.toList());
+
+    return new ReserveProductResponse(items, product.getPrice());
+  }
+}
@@ -0,0 +1,391 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.exception.ProductsException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static com.raga.ecommerce.inventory.reservation.ReservationChecks.requireReservable;
+
+/**
+ * Flash-sale mode for the products listed in the
+ * inventory.reservation.flash-sale.product-ids property, on top of the
+ * strategy in use for every other product. The unreserved items of such a
+ * product are dealt by position to stripes, each with its own lock, and a
+ * reservation takes its items from the stripe it is assigned to, round robin
+ * or by order id hash, stealing from the next stripes when it runs dry.
+ * Reservations of different stripes only meet in the conditional update
+ * which marks their items, and since no two stripes hold the same item these
+ * updates do not conflict the way reads of the same first unreserved items
+ * do. Since the positions of a stripe are not the first unreserved ones, the
+ * update leaves the unreserved cursor of the product where it is, for the
+ * strategy in use to keep reserving from it once the product is no longer in
+ * flash sale. The update only applies if the items are still unreserved, so
+ * items taken by other instances are dropped from the stripes rather than
+ * oversold, and the stripes are reloaded once they run dry. While items taken
+ * from the stripes are being marked, a reservation which finds the stripes
+ * dry fails as if the product were sold out instead of reloading them.
+ * Products whose items are stored as ranges cannot be in flash sale.
+ **/
+@Service
+@Primary
+@ConditionalOnProperty(name = "inventory.reservation.flash-sale.product-ids")
+public class FlashSaleReservationStrategy implements ReservationStrategy {
+
+  static final String HASH_ASSIGNMENT = "hash";
+
+  private final ReservationStrategy delegate;
+  private final ProductRepository productRepository;
+  private final MeterRegistry meterRegistry;
+  private final Set<String> productIds;
+  private final int stripeCount;
+  private final boolean hashAssignment;
+  private final int maxAttempts;
+  private final AtomicInteger nextStripe;
+  private final Map<String, StripedStock> stocks;
+
+  /**
+   * The delegate is the strategy selected by inventory.reservation.strategy,
+   * as the only other bean of the type.
+   **/
+  @Autowired
+  public FlashSaleReservationStrategy(ReservationStrategy delegate, ProductRepository productRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${inventory.reservation.flash-sale.product-ids}") String[] productIds,
+                                      @Value("${inventory.reservation.flash-sale.stripes:0}") int stripeCount,
+                                      @Value("${inventory.reservation.flash-sale.assignment:round-robin}") String assignment,
+                                      @Value("${inventory.reservation.flash-sale.max-attempts:5}") int maxAttempts) {
+    this.delegate = delegate;
+    this.productRepository = productRepository;
+    this.meterRegistry = meterRegistry;
+    this.productIds = new HashSet<>(Arrays.asList(productIds));
+    this.stripeCount = stripeCount > 0 ? stripeCount : Runtime.getRuntime().availableProcessors();
+    this.hashAssignment = HASH_ASSIGNMENT.equals(assignment);
+    this.maxAttempts = maxAttempts;
+    this.nextStripe = new AtomicInteger();
+    this.stocks = new ConcurrentHashMap<>();
+  }
+
+  public boolean isFlashSale(String productId) {
+    return productIds.contains(productId);
+  }
+
+  @Override
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+    if (!isFlashSale(productId)) {
+      return delegate.reserveItems(orderId, productId, quantity, expectedPrice);
+    }
+
+    int firstStripe = hashAssignment ? Math.floorMod(orderId.hashCode(), stripeCount)
+      : Math.floorMod(nextStripe.getAndIncrement(), stripeCount);
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      StripedStock stock = stocks.computeIfAbsent(productId, this::load);
+
+      if (stock.product.getPrice().compareTo(expectedPrice) > 0) {
+        throw new ProductPriceIncreasedException(productId, expectedPrice, stock.product.getPrice());
+      }
+
+      List<Integer> positions = stock.take(firstStripe, quantity);
+
+      if (positions.isEmpty()) {
+        if (stock.inFlight.get() > 0) {
+          throw stock.shortage(quantity);
+        }
+        stocks.remove(productId, stock);
+        requireReservable(productRepository.findByProductId(productId), productId, quantity, expectedPrice);
+        continue;
+      }
+
+      try {
+        if (productRepository.reserveItemsOutOfOrder(stock.product, positions, orderId)) {
+          List<String> items = positions.stream()
+            .map(position -> stock.itemIds.get(position))
+            .collect(Collectors.toList());
+
+          return new ReserveProductResponse(items, stock.product.getPrice());
+        }
+        recover(stock, positions);
+      } finally {
+        stock.inFlight.decrementAndGet();
+      }
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  /**
+   * Reserves the lines one after the other in product id order, releasing
+   * the lines reserved before a failing one, unless no line is in flash sale.
+   **/
+  @Override
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    if (lines.stream().noneMatch(line -> isFlashSale(line.getProductId()))) {
+      return delegate.reserveItems(orderId, lines);
+    }
+
+    List<ReservationLine> sortedLines = lines.stream()
+      .sorted(Comparator.comparing(ReservationLine::getProductId))
+      .collect(Collectors.toList());
+
+    Map<String, ReserveProductResponse> responses = new LinkedHashMap<>();
+
+    try {
+      for (ReservationLine line : sortedLines) {
+        responses.put(line.getProductId(),
+          reserveItems(orderId, line.getProductId(), line.getQuantity(), line.getExpectedPrice()));
+      }
+    } catch (RuntimeException e) {
+      responses.forEach((productId, response) -> releaseItems(orderId, productId, response.getItems()));
+      throw e;
+    }
+
+    return responses;
+  }
+
+  @Override
+  public int releaseItems(String orderId, String productId, List<String> itemIds) {
+    if (!isFlashSale(productId)) {
+      return delegate.releaseItems(orderId, productId, itemIds);
+    }
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      Optional<Product> product = productRepository.findByProductId(productId);
+
+      if (!product.isPresent()) {
+        return 0;
+      }
+
+      List<Integer> positions = product.get().getReservedPositions(orderId, itemIds);
+
+      if (positions.isEmpty() || productRepository.releaseItems(productId, positions, orderId)) {
+        StripedStock stock = stocks.get(productId);
+        if (Objects.nonNull(stock)) {
+          stock.giveBack(positions);
+        }
+        return positions.size();
+      }
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  /**
+   * Adds the items through the selected strategy, and drops the stripes of a
+   * flash sale product so that the next reservation deals the new items as
+   * well. Positions still in flight from the dropped stripes may be dealt
+   * again, the conditional update then keeps them from being reserved twice.
+   **/
+  @Override
+  public int addItems(String productId, List<String> itemIds) {
+    int added = delegate.addItems(productId, itemIds);
+
+    if (isFlashSale(productId)) {
+      stocks.remove(productId);
+    }
+
+    return added;
+  }
+
+  /**
+   * Drops the positions which got reserved by another instance and gives
+   * back the others, or reloads the stripes if the price of the product has
+   * changed.
+   **/
+  private void recover(StripedStock stock, List<Integer> positions) {
+    String productId = stock.product.getProductId();
+    Optional<Product> current = productRepository.findByProductId(productId);
+
+    if (!current.isPresent() || current.get().getPrice().compareTo(stock.product.getPrice()) != 0) {
+      stocks.remove(productId, stock);
+      return;
+    }
+
+    List<Item> items = current.get().getItems();
+    stock.giveBack(positions.stream()
+      .filter(position -> items.get(position).isNotReserved())
+      .collect(Collectors.toList()));
+  }
+
+  private StripedStock load(String productId) {
+    Product product = productRepository.findByProductId(productId)
+      .orElseThrow(() -> new ProductUnavailableException(productId));
+
+    if (product.hasItemRanges()) {
+      throw new IllegalStateException(String.format(
+        "Items of product %s are stored as ranges, which cannot be reserved by position", productId));
+    }
+
+    registerMeters(productId);
+    return new StripedStock(product, stripeCount, meterRegistry.counter("inventory.flash-sale.steals",
+      "product", productId));
+  }
+
+  private void registerMeters(String productId) {
+    for (int index = 0; index < stripeCount; index++) {
+      int stripe = index;
+      Gauge.builder("inventory.flash-sale.stripe.available", this, strategy -> strategy.available(productId, stripe))
+        .tags("product", productId, "stripe", String.valueOf(stripe))
+        .register(meterRegistry);
+    }
+
+    Gauge.builder("inventory.flash-sale.stripe.imbalance", this, strategy -> strategy.imbalance(productId))
+      .tag("product", productId)
+      .register(meterRegistry);
+  }
+
+  private double available(String productId, int stripe) {
+    StripedStock stock = stocks.get(productId);
+    return Objects.isNull(stock) ? Double.NaN : stock.stripes[stripe].available;
+  }
+
+  /**
+   * Difference between the most and the least stocked stripes of a product.
+   **/
+  private double imbalance(String productId) {
+    StripedStock stock = stocks.get(productId);
+
+    if (Objects.isNull(stock)) {
+      return Double.NaN;
+    }
+
+    int most = Integer.MIN_VALUE;
+    int least = Integer.MAX_VALUE;
+    for (Stripe stripe : stock.stripes) {
+      most = Math.max(most, stripe.available);
+      least = Math.min(least, stripe.available);
+    }
+    return most - least;
+  }
+
+  private static class StripedStock {
+
+    private final Product product;
+    private final List<String> itemIds;
+    private final Stripe[] stripes;
+    private final Counter steals;
+    private final AtomicInteger inFlight;
+
+    private StripedStock(Product product, int stripeCount, Counter steals) {
+      this.product = product;
+      this.itemIds = product.getItems().stream().map(Item::getItemId).collect(Collectors.toList());
+      this.stripes = new Stripe[stripeCount];
+      this.steals = steals;
+      this.inFlight = new AtomicInteger();
+
+      for (int index = 0; index < stripeCount; index++) {
+        stripes[index] = new Stripe();
+      }
+
+      List<Item> items = product.getItems();
+      for (int position = 0; position < items.size(); position++) {
+        if (items.get(position).isNotReserved()) {
+          stripes[position % stripeCount].add(position);
+        }
+      }
+    }
+
+    /**
+     * Takes the quantity from the first stripe, then from the next ones. The
+     * positions taken are given back if there are not enough.
+     *
+     * @return the positions taken in ascending order, which are in flight
+     * until settled, or none
+     **/
+    private List<Integer> take(int firstStripe, int quantity) {
+      List<Integer> taken = new ArrayList<>(quantity);
+      inFlight.incrementAndGet();
+
+      for (int offset = 0; offset < stripes.length && taken.size() < quantity; offset++) {
+        int before = taken.size();
+        stripes[(firstStripe + offset) % stripes.length].take(quantity - before, taken);
+
+        if (offset > 0 && taken.size() > before) {
+          steals.increment();
+        }
+      }
+
+      if (taken.size() < quantity) {
+        giveBack(taken);
+        inFlight.decrementAndGet();
+        return Collections.emptyList();
+      }
+
+      Collections.sort(taken);
+      return taken;
+    }
+
+    private ProductsException shortage(int quantity) {
+      int available = Arrays.stream(stripes).mapToInt(stripe -> stripe.available).sum();
+      String productId = product.getProductId();
+
+      return available == 0 ? new ProductUnavailableException(productId)
+        : new ProductAvailableInLessQuantityException(productId, quantity, available);
+    }
+
+    private void giveBack(List<Integer> positions) {
+      positions.forEach(position -> stripes[position % stripes.length].add(position));
+    }
+  }
+
+  private static class Stripe {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Integer> positions = new ArrayDeque<>();
+    private volatile int available;
+
+    private void take(int quantity, List<Integer> taken) {
+      lock.lock();
+      try {
+        for (int count = 0; count < quantity && !positions.isEmpty(); count++) {
+          taken.add(positions.poll());
+        }
+        available = positions.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void add(int position) {
+      lock.lock();
+      try {
+        positions.add(position);
+        available = positions.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import com.raga.ecommerce.inventory.lock.ProductLock;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Reserves like the locking strategy, but requests waiting for the lock of a
+ * product are committed together. Every request queues its change before
+ * taking the lock, and whichever request holds the lock reads the product
+ * once, applies the queued changes in order and saves the product once for
+ * all of them. Requests whose change got committed that way find their
+ * result ready once they get the lock, so a hot product costs one read and
+ * one write per batch instead of per request. A request throttled while
+ * waiting for the lock takes its change back off the queue, unless a batch
+ * took it already, in which case the request waits for that batch.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "group-commit")
+public class GroupCommitReservationStrategy extends LockingReservationStrategy {
+
+  private final ProductRepository productRepository;
+  private final ProductReservationLockManager productReservationLockManager;
+  private final int maxBatchSize;
+  private final ConcurrentMap<String, Queue<PendingChange<?>>> pendingChanges;
+  private final DistributionSummary batchSizes;
+
+  @Autowired
+  public GroupCommitReservationStrategy(ProductRepository productRepository,
+                                        ProductReservationLockManager productReservationLockManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${inventory.reservation.group-commit.max-batch-size:100}") int maxBatchSize) {
+    super(productRepository, productReservationLockManager, meterRegistry);
+    this.productRepository = productRepository;
+    this.productReservationLockManager = productReservationLockManager;
+    this.maxBatchSize = maxBatchSize;
+    this.pendingChanges = new ConcurrentHashMap<>();
+    this.batchSizes = meterRegistry.summary("inventory.reservation.group-commit.batch.size");
+  }
+
+  @Override
+  protected <T> T updateProduct(String orderId, String productId, Function<Optional<Product>, T> change) {
+
+    PendingChange<T> pendingChange = new PendingChange<>(change);
+    Queue<PendingChange<?>> queue = pendingChanges.computeIfAbsent(productId, id -> new ConcurrentLinkedQueue<>());
+    queue.add(pendingChange);
+
+    ProductLock lock = productReservationLockManager.getLock(productId);
+
+    try {
+      lock.lock();
+    } catch (ReservationThrottledException e) {
+      if (queue.remove(pendingChange)) {
+        throw e;
+      }
+      return pendingChange.join();
+    }
+
+    try {
+      while (!pendingChange.isDone()) {
+        commit(productId, queue);
+      }
+
+      if (queue.isEmpty()) {
+        pendingChanges.remove(productId, queue);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    return pendingChange.join();
+  }
+
+  /**
+   * A request which queued its change on a queue already removed still holds
+   * that queue and commits it itself, under the same product lock.
+   **/
+  private void commit(String productId, Queue<PendingChange<?>> queue) {
+    List<PendingChange<?>> batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+    PendingChange<?> next;
+
+    while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+      batch.add(next);
+    }
+
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    batchSizes.record(batch.size());
+    PendingChange.commit(productRepository, productId, batch);
+  }
+}
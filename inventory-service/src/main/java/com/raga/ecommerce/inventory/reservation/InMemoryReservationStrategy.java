@@ -0,0 +1,538 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.engine.SnapshotFile;
+import com.raga.ecommerce.inventory.engine.SnapshotProduct;
+import com.raga.ecommerce.inventory.engine.WalRecord;
+import com.raga.ecommerce.inventory.engine.WriteAheadLog;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.CompactItems;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.raga.ecommerce.inventory.reservation.ReservationChecks.requireReservable;
+
+/**
+ * Reserves on products held in memory, which are authoritative once loaded.
+ * A reservation changes the product in memory and appends a record to the
+ * write-ahead log under the product lock, and is acknowledged once the
+ * record is on disk, concurrent reservations sharing the fsync. Changed
+ * products are written to the database in bulk every flush interval, after
+ * which the log is checkpointed at the last record they include. On start,
+ * the records after the checkpoint are replayed onto the products as read
+ * from the database. Replaying a record the database already reflects
+ * changes nothing, since a slot is only reserved if it is unreserved and
+ * only released if the order of the record holds it, and items are only
+ * added if the product has no item in their slots yet.
+ * Every product in memory is also written to a snapshot file periodically
+ * and on shutdown. On start, the products of the snapshot are loaded from
+ * it rather than from the database, and the log is replayed onto them, the
+ * checkpoint never being past the snapshot so the log covers the changes
+ * made since.
+ * The database lags behind the memory by up to the flush interval, and this
+ * instance has to be the only one reserving. Only the products are written
+ * behind, the reservation records kept by order and product are still read
+ * and written synchronously by the reservation holds, so a new reservation
+ * made through the service costs a lookup and a record in the database,
+ * timed as the lookup and record reservation phases.
+ * A change is applied in memory before its record is on disk. If the record
+ * cannot be made durable the change can neither be kept nor undone, as later
+ * changes may build on it, so the engine fails: it refuses every change from
+ * then on and no longer writes to the database or to the snapshot, leaving
+ * the products to be recovered from what was made durable on restart.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "in-memory")
+public class InMemoryReservationStrategy implements ReservationStrategy {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryReservationStrategy.class);
+  private static final String NO_ORDER = "";
+
+  private final ProductRepository productRepository;
+  private final WriteAheadLog log;
+  private final Map<String, InMemoryProduct> products;
+  private final ReadWriteLock flushLock;
+  private final SnapshotFile snapshotFile;
+  private final Timer flushes;
+  private final Timer snapshots;
+  private Set<String> changedProductIds;
+  private volatile long flushedSequence;
+  private volatile long snapshotSequence;
+  private volatile RuntimeException failure;
+
+  @Autowired
+  public InMemoryReservationStrategy(ProductRepository productRepository, MeterRegistry meterRegistry,
+                                     @Value("${inventory.engine.wal.directory:wal}") String walDirectory,
+                                     @Value("${inventory.engine.wal.segment-bytes:67108864}") int segmentBytes,
+                                     @Value("${inventory.engine.snapshot.file:inventory.snapshot}") String snapshotFile) {
+    this(productRepository, new WriteAheadLog(Paths.get(walDirectory), segmentBytes, meterRegistry),
+      new SnapshotFile(Paths.get(snapshotFile)), meterRegistry);
+  }
+
+  InMemoryReservationStrategy(ProductRepository productRepository, WriteAheadLog log, SnapshotFile snapshotFile,
+                              MeterRegistry meterRegistry) {
+    this.productRepository = productRepository;
+    this.log = log;
+    this.snapshotFile = snapshotFile;
+    this.products = new ConcurrentHashMap<>();
+    this.flushLock = new ReentrantReadWriteLock();
+    this.flushes = meterRegistry.timer("inventory.engine.flushes");
+    this.snapshots = meterRegistry.timer("inventory.engine.snapshots");
+    this.changedProductIds = ConcurrentHashMap.newKeySet();
+    meterRegistry.gauge("inventory.engine.products", products, Map::size);
+  }
+
+  @Override
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+    return reserveItems(orderId, Collections.singletonList(new ReservationLine(productId, quantity, expectedPrice)))
+      .get(productId);
+  }
+
+  /**
+   * Reserves the lines under the locks of their products, taken in product
+   * id order, and logs them as a single record.
+   **/
+  @Override
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    requireRunning();
+
+    List<ReservationLine> sortedLines = lines.stream()
+      .sorted(Comparator.comparing(ReservationLine::getProductId))
+      .collect(Collectors.toList());
+
+    List<InMemoryProduct> lineProducts = new ArrayList<>(sortedLines.size());
+    for (ReservationLine line : sortedLines) {
+      InMemoryProduct product = product(line.getProductId());
+      if (Objects.isNull(product)) {
+        throw new ProductUnavailableException(line.getProductId());
+      }
+      lineProducts.add(product);
+    }
+
+    Map<String, ReserveProductResponse> responses = new LinkedHashMap<>();
+    List<WalRecord.Entry> entries = new ArrayList<>(sortedLines.size());
+    long sequence;
+
+    lineProducts.forEach(product -> product.lock.lock());
+    try {
+      for (int index = 0; index < sortedLines.size(); index++) {
+        ReservationLine line = sortedLines.get(index);
+        InMemoryProduct product = lineProducts.get(index);
+        requireReservable(line.getProductId(), product.items.getAvailableQuantity(), product.price,
+          line.getQuantity(), line.getExpectedPrice());
+      }
+
+      for (int index = 0; index < sortedLines.size(); index++) {
+        ReservationLine line = sortedLines.get(index);
+        InMemoryProduct product = lineProducts.get(index);
+        int[] slots = product.items.reserve(orderId, line.getQuantity());
+
+        entries.add(new WalRecord.Entry(line.getProductId(), slots));
+        responses.put(line.getProductId(), new ReserveProductResponse(product.getItemIds(slots), product.price));
+      }
+
+      sequence = appendChange(new WalRecord(0, WalRecord.Type.RESERVE, orderId, entries), lineProducts);
+    } finally {
+      lineProducts.forEach(product -> product.lock.unlock());
+    }
+
+    awaitDurable(sequence);
+    return responses;
+  }
+
+  @Override
+  public int releaseItems(String orderId, String productId, List<String> itemIds) {
+    requireRunning();
+
+    InMemoryProduct product = product(productId);
+
+    if (Objects.isNull(product)) {
+      return 0;
+    }
+
+    int[] slots;
+    long sequence;
+
+    product.lock.lock();
+    try {
+      slots = product.items.getReservedSlots(orderId, itemIds);
+
+      if (slots.length == 0) {
+        return 0;
+      }
+
+      for (int slot : slots) {
+        product.items.releaseAt(slot, orderId);
+      }
+
+      sequence = appendChange(new WalRecord(0, WalRecord.Type.RELEASE, orderId,
+        Collections.singletonList(new WalRecord.Entry(productId, slots))), Collections.singletonList(product));
+    } finally {
+      product.lock.unlock();
+    }
+
+    awaitDurable(sequence);
+    return slots.length;
+  }
+
+  /**
+   * Logs the items under the product lock and adds them once logged, so that
+   * the record of an addition always matches the slots the items take.
+   **/
+  @Override
+  public int addItems(String productId, List<String> itemIds) {
+    requireRunning();
+
+    InMemoryProduct product = product(productId);
+
+    if (Objects.isNull(product)) {
+      throw new ProductUnavailableException(productId);
+    }
+
+    long sequence;
+
+    product.lock.lock();
+    try {
+      int firstSlot = product.items.size();
+      int[] slots = IntStream.range(firstSlot, firstSlot + itemIds.size()).toArray();
+
+      sequence = appendChange(new WalRecord(0, WalRecord.Type.ADD, NO_ORDER,
+        Collections.singletonList(new WalRecord.Entry(productId, slots, itemIds))), Collections.singletonList(product));
+      product.items.addItems(itemIds);
+    } finally {
+      product.lock.unlock();
+    }
+
+    awaitDurable(sequence);
+    return itemIds.size();
+  }
+
+  /**
+   * Writes the products changed since the last flush in bulk and checkpoints
+   * the log up to the last record appended before they were taken. A record is
+   * appended after its products are marked as changed, under the read lock,
+   * so every record up to the checkpoint is part of the products written.
+   * The products are only written once every record they reflect is on disk.
+   **/
+  @Scheduled(fixedDelayString = "${inventory.engine.flush-interval-millis:1000}")
+  public void flush() {
+    if (Objects.nonNull(failure)) {
+      return;
+    }
+
+    long sequence;
+    Set<String> productIds;
+
+    flushLock.writeLock().lock();
+    try {
+      sequence = log.getLastSequence();
+      productIds = changedProductIds;
+      changedProductIds = ConcurrentHashMap.newKeySet();
+    } finally {
+      flushLock.writeLock().unlock();
+    }
+
+    try {
+      List<Product> changed = productIds.stream()
+        .map(products::get)
+        .filter(Objects::nonNull)
+        .map(InMemoryProduct::toProduct)
+        .collect(Collectors.toList());
+
+      if (!changed.isEmpty()) {
+        awaitDurable(log.getLastSequence());
+        flushes.record(() -> productRepository.saveInBulk(changed));
+      }
+    } catch (RuntimeException e) {
+      flushLock.readLock().lock();
+      try {
+        changedProductIds.addAll(productIds);
+      } finally {
+        flushLock.readLock().unlock();
+      }
+      throw e;
+    }
+
+    flushedSequence = sequence;
+    checkpoint();
+  }
+
+  /**
+   * Writes every product in memory to the snapshot file. Each product is
+   * written under its lock, after the last record appended before the
+   * snapshot started, so the snapshot reflects at least every record up to
+   * that one, and is only committed once every record it reflects is on
+   * disk.
+   **/
+  @Scheduled(fixedDelayString = "${inventory.engine.snapshot.interval-millis:300000}",
+    initialDelayString = "${inventory.engine.snapshot.interval-millis:300000}")
+  public void snapshot() {
+    if (Objects.nonNull(failure)) {
+      return;
+    }
+
+    long sequence = log.getLastSequence();
+
+    snapshots.record(() -> {
+      try (SnapshotFile.Writer writer = snapshotFile.write(sequence)) {
+        for (InMemoryProduct product : products.values()) {
+          product.lock.lock();
+          try {
+            writer.add(product.toSnapshotProduct());
+          } finally {
+            product.lock.unlock();
+          }
+        }
+        awaitDurable(log.getLastSequence());
+        writer.commit();
+      }
+    });
+
+    snapshotSequence = sequence;
+    checkpoint();
+  }
+
+  @PreDestroy
+  public void stop() {
+    flush();
+    snapshot();
+    log.close();
+  }
+
+  /**
+   * Loads the products of the snapshot, unless the log does not cover the
+   * changes made since it was written, and replays the log after the
+   * checkpoint onto them, or onto the products as read from the database.
+   * Runs once the bean is created rather than while it is, as it writes the
+   * replayed products to the database.
+   **/
+  @PostConstruct
+  void recover() {
+    long started = System.nanoTime();
+    long checkpoint = log.getCheckpoint();
+    Map<String, InMemoryProduct> snapshotProducts = new HashMap<>();
+    OptionalLong sequence = snapshotFile.read(product ->
+      snapshotProducts.put(product.getProductId(), new InMemoryProduct(product)));
+
+    if (sequence.isPresent() && sequence.getAsLong() >= checkpoint && sequence.getAsLong() <= log.getLastSequence()) {
+      products.putAll(snapshotProducts);
+      snapshotSequence = sequence.getAsLong();
+    } else if (sequence.isPresent()) {
+      LOGGER.warn("Ignoring the snapshot at sequence {} which the write-ahead log from sequence {} to {} does not cover",
+        sequence.getAsLong(), checkpoint, log.getLastSequence());
+    }
+
+    flushedSequence = checkpoint;
+    log.replay(checkpoint, this::apply);
+    flush();
+    LOGGER.info("Loaded {} products from the snapshot and replayed the write-ahead log from sequence {} in {} ms",
+      products.size(), checkpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  /**
+   * Waits until the record is on disk, failing the engine if it cannot be.
+   **/
+  private void awaitDurable(long sequence) {
+    try {
+      log.awaitDurable(sequence);
+    } catch (RuntimeException e) {
+      if (Objects.isNull(failure)) {
+        failure = e;
+        LOGGER.error("Stopping the in-memory engine as the write-ahead log cannot be written to disk up to sequence {}",
+          sequence, e);
+      }
+      throw e;
+    }
+  }
+
+  private void requireRunning() {
+    if (Objects.nonNull(failure)) {
+      throw new IllegalStateException("The in-memory engine stopped as the write-ahead log cannot be written to disk",
+        failure);
+    }
+  }
+
+  /**
+   * Checkpoints the log at the last record both in the database and in the
+   * snapshot.
+   **/
+  private synchronized void checkpoint() {
+    long sequence = Math.min(flushedSequence, snapshotSequence);
+
+    if (sequence > log.getCheckpoint()) {
+      log.checkpoint(sequence);
+    }
+  }
+
+  private void apply(WalRecord record) {
+    for (WalRecord.Entry entry : record.getEntries()) {
+      InMemoryProduct product = product(entry.getProductId());
+
+      if (Objects.isNull(product)) {
+        continue;
+      }
+
+      if (record.getType() == WalRecord.Type.ADD) {
+        if (entry.getSlots().length > 0 && entry.getSlots()[0] == product.items.size()) {
+          product.items.addItems(entry.getItemIds());
+        }
+        changedProductIds.add(entry.getProductId());
+        continue;
+      }
+
+      for (int slot : entry.getSlots()) {
+        if (slot >= product.items.size()) {
+          continue;
+        }
+        if (record.getType() == WalRecord.Type.RESERVE) {
+          product.items.reserveAt(slot, record.getOrderId());
+        } else {
+          product.items.releaseAt(slot, record.getOrderId());
+        }
+      }
+
+      changedProductIds.add(entry.getProductId());
+    }
+  }
+
+  /**
+   * Marks the products as changed and appends the record. Reservations and
+   * releases are undone if the record cannot be appended, additions are only
+   * applied once it is.
+   **/
+  private long appendChange(WalRecord record, List<InMemoryProduct> changed) {
+    flushLock.readLock().lock();
+    try {
+      changed.forEach(product -> changedProductIds.add(product.productId));
+      return log.append(record);
+    } catch (RuntimeException e) {
+      if (record.getType() == WalRecord.Type.ADD) {
+        throw e;
+      }
+
+      for (WalRecord.Entry entry : record.getEntries()) {
+        CompactItems items = products.get(entry.getProductId()).items;
+        for (int slot : entry.getSlots()) {
+          if (record.getType() == WalRecord.Type.RESERVE) {
+            items.releaseAt(slot, record.getOrderId());
+          } else {
+            items.reserveAt(slot, record.getOrderId());
+          }
+        }
+      }
+      throw e;
+    } finally {
+      flushLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Product in memory, loaded from the database the first time it is needed.
+   * The product is read outside of the map so a slow read does not hold up
+   * the products sharing its bin, the first product put wins if several
+   * threads load it at once.
+   **/
+  private InMemoryProduct product(String productId) {
+    InMemoryProduct product = products.get(productId);
+
+    if (Objects.nonNull(product)) {
+      return product;
+    }
+
+    InMemoryProduct loaded = productRepository.findByProductId(productId)
+      .map(InMemoryProduct::new)
+      .orElse(null);
+
+    if (Objects.isNull(loaded)) {
+      return null;
+    }
+
+    InMemoryProduct present = products.putIfAbsent(productId, loaded);
+    return Objects.nonNull(present) ? present : loaded;
+  }
+
+  private static class InMemoryProduct {
+
+    private final String productId;
+    private final String productName;
+    private final BigDecimal price;
+    private final boolean itemRanges;
+    private final CompactItems items;
+    private final ReentrantLock lock;
+
+    private InMemoryProduct(Product product) {
+      this(new SnapshotProduct(product.getProductId(), product.getProductName(), product.getPrice(),
+        product.hasItemRanges(), CompactItems.of(product.getItems())));
+    }
+
+    private InMemoryProduct(SnapshotProduct product) {
+      this.productId = product.getProductId();
+      this.productName = product.getProductName();
+      this.price = product.getPrice();
+      this.itemRanges = product.hasItemRanges();
+      this.items = product.getItems();
+      this.lock = new ReentrantLock();
+    }
+
+    private SnapshotProduct toSnapshotProduct() {
+      return new SnapshotProduct(productId, productName, price, itemRanges, items);
+    }
+
+    private List<String> getItemIds(int[] slots) {
+      List<String> itemIds = new ArrayList<>(slots.length);
+      for (int slot : slots) {
+        itemIds.add(items.getItemId(slot));
+      }
+      return itemIds;
+    }
+
+    /**
+     * Product as it is written to the database, with its counters computed.
+     **/
+    private Product toProduct() {
+      lock.lock();
+      try {
+        Product product = new Product(productId, productName, price);
+        product.getItems().addAll(items.toItems());
+        if (itemRanges) {
+          product.encodeItemRanges();
+        }
+        product.getAvailableQuantity();
+        return product;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.repository.ProductItemRepository;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductItem;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.raga.ecommerce.inventory.reservation.ReservationChecks.requireReservable;
+
+/**
+ * Reserves products whose items live in the product item collection, see
+ * {@link com.raga.ecommerce.inventory.migration.ItemCollectionMigration}. The
+ * quantity is first taken off the counter of the product by a conditional
+ * update, which also guards the price, and then as many items are reserved
+ * one by one. Only the counter and the reserved items are written.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "item-collection")
+public class ItemCollectionReservationStrategy implements ReservationStrategy {
+
+  private final ProductRepository productRepository;
+  private final ProductItemRepository productItemRepository;
+  private final int maxAttempts;
+
+  @Autowired
+  public ItemCollectionReservationStrategy(ProductRepository productRepository,
+                                           ProductItemRepository productItemRepository,
+                                           @Value("${inventory.reservation.atomic-update.max-attempts:5}") int maxAttempts) {
+    this.productRepository = productRepository;
+    this.productItemRepository = productItemRepository;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Override
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      Product existingProduct = requireReservable(productRepository.findByProductId(productId),
+        productId, quantity, expectedPrice);
+
+      if (productRepository.takeAvailableQuantity(existingProduct, quantity)) {
+        return new ReserveProductResponse(reserveAnyItems(orderId, productId, quantity), existingProduct.getPrice());
+      }
+    }
+
+    throw new ProductReservationConflictException(productId, maxAttempts);
+  }
+
+  /**
+   * Reserves the lines one after the other in product id order. If a line
+   * fails, the items reserved for the lines before it are released again,
+   * so they may be seen as reserved for a short while.
+   **/
+  @Override
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    List<ReservationLine> sortedLines = lines.stream()
+      .sorted(Comparator.comparing(ReservationLine::getProductId))
+      .collect(Collectors.toList());
+
+    Map<String, ReserveProductResponse> responses = new LinkedHashMap<>();
+
+    try {
+      for (ReservationLine line : sortedLines) {
+        responses.put(line.getProductId(),
+          reserveItems(orderId, line.getProductId(), line.getQuantity(), line.getExpectedPrice()));
+      }
+    } catch (RuntimeException e) {
+      responses.forEach((productId, response) -> {
+        productItemRepository.unreserveItems(productId, response.getItems());
+        productRepository.addAvailableQuantity(productId, response.getItems().size());
+      });
+      throw e;
+    }
+
+    return responses;
+  }
+
+  @Override
+  public int releaseItems(String orderId, String productId, List<String> itemIds) {
+    int released = productItemRepository.releaseItems(productId, orderId, itemIds);
+
+    if (released > 0) {
+      productRepository.addAvailableQuantity(productId, released);
+    }
+
+    return released;
+  }
+
+  /**
+   * Inserts the items into the product item collection and adds the ones
+   * inserted to the counter of the product, items the product has already
+   * are skipped.
+   **/
+  @Override
+  public int addItems(String productId, List<String> itemIds) {
+    if (!productRepository.existsById(productId)) {
+      throw new ProductUnavailableException(productId);
+    }
+
+    int inserted = productItemRepository.insertIfAbsent(itemIds.stream()
+      .map(itemId -> new ProductItem(productId, itemId, null))
+      .collect(Collectors.toList()));
+
+    if (inserted > 0) {
+      productRepository.addAvailableQuantity(productId, inserted);
+    }
+
+    return inserted;
+  }
+
+  private List<String> reserveAnyItems(String orderId, String productId, int quantity) {
+    List<String> items = new ArrayList<>(quantity);
+
+    while (items.size() < quantity) {
+      Optional<ProductItem> item = productItemRepository.reserveAnyItem(productId, orderId);
+
+      if (!item.isPresent()) {
+        productItemRepository.unreserveItems(productId, items);
+        productRepository.addAvailableQuantity(productId, quantity);
+        throw new IllegalStateException(String.format(
+          "Available quantity of product %s does not match its unreserved items", productId));
+      }
+
+      items.add(item.get().getItemId());
+    }
+
+    return items;
+  }
+}
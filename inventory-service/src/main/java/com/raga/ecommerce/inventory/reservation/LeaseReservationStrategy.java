@@ -0,0 +1,137 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductLeaseExpiredException;
+import com.raga.ecommerce.inventory.lock.ProductLease;
+import com.raga.ecommerce.inventory.lock.ProductLeaseManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps changes of a product apart across instances with a lease on the
+ * product. The fencing token of the lease is recorded on the product before
+ * it is read, and the product is written only if it still carries the token,
+ * so an instance whose lease expired while it was paused cannot write back
+ * the product it read once the next holder read it too.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "lease")
+public class LeaseReservationStrategy extends DocumentReservationStrategy {
+
+  private final ProductRepository productRepository;
+  private final ProductLeaseManager productLeaseManager;
+  private final Counter fencedWrites;
+
+  @Autowired
+  public LeaseReservationStrategy(ProductRepository productRepository, ProductLeaseManager productLeaseManager,
+                                  MeterRegistry meterRegistry) {
+    this.productRepository = productRepository;
+    this.productLeaseManager = productLeaseManager;
+    this.fencedWrites = meterRegistry.counter("inventory.lease.fenced.writes");
+  }
+
+  @Override
+  protected <T> T updateProduct(String orderId, String productId, Function<Optional<Product>, T> change) {
+
+    ProductLease lease = productLeaseManager.acquire(orderId, productId);
+
+    try {
+      boolean fenced = productRepository.fence(productId, lease.getFencingToken());
+      Optional<Product> product = productRepository.findByProductId(productId);
+
+      if (!fenced && product.isPresent()) {
+        throw leaseExpired(productId);
+      }
+
+      T result = change.apply(product);
+
+      if (product.isPresent() && !productRepository.saveFenced(product.get(), lease.getFencingToken())) {
+        throw leaseExpired(productId);
+      }
+
+      return result;
+
+    } finally {
+      productLeaseManager.release(lease);
+    }
+  }
+
+  @Override
+  protected boolean pushItems(String productId, List<String> itemIds) {
+
+    ProductLease lease = productLeaseManager.acquire(RESTOCK_ORDER_ID, productId);
+
+    try {
+      return productRepository.pushItemsFenced(productId, itemIds, lease.getFencingToken());
+    } finally {
+      productLeaseManager.release(lease);
+    }
+  }
+
+  /**
+   * Takes the leases one after the other in product id order. Each product is
+   * written with the fencing token of its own lease, so without transactions
+   * a lease lost while the products are written leaves the products written
+   * before it reserved.
+   **/
+  @Override
+  protected <T> T updateProducts(String orderId, SortedSet<String> productIds,
+                                 Function<Map<String, Optional<Product>>, T> change) {
+
+    Deque<ProductLease> leases = new ArrayDeque<>(productIds.size());
+
+    try {
+      for (String productId : productIds) {
+        leases.push(productLeaseManager.acquire(orderId, productId));
+      }
+
+      List<String> unfenced = leases.stream()
+        .filter(lease -> !productRepository.fence(lease.getProductId(), lease.getFencingToken()))
+        .map(ProductLease::getProductId)
+        .collect(Collectors.toList());
+
+      Map<String, Optional<Product>> products = byProductId(productIds, productRepository.findAllById(productIds));
+
+      for (String productId : unfenced) {
+        if (products.get(productId).isPresent()) {
+          throw leaseExpired(productId);
+        }
+      }
+
+      T result = change.apply(products);
+
+      for (ProductLease lease : leases) {
+        Optional<Product> product = products.get(lease.getProductId());
+
+        if (product.isPresent() && !productRepository.saveFenced(product.get(), lease.getFencingToken())) {
+          throw leaseExpired(lease.getProductId());
+        }
+      }
+
+      return result;
+
+    } finally {
+      while (!leases.isEmpty()) {
+        productLeaseManager.release(leases.pop());
+      }
+    }
+  }
+
+  private ProductLeaseExpiredException leaseExpired(String productId) {
+    fencedWrites.increment();
+    return new ProductLeaseExpiredException(productId);
+  }
+}
@@ -0,0 +1,132 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.lock.ProductLock;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "locking", matchIfMissing = true)
+public class LockingReservationStrategy extends DocumentReservationStrategy {
+
+  private final ProductRepository productRepository;
+  private final ProductReservationLockManager productReservationLockManager;
+  private final Timer readTime;
+  private final Timer changeTime;
+  private final Timer saveTime;
+
+  /**
+   * Each phase of a product update done under the lock, reading the product,
+   * reserving or releasing its items and saving it, is timed on its own, the
+   * time spent waiting for the lock is timed by the lock manager.
+   **/
+  @Autowired
+  public LockingReservationStrategy(ProductRepository productRepository,
+                                    ProductReservationLockManager productReservationLockManager,
+                                    MeterRegistry meterRegistry) {
+    this.productRepository = productRepository;
+    this.productReservationLockManager = productReservationLockManager;
+    this.readTime = phaseTimer(meterRegistry, "read");
+    this.changeTime = phaseTimer(meterRegistry, "change");
+    this.saveTime = phaseTimer(meterRegistry, "save");
+  }
+
+  /**
+   * Gets a lock based on product id and locks it so that only one request
+   * for the same product can be reserved at once. Other products can be
+   * reserved at the same time by different threads.
+   * Only works within a single JVM, use the atomic-update or lease strategy
+   * when running more than one instance.
+   **/
+  @Override
+  protected <T> T updateProduct(String orderId, String productId, Function<Optional<Product>, T> change) {
+
+    ProductLock lock = productReservationLockManager.getLock(productId);
+
+    lock.lock();
+
+    try {
+      Optional<Product> product = readTime.record(() -> productRepository.findByProductId(productId));
+
+      T result = changeTime.record(() -> change.apply(product));
+
+      saveTime.record(() -> product.ifPresent(productRepository::save));
+      return result;
+
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  protected boolean pushItems(String productId, List<String> itemIds) {
+
+    ProductLock lock = productReservationLockManager.getLock(productId);
+
+    lock.lock();
+
+    try {
+      return productRepository.pushItems(productId, itemIds);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Locks the products one after the other in id order, reads them all at
+   * once and writes them back in a single bulk write. Locks are released in
+   * the reverse order.
+   **/
+  @Override
+  protected <T> T updateProducts(String orderId, SortedSet<String> productIds,
+                                 Function<Map<String, Optional<Product>>, T> change) {
+
+    Deque<ProductLock> locks = new ArrayDeque<>(productIds.size());
+
+    try {
+      for (String productId : productIds) {
+        ProductLock lock = productReservationLockManager.getLock(productId);
+        lock.lock();
+        locks.push(lock);
+      }
+
+      Map<String, Optional<Product>> products = readTime.record(() ->
+        byProductId(productIds, productRepository.findAllById(productIds)));
+
+      T result = changeTime.record(() -> change.apply(products));
+
+      saveTime.record(() -> productRepository.saveInBulk(products.values()
+        .stream()
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .collect(Collectors.toList())));
+      return result;
+
+    } finally {
+      while (!locks.isEmpty()) {
+        locks.pop().unlock();
+      }
+    }
+  }
+
+  private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+    return Timer.builder("inventory.product.update")
+      .tag("phase", phase)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+}
@@ -0,0 +1,77 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Change of a product queued by a request, completed by whichever thread
+ * commits it along with the other changes queued for the same product.
+ **/
+class PendingChange<T> {
+
+  private final Function<Optional<Product>, T> change;
+  private final CompletableFuture<T> result;
+
+  PendingChange(Function<Optional<Product>, T> change) {
+    this.change = change;
+    this.result = new CompletableFuture<>();
+  }
+
+  /**
+   * Reads the product once, applies the changes in order and saves the
+   * product once. A change which throws leaves the product as it was, so it
+   * only fails its own request, while a failed read or save fails them all.
+   **/
+  static void commit(ProductRepository productRepository, String productId, List<PendingChange<?>> changes) {
+    try {
+      Optional<Product> product = productRepository.findByProductId(productId);
+      List<Runnable> completions = new ArrayList<>(changes.size());
+
+      for (PendingChange<?> pendingChange : changes) {
+        completions.add(pendingChange.apply(product));
+      }
+
+      product.ifPresent(productRepository::save);
+      completions.forEach(Runnable::run);
+
+    } catch (RuntimeException e) {
+      changes.forEach(pendingChange -> pendingChange.fail(e));
+    }
+  }
+
+  boolean isDone() {
+    return result.isDone();
+  }
+
+  void fail(RuntimeException e) {
+    result.completeExceptionally(e);
+  }
+
+  /**
+   * Waits for the change to be committed and returns its result, or throws
+   * what made it fail.
+   **/
+  T join() {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      throw (RuntimeException) e.getCause();
+    }
+  }
+
+  private Runnable apply(Optional<Product> product) {
+    try {
+      T value = change.apply(product);
+      return () -> result.complete(value);
+    } catch (RuntimeException e) {
+      return () -> result.completeExceptionally(e);
+    }
+  }
+}
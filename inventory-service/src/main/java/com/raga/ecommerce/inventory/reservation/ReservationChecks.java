@@ -0,0 +1,44 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.vo.Product;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+public final class ReservationChecks {
+
+  private ReservationChecks() {
+  }
+
+  public static Product requireReservable(Optional<Product> product, String productId,
+                                   int quantity, BigDecimal expectedPrice) {
+
+    if (!product.isPresent()) {
+      throw new ProductUnavailableException(productId);
+    }
+
+    Product existingProduct = product.get();
+    requireReservable(productId, existingProduct.getAvailableQuantity(), existingProduct.getPrice(),
+      quantity, expectedPrice);
+    return existingProduct;
+  }
+
+  public static void requireReservable(String productId, int availableQuantity, BigDecimal price,
+                                int quantity, BigDecimal expectedPrice) {
+
+    if (availableQuantity == 0) {
+      throw new ProductUnavailableException(productId);
+    }
+
+    if (availableQuantity < quantity) {
+      throw new ProductAvailableInLessQuantityException(productId, quantity, availableQuantity);
+    }
+
+    if (price.compareTo(expectedPrice) > 0) {
+      throw new ProductPriceIncreasedException(productId, expectedPrice, price);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import java.math.BigDecimal;
+
+/**
+ * Quantity of a product to reserve as part of a reservation of several
+ * products at once.
+ **/
+public class ReservationLine {
+
+  private final String productId;
+  private final int quantity;
+  private final BigDecimal expectedPrice;
+
+  public ReservationLine(String productId, int quantity, BigDecimal expectedPrice) {
+    this.productId = productId;
+    this.quantity = quantity;
+    this.expectedPrice = expectedPrice;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public int getQuantity() {
+    return quantity;
+  }
+
+  public BigDecimal getExpectedPrice() {
+    return expectedPrice;
+  }
+}
@@ -0,0 +1,43 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Way of reserving items of a product so that no item is reserved twice.
+ * The strategy in use is selected with the inventory.reservation.strategy
+ * property.
+ **/
+public interface ReservationStrategy {
+
+  ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice);
+
+  /**
+   * Reserves every line or none of them, the lines being of distinct
+   * products. Products are always taken in the order of their ids so that
+   * batches overlapping on several products cannot deadlock.
+   *
+   * @return the reservation of every line by product id
+   **/
+  Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines);
+
+  /**
+   * Releases the given items of the product which are reserved by the order,
+   * items already released are skipped so that releasing twice is harmless.
+   *
+   * @return the number of items released
+   **/
+  int releaseItems(String orderId, String productId, List<String> itemIds);
+
+  /**
+   * Adds new unreserved items to the product, one batch of a restock. The
+   * product is changed for no longer than it takes to write the batch, so
+   * reservations of the product go on between batches.
+   *
+   * @return the number of items added
+   **/
+  int addItems(String productId, List<String> itemIds);
+}
@@ -0,0 +1,268 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationRejectedException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reserves on a fixed set of single threaded shards instead of locks. Every
+ * product belongs to the shard its id hashes to, and only the thread of that
+ * shard reads and writes it, taking commands off a bounded queue. Commands
+ * are rejected once the queue is full. The shard drains its queue in
+ * batches and commits the commands of the same product together, reading
+ * and saving the product once.
+ * Products stay in the database between commands, like with the locking
+ * strategy this only keeps apart the reservations of a single instance.
+ **/
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.strategy", havingValue = "sharded")
+public class ShardedReservationStrategy extends DocumentReservationStrategy {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShardedReservationStrategy.class);
+
+  private final ProductRepository productRepository;
+  private final List<Shard> shards;
+
+  @Autowired
+  public ShardedReservationStrategy(ProductRepository productRepository, MeterRegistry meterRegistry,
+                                    @Value("${inventory.reservation.sharded.shards:0}") int shardCount,
+                                    @Value("${inventory.reservation.sharded.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${inventory.reservation.sharded.max-batch-size:100}") int maxBatchSize) {
+    this.productRepository = productRepository;
+
+    int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+    this.shards = new ArrayList<>(count);
+
+    for (int index = 0; index < count; index++) {
+      Shard shard = new Shard(index, queueCapacity, maxBatchSize, meterRegistry);
+      shards.add(shard);
+      shard.thread.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    shards.forEach(shard -> shard.thread.interrupt());
+  }
+
+  @Override
+  protected <T> T updateProduct(String orderId, String productId, Function<Optional<Product>, T> change) {
+
+    PendingChange<T> pendingChange = new PendingChange<>(change);
+    shardOf(productId).submit(productId, new ProductCommand(productId, pendingChange));
+    return pendingChange.join();
+  }
+
+  /**
+   * The products may belong to several shards, which are parked one after
+   * the other in shard order while the calling thread changes the products.
+   * Parking in order keeps two such reservations from waiting on each other.
+   **/
+  @Override
+  protected <T> T updateProducts(String orderId, SortedSet<String> productIds,
+                                 Function<Map<String, Optional<Product>>, T> change) {
+
+    SortedSet<Shard> involvedShards = new TreeSet<>((first, second) -> Integer.compare(first.index, second.index));
+    productIds.forEach(productId -> involvedShards.add(shardOf(productId)));
+
+    Deque<ParkCommand> parked = new ArrayDeque<>(involvedShards.size());
+
+    try {
+      for (Shard shard : involvedShards) {
+        ParkCommand park = new ParkCommand();
+        shard.submit(productIds.first(), park);
+        parked.push(park);
+        park.parked.join();
+      }
+
+      Map<String, Optional<Product>> products = byProductId(productIds, productRepository.findAllById(productIds));
+
+      T result = change.apply(products);
+
+      productRepository.saveInBulk(products.values()
+        .stream()
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .collect(Collectors.toList()));
+      return result;
+
+    } finally {
+      parked.forEach(park -> park.released.countDown());
+    }
+  }
+
+  /**
+   * Parks the shard of the product while the items are appended.
+   **/
+  @Override
+  protected boolean pushItems(String productId, List<String> itemIds) {
+
+    ParkCommand park = new ParkCommand();
+    Shard shard = shardOf(productId);
+
+    try {
+      shard.submit(productId, park);
+      park.parked.join();
+      return productRepository.pushItems(productId, itemIds);
+    } finally {
+      park.released.countDown();
+    }
+  }
+
+  private Shard shardOf(String productId) {
+    return shards.get(Math.floorMod(productId.hashCode(), shards.size()));
+  }
+
+  private interface Command {
+  }
+
+  private static class ProductCommand implements Command {
+
+    private final String productId;
+    private final PendingChange<?> pendingChange;
+
+    private ProductCommand(String productId, PendingChange<?> pendingChange) {
+      this.productId = productId;
+      this.pendingChange = pendingChange;
+    }
+  }
+
+  /**
+   * Holds the shard until released, so that nothing else changes its
+   * products meanwhile.
+   **/
+  private static class ParkCommand implements Command {
+
+    private final CompletableFuture<Void> parked = new CompletableFuture<>();
+    private final CountDownLatch released = new CountDownLatch(1);
+  }
+
+  private class Shard implements Runnable {
+
+    private final int index;
+    private final int maxBatchSize;
+    private final BlockingQueue<Command> commands;
+    private final Thread thread;
+    private final Timer serviceTime;
+    private final Counter rejections;
+
+    private Shard(int index, int queueCapacity, int maxBatchSize, MeterRegistry meterRegistry) {
+      this.index = index;
+      this.maxBatchSize = maxBatchSize;
+      this.commands = new ArrayBlockingQueue<>(queueCapacity);
+      this.thread = new Thread(this, "reservation-shard-" + index);
+      this.thread.setDaemon(true);
+
+      Tags tags = Tags.of("shard", String.valueOf(index));
+      this.serviceTime = meterRegistry.timer("inventory.shard.service.time", tags);
+      this.rejections = meterRegistry.counter("inventory.shard.rejections", tags);
+      meterRegistry.gauge("inventory.shard.queue.depth", tags, commands, Collection::size);
+    }
+
+    private void submit(String productId, Command command) {
+      if (!commands.offer(command)) {
+        rejections.increment();
+        throw new ProductReservationRejectedException(productId);
+      }
+    }
+
+    @Override
+    public void run() {
+      List<Command> batch = new ArrayList<>(maxBatchSize);
+
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          batch.add(commands.take());
+          commands.drainTo(batch, maxBatchSize - 1);
+
+          long start = System.nanoTime();
+          execute(batch);
+          serviceTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      commands.drainTo(batch);
+      batch.forEach(this::reject);
+      LOGGER.info("Reservation shard {} stopped", index);
+    }
+
+    /**
+     * Fails a command left over once the shard stopped, which is a no-op for
+     * commands already committed.
+     **/
+    private void reject(Command command) {
+      IllegalStateException stopped = new IllegalStateException("Reservation shard " + index + " stopped");
+
+      if (command instanceof ParkCommand) {
+        ((ParkCommand) command).parked.completeExceptionally(stopped);
+      } else {
+        ((ProductCommand) command).pendingChange.fail(stopped);
+      }
+    }
+
+    /**
+     * Commands of the same product are committed together, up to the next
+     * park command so that the products are left as the commands before it
+     * made them.
+     **/
+    private void execute(List<Command> batch) throws InterruptedException {
+      Map<String, List<PendingChange<?>>> changesByProduct = new LinkedHashMap<>();
+
+      for (Command command : batch) {
+        if (command instanceof ParkCommand) {
+          commit(changesByProduct);
+          park((ParkCommand) command);
+        } else {
+          ProductCommand productCommand = (ProductCommand) command;
+          changesByProduct.computeIfAbsent(productCommand.productId, productId -> new ArrayList<>())
+            .add(productCommand.pendingChange);
+        }
+      }
+
+      commit(changesByProduct);
+    }
+
+    private void commit(Map<String, List<PendingChange<?>>> changesByProduct) {
+      changesByProduct.forEach((productId, changes) -> PendingChange.commit(productRepository, productId, changes));
+      changesByProduct.clear();
+    }
+
+    private void park(ParkCommand park) throws InterruptedException {
+      park.parked.complete(null);
+      park.released.await();
+    }
+  }
+}
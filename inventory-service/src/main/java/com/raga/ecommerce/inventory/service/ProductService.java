@@ -1,93 +1,256 @@
 package com.raga.ecommerce.inventory.service;
 
-import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
-import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
-import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
-import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.catalog.AvailableProductsIndex;
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.exception.ProductReservedTwiceException;
+import com.raga.ecommerce.inventory.exception.ReservationNotFoundException;
+import com.raga.ecommerce.inventory.hold.ReservationHolds;
 import com.raga.ecommerce.inventory.repository.ProductRepository;
-import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.reservation.ReservationLine;
+import com.raga.ecommerce.inventory.reservation.ReservationStrategy;
 import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
+import com.raga.ecommerce.inventory.vo.Reservation;
 import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+  private static final String PRODUCT_ID_FIELD = "productId";
+
   private final ProductRepository productRepository;
-  private final ProductReservationLockManager productReservationLockManager;
+  private final ReservationStrategy reservationStrategy;
+  private final Optional<AvailableProductsIndex> availableProductsIndex;
+  private final ReservationHolds reservationHolds;
+  private final ReservationAdmission reservationAdmission;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int restockBatchSize;
+  private final Timer reserveTime;
+  private final Timer recordTime;
+  private final Timer publishTime;
 
+  /**
+   * Reservations are timed by phase, the strategy reserving the items, the
+   * reservation being recorded and the stock change being published.
+   **/
   @Autowired
-  public ProductService(ProductRepository productRepository,
-                        ProductReservationLockManager productReservationLockManager) {
+  public ProductService(ProductRepository productRepository, ReservationStrategy reservationStrategy,
+                        Optional<AvailableProductsIndex> availableProductsIndex, ReservationHolds reservationHolds,
+                        ReservationAdmission reservationAdmission, ApplicationEventPublisher eventPublisher,
+                        MeterRegistry meterRegistry,
+                        @Value("${inventory.restock.batch-size:1000}") int restockBatchSize) {
     this.productRepository = productRepository;
-    this.productReservationLockManager = productReservationLockManager;
+    this.reservationStrategy = reservationStrategy;
+    this.availableProductsIndex = availableProductsIndex;
+    this.reservationHolds = reservationHolds;
+    this.reservationAdmission = reservationAdmission;
+    this.eventPublisher = eventPublisher;
+    this.restockBatchSize = restockBatchSize;
+    this.reserveTime = phaseTimer(meterRegistry, "reserve");
+    this.recordTime = phaseTimer(meterRegistry, "record");
+    this.publishTime = phaseTimer(meterRegistry, "publish");
   }
 
   public List<Product> getAvailableProducts() {
-    return productRepository.findAll()
-      .stream()
-      .filter(product -> !product.getUnreservedItems().isEmpty())
-      .collect(Collectors.toList());
+    return loadedIndex()
+      .map(AvailableProductsIndex::getAvailableProducts)
+      .orElseGet(productRepository::findAvailableProducts);
   }
 
   /**
-   * Gets a lock based on product id and locks it so that only one request
-   * for the same product can be reserved at once. Other products can be
-   * reserved at the same time by different threads.
-   * TODO: Implement mechanism to reserve item in case of multiple JVMs
+   * At most size available products with an id after the cursor, from the
+   * first available product if there is no cursor.
    **/
-  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+  public List<Product> getAvailableProducts(String cursor, int size) {
+    Optional<AvailableProductsIndex> index = loadedIndex();
 
-    Lock lock = productReservationLockManager.getLock(productId);
+    if (index.isPresent()) {
+      return index.get().getAvailableProducts(cursor, size);
+    }
 
-    lock.lock();
+    PageRequest page = PageRequest.of(0, size, Sort.by(PRODUCT_ID_FIELD));
+    return productRepository.findAvailableProductsAfter(Objects.isNull(cursor) ? "" : cursor, page);
+  }
 
-    try {
-      Optional<Product> product = productRepository.findByProductId(productId);
+  /**
+   * Available products along with their available quantity, read from the
+   * index at once or from the database in a single pass, so the quantities
+   * match the products listed.
+   **/
+  public List<ProductAvailability> getProductAvailability() {
+    Optional<AvailableProductsIndex> index = loadedIndex();
 
-      if (!product.isPresent() || product.get().getUnreservedItems().isEmpty()) {
-        throw new ProductUnavailableException(productId);
-      }
+    if (index.isPresent()) {
+      return index.get().getProductAvailability();
+    }
 
-      Product existingProduct = product.get();
-      int availableQuantity = existingProduct.getUnreservedItems().size();
+    try (Stream<Product> products = productRepository.streamProductAvailability()) {
+      return products
+        .map(product -> new ProductAvailability(product, product.getAvailableQuantity()))
+        .collect(Collectors.toList());
+    }
+  }
 
-      if (availableQuantity < quantity) {
-        throw new ProductAvailableInLessQuantityException(productId, quantity, availableQuantity);
-      }
+  /**
+   * Available products as they are read from the database, the stream has to
+   * be closed once consumed.
+   **/
+  public Stream<Product> streamAvailableProducts() {
+    return loadedIndex()
+      .map(AvailableProductsIndex::streamAvailableProducts)
+      .orElseGet(productRepository::streamAvailableProducts);
+  }
+
+  /**
+   * Reserves the items once per order and product, a repeated reservation
+   * returns the items reserved the first time. Reservations beyond the ones
+   * admitted at once are throttled, repeated ones never are. Items which
+   * cannot be recorded as reserved are released again.
+   **/
+  public ReserveProductResponse reserveItems(String orderId, String productId, int quantity, BigDecimal expectedPrice) {
+    return reservationHolds.reserveOnce(orderId, productId, () -> reservationAdmission.admit(() -> {
+      ReserveProductResponse response = reserveTime.record(() ->
+        reservationStrategy.reserveItems(orderId, productId, quantity, expectedPrice));
 
-      if (existingProduct.getPrice().compareTo(expectedPrice) > 0) {
-        throw new ProductPriceIncreasedException(productId, expectedPrice, existingProduct.getPrice());
+      recordTime.record(() -> reservationHolds.record(orderId, productId, response));
+      publishTime.record(() -> eventPublisher.publishEvent(new ProductStockChangedEvent(productId, -quantity)));
+      return response;
+    }));
+  }
+
+  /**
+   * Reserves every line or none of them. Lines the order reserved already
+   * return the items reserved the first time, even when the same lines are
+   * being reserved concurrently. The lines left to reserve are admitted as a
+   * single reservation, and released together if any of them cannot be
+   * recorded.
+   *
+   * @return the reservation of every line by product id
+   **/
+  public Map<String, ReserveProductResponse> reserveItems(String orderId, List<ReservationLine> lines) {
+    Map<String, ReservationLine> linesByProductId = new LinkedHashMap<>();
+
+    for (ReservationLine line : lines) {
+      if (Objects.nonNull(linesByProductId.put(line.getProductId(), line))) {
+        throw new ProductReservedTwiceException(line.getProductId());
       }
+    }
+
+    return reservationHolds.reserveOnce(orderId, new ArrayList<>(linesByProductId.keySet()), productIds -> {
+      List<ReservationLine> linesToReserve = productIds.stream()
+        .map(linesByProductId::get)
+        .collect(Collectors.toList());
 
-      List<String> items = selectItems(orderId, quantity, existingProduct);
+      return reservationAdmission.admit(() -> {
+        Map<String, ReserveProductResponse> reserved = reserveTime.record(() ->
+          reservationStrategy.reserveItems(orderId, linesToReserve));
 
-      return new ReserveProductResponse(items, existingProduct.getPrice());
+        recordTime.record(() -> reservationHolds.record(orderId, reserved));
 
+        publishTime.record(() -> linesToReserve.forEach(line ->
+          eventPublisher.publishEvent(new ProductStockChangedEvent(line.getProductId(), -line.getQuantity()))));
+        return reserved;
+      });
+    });
+  }
+
+  /**
+   * Makes the holds of the order permanent.
+   *
+   * @return the reservations of the order
+   **/
+  public List<Reservation> confirmReservations(String orderId) {
+    List<Reservation> reservations = reservationHolds.confirm(orderId);
+
+    if (reservations.isEmpty()) {
+      throw new ReservationNotFoundException(orderId);
+    }
+
+    return reservations;
+  }
+
+  /**
+   * Releases every item reserved by the order.
+   *
+   * @return the reservations released
+   **/
+  public List<Reservation> releaseReservations(String orderId) {
+    List<Reservation> reservations = reservationHolds.release(orderId);
+
+    if (reservations.isEmpty()) {
+      throw new ReservationNotFoundException(orderId);
+    }
+
+    return reservations;
+  }
+
+  /**
+   * Adds the items to the product in batches, each written before the next
+   * one is read, so a restock holds a single batch in memory however many
+   * items it brings. The items read before a failure to read are added all
+   * the same, a batch which failed to be added is not added again.
+   *
+   * @return the number of items added
+   **/
+  public int restock(String productId, Iterator<String> itemIds) {
+    List<String> batch = new ArrayList<>(restockBatchSize);
+    int added = 0;
+
+    try {
+      while (itemIds.hasNext()) {
+        batch.add(itemIds.next());
+
+        if (batch.size() == restockBatchSize) {
+          List<String> fullBatch = batch;
+          batch = new ArrayList<>(restockBatchSize);
+          added += addItems(productId, fullBatch);
+        }
+      }
     } finally {
-      lock.unlock();
+      if (!batch.isEmpty()) {
+        added += addItems(productId, batch);
+      }
     }
+
+    return added;
   }
 
-  private List<String> selectItems(String orderId, int quantity, Product product) {
-    List<String> itemsSelected = new ArrayList<>();
+  private int addItems(String productId, List<String> batch) {
+    int added = reservationStrategy.addItems(productId, batch);
 
-    for (int i = 0; i < quantity; i++) {
-      Item firstUnreservedItem = product.getUnreservedItems().get(0);
-      String itemId = firstUnreservedItem.getItemId();
-      itemsSelected.add(itemId);
-      firstUnreservedItem.reserve(orderId);
+    if (added > 0) {
+      eventPublisher.publishEvent(new ProductStockChangedEvent(productId, added));
     }
+    return added;
+  }
+
+  private Optional<AvailableProductsIndex> loadedIndex() {
+    return availableProductsIndex.filter(AvailableProductsIndex::isLoaded);
+  }
 
-    productRepository.save(product);
-    return itemsSelected;
+  private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+    return Timer.builder("inventory.reservation.phase")
+      .tag("phase", phase)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
   }
 }
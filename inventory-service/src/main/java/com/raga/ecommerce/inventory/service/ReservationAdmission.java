@@ -0,0 +1,51 @@
+package com.raga.ecommerce.inventory.service;
+
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limits the reservations in progress at once, a reservation beyond the limit
+ * is throttled right away instead of waiting. Keeps reservations of hot
+ * products from taking every request thread, so that the catalog is still
+ * served while they pile up.
+ **/
+@Component
+public class ReservationAdmission {
+
+  private final int maxInFlight;
+  private final Semaphore permits;
+  private final Counter rejections;
+
+  @Autowired
+  public ReservationAdmission(MeterRegistry meterRegistry,
+                              @Value("${inventory.admission.max-in-flight:100}") int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+    this.rejections = meterRegistry.counter("inventory.admission.rejections");
+    meterRegistry.gauge("inventory.admission.in-flight", this, ReservationAdmission::getInFlightCount);
+  }
+
+  public <T> T admit(Supplier<T> reservation) {
+    if (!permits.tryAcquire()) {
+      rejections.increment();
+      throw new ReservationThrottledException();
+    }
+
+    try {
+      return reservation.get();
+    } finally {
+      permits.release();
+    }
+  }
+
+  public int getInFlightCount() {
+    return maxInFlight - permits.availablePermits();
+  }
+}
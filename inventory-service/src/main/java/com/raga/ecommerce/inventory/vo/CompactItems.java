@@ -0,0 +1,281 @@
+package com.raga.ecommerce.inventory.vo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Items of a product in a compact form, for products kept in memory. Items
+ * are slots indexed by position, whether a slot is reserved is a bit, and the
+ * order holding it an int code into a table of the distinct order ids of the
+ * product. Nothing is allocated per item beyond its id, against an item
+ * object and an order id string per reserved item for {@link Item}. The code
+ * of an order is reused once the order holds no slot any more, so the table
+ * only holds the orders holding items.
+ **/
+public class CompactItems {
+
+  private static final int UNRESERVED = -1;
+
+  private String[] itemIds;
+  private int[] orderCodes;
+  private final BitSet reserved;
+  private final List<String> orderIds;
+  private final Map<String, Integer> orderCodesById;
+  private final Deque<Integer> freeOrderCodes;
+  private int[] slotCountsByOrderCode;
+  private int size;
+  private int availableQuantity;
+  private int unreservedCursor;
+
+  public CompactItems() {
+    this.itemIds = new String[0];
+    this.orderCodes = new int[0];
+    this.reserved = new BitSet();
+    this.orderIds = new ArrayList<>();
+    this.orderCodesById = new HashMap<>();
+    this.freeOrderCodes = new ArrayDeque<>();
+    this.slotCountsByOrderCode = new int[0];
+  }
+
+  public static CompactItems of(List<Item> items) {
+    CompactItems compactItems = new CompactItems();
+    compactItems.ensureCapacity(items.size());
+
+    for (Item item : items) {
+      int slot = compactItems.size++;
+      compactItems.availableQuantity++;
+      compactItems.itemIds[slot] = item.getItemId();
+      compactItems.orderCodes[slot] = UNRESERVED;
+
+      if (!item.isNotReserved()) {
+        compactItems.mark(slot, item.getReservedByOrderId());
+      }
+    }
+
+    compactItems.unreservedCursor = compactItems.reserved.nextClearBit(0);
+    return compactItems;
+  }
+
+  /**
+   * Items from their ids and the ids of the orders reserving them, null for
+   * the unreserved ones, in slot order.
+   **/
+  public static CompactItems of(String[] itemIds, String[] reservedByOrderIds) {
+    CompactItems compactItems = new CompactItems();
+    compactItems.itemIds = Arrays.copyOf(itemIds, itemIds.length);
+    compactItems.orderCodes = new int[itemIds.length];
+    compactItems.size = itemIds.length;
+    compactItems.availableQuantity = itemIds.length;
+
+    for (int slot = 0; slot < itemIds.length; slot++) {
+      compactItems.orderCodes[slot] = UNRESERVED;
+
+      if (Objects.nonNull(reservedByOrderIds[slot])) {
+        compactItems.mark(slot, reservedByOrderIds[slot]);
+      }
+    }
+
+    compactItems.unreservedCursor = compactItems.reserved.nextClearBit(0);
+    return compactItems;
+  }
+
+  /**
+   * Items in their persisted form, in slot order.
+   **/
+  public List<Item> toItems() {
+    List<Item> items = new ArrayList<>(size);
+
+    for (int slot = 0; slot < size; slot++) {
+      Item item = new Item(itemIds[slot]);
+
+      if (reserved.get(slot)) {
+        item.reserve(orderIds.get(orderCodes[slot]));
+      }
+
+      items.add(item);
+    }
+
+    return items;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getAvailableQuantity() {
+    return availableQuantity;
+  }
+
+  public String getItemId(int slot) {
+    return itemIds[slot];
+  }
+
+  public String getReservedByOrderId(int slot) {
+    return reserved.get(slot) ? orderIds.get(orderCodes[slot]) : null;
+  }
+
+  public void addItems(List<String> newItemIds) {
+    ensureCapacity(size + newItemIds.size());
+
+    for (String itemId : newItemIds) {
+      itemIds[size] = itemId;
+      orderCodes[size] = UNRESERVED;
+      size++;
+    }
+
+    availableQuantity += newItemIds.size();
+  }
+
+  /**
+   * Reserves the first unreserved slots for the order, skipping reserved
+   * slots a word of bits at a time.
+   *
+   * @return the slots reserved
+   **/
+  public int[] reserve(String orderId, int quantity) {
+    if (quantity > getAvailableQuantity()) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot reserve %d items, only %d available", quantity, getAvailableQuantity()));
+    }
+
+    int[] slots = new int[quantity];
+    int slot = unreservedCursor;
+
+    for (int index = 0; index < quantity; index++) {
+      slot = reserved.nextClearBit(slot);
+      mark(slot, orderId);
+      slots[index] = slot;
+    }
+
+    unreservedCursor = reserved.nextClearBit(slot);
+    return slots;
+  }
+
+  /**
+   * Releases the given items which are reserved by the order.
+   *
+   * @return the number of items released
+   **/
+  public int release(String orderId, Collection<String> releasedItemIds) {
+    int[] slots = getReservedSlots(orderId, releasedItemIds);
+
+    for (int slot : slots) {
+      releaseAt(slot, orderId);
+    }
+
+    return slots.length;
+  }
+
+  /**
+   * Slots of the given items which are reserved by the order.
+   **/
+  public int[] getReservedSlots(String orderId, Collection<String> reservedItemIds) {
+    Integer orderCode = orderCodesById.get(orderId);
+
+    if (Objects.isNull(orderCode)) {
+      return new int[0];
+    }
+
+    Set<String> reservedItems = new HashSet<>(reservedItemIds);
+    int[] slots = new int[reservedItems.size()];
+    int count = 0;
+
+    for (int slot = reserved.nextSetBit(0); slot >= 0 && slot < size; slot = reserved.nextSetBit(slot + 1)) {
+      if (orderCodes[slot] == orderCode && reservedItems.contains(itemIds[slot])) {
+        slots[count++] = slot;
+      }
+    }
+
+    return Arrays.copyOf(slots, count);
+  }
+
+  /**
+   * Reserves the slot for the order unless it is reserved already.
+   *
+   * @return whether the slot got reserved
+   **/
+  public boolean reserveAt(int slot, String orderId) {
+    if (reserved.get(slot)) {
+      return false;
+    }
+
+    mark(slot, orderId);
+    if (slot == unreservedCursor) {
+      unreservedCursor = reserved.nextClearBit(slot);
+    }
+    return true;
+  }
+
+  /**
+   * Releases the slot if the order reserved it.
+   *
+   * @return whether the slot got released
+   **/
+  public boolean releaseAt(int slot, String orderId) {
+    Integer orderCode = orderCodesById.get(orderId);
+
+    if (!reserved.get(slot) || Objects.isNull(orderCode) || orderCodes[slot] != orderCode) {
+      return false;
+    }
+
+    reserved.clear(slot);
+    orderCodes[slot] = UNRESERVED;
+    availableQuantity++;
+    unreservedCursor = Math.min(unreservedCursor, slot);
+
+    if (--slotCountsByOrderCode[orderCode] == 0) {
+      orderCodesById.remove(orderId);
+      orderIds.set(orderCode, null);
+      freeOrderCodes.push(orderCode);
+    }
+    return true;
+  }
+
+  /**
+   * Number of distinct orders holding slots.
+   **/
+  public int getOrderCount() {
+    return orderCodesById.size();
+  }
+
+  private void mark(int slot, String orderId) {
+    int orderCode = orderCodesById.computeIfAbsent(orderId, this::assignOrderCode);
+
+    reserved.set(slot);
+    orderCodes[slot] = orderCode;
+    slotCountsByOrderCode[orderCode]++;
+    availableQuantity--;
+  }
+
+  private int assignOrderCode(String orderId) {
+    if (!freeOrderCodes.isEmpty()) {
+      int orderCode = freeOrderCodes.pop();
+      orderIds.set(orderCode, orderId);
+      return orderCode;
+    }
+
+    orderIds.add(orderId);
+    if (orderIds.size() > slotCountsByOrderCode.length) {
+      slotCountsByOrderCode = Arrays.copyOf(slotCountsByOrderCode, Math.max(4, orderIds.size() * 2));
+    }
+    return orderIds.size() - 1;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > itemIds.length) {
+      int newCapacity = Math.max(capacity, itemIds.length + (itemIds.length >> 1));
+      itemIds = Arrays.copyOf(itemIds, newCapacity);
+      orderCodes = Arrays.copyOf(orderCodes, newCapacity);
+    }
+  }
+}
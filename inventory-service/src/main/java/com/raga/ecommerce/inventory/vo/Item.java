@@ -15,6 +15,10 @@ public class Item {
     return itemId;
   }
 
+  public String getReservedByOrderId() {
+    return reservedByOrderId;
+  }
+
   public boolean reserve(String orderId) {
     if (Objects.isNull(reservedByOrderId)) {
       reservedByOrderId = orderId;
@@ -24,6 +28,15 @@ public class Item {
     }
   }
 
+  public boolean release(String orderId) {
+    if (Objects.equals(reservedByOrderId, orderId)) {
+      reservedByOrderId = null;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
   public boolean isNotReserved() {
     return Objects.isNull(reservedByOrderId);
   }
@@ -0,0 +1,99 @@
+package com.raga.ecommerce.inventory.vo;
+
+import java.util.Objects;
+
+/**
+ * Run of item ids made of the same prefix followed by consecutive numbers
+ * zero-padded to the same width, such as {@code SKU123-000001} to
+ * {@code SKU123-100000}. An id which does not end with a number is a range of
+ * its own, with a width of zero.
+ **/
+public class ItemRange {
+
+  private static final int MAX_WIDTH = 18;
+
+  private String prefix;
+  private long start;
+  private long end;
+  private int width;
+
+  public ItemRange(String prefix, long start, long end, int width) {
+    this.prefix = prefix;
+    this.start = start;
+    this.end = end;
+    this.width = width;
+  }
+
+  public static ItemRange of(String itemId) {
+    int numberStart = itemId.length();
+    while (numberStart > 0 && Character.isDigit(itemId.charAt(numberStart - 1))) {
+      numberStart--;
+    }
+
+    int width = itemId.length() - numberStart;
+    if (width == 0 || width > MAX_WIDTH) {
+      return new ItemRange(itemId, 0, 0, 0);
+    }
+
+    long number = Long.parseLong(itemId.substring(numberStart));
+    return new ItemRange(itemId.substring(0, numberStart), number, number, width);
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int size() {
+    return (int) (end - start + 1);
+  }
+
+  public String getItemId(int offset) {
+    if (width == 0) {
+      return prefix;
+    }
+
+    String number = Long.toString(start + offset);
+    StringBuilder itemId = new StringBuilder(prefix.length() + Math.max(width, number.length())).append(prefix);
+    for (int padding = number.length(); padding < width; padding++) {
+      itemId.append('0');
+    }
+    return itemId.append(number).toString();
+  }
+
+  /**
+   * Offset of the item id given as a range of its own in this range.
+   *
+   * @return the offset, or -1 if the id is not in this range
+   **/
+  public int offsetOf(ItemRange itemId) {
+    if (width != itemId.width || !prefix.equals(itemId.prefix) || itemId.start < start || itemId.start > end) {
+      return -1;
+    }
+    return (int) (itemId.start - start);
+  }
+
+  /**
+   * Extends this range with the given one if it follows on directly.
+   *
+   * @return whether the range got extended
+   **/
+  public boolean extendWith(ItemRange next) {
+    if (width == 0 || width != next.width || next.start != end + 1 || !Objects.equals(prefix, next.prefix)) {
+      return false;
+    }
+    end = next.end;
+    return true;
+  }
+}
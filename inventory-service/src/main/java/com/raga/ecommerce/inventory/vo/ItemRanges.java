@@ -0,0 +1,221 @@
+package com.raga.ecommerce.inventory.vo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Items of a product stored as ranges of item ids, a bitmap of the reserved
+ * positions and the runs of positions reserved by each order, in place of an
+ * embedded document per item. Sequential item ids take a range for the whole
+ * run and orders reserve consecutive positions, so the stored size depends on
+ * the number of ranges and orders rather than on the number of items. Item
+ * ids are only decoded for the positions asked for.
+ **/
+public class ItemRanges {
+
+  private static final int FULL_BYTE = 0xFF;
+
+  private List<ItemRange> ranges;
+  private byte[] reserved;
+  private List<ReservedRun> reservedRuns;
+  private int size;
+
+  public ItemRanges() {
+    this.ranges = new ArrayList<>();
+    this.reserved = new byte[0];
+    this.reservedRuns = new ArrayList<>();
+  }
+
+  public static ItemRanges encode(List<Item> items) {
+    ItemRanges itemRanges = new ItemRanges();
+    List<String> itemIds = new ArrayList<>(items.size());
+    items.forEach(item -> itemIds.add(item.getItemId()));
+    itemRanges.addItems(itemIds);
+
+    for (int position = 0; position < items.size(); position++) {
+      if (!items.get(position).isNotReserved()) {
+        itemRanges.reserve(position, items.get(position).getReservedByOrderId());
+      }
+    }
+
+    return itemRanges;
+  }
+
+  public List<ItemRange> getRanges() {
+    return ranges;
+  }
+
+  public List<ReservedRun> getReservedRuns() {
+    return reservedRuns;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void addItems(List<String> itemIds) {
+    for (String itemId : itemIds) {
+      ItemRange next = ItemRange.of(itemId);
+      if (ranges.isEmpty() || !ranges.get(ranges.size() - 1).extendWith(next)) {
+        ranges.add(next);
+      }
+    }
+
+    size += itemIds.size();
+    reserved = Arrays.copyOf(reserved, (size + 7) / 8);
+  }
+
+  public String getItemId(int position) {
+    int offset = position;
+
+    for (ItemRange range : ranges) {
+      if (offset < range.size()) {
+        return range.getItemId(offset);
+      }
+      offset -= range.size();
+    }
+
+    throw new IndexOutOfBoundsException(String.format("Position %d of %d items", position, size));
+  }
+
+  /**
+   * Position of the item, found from its id without decoding any other.
+   *
+   * @return the position, or -1 if the product has no such item
+   **/
+  public int positionOf(String itemId) {
+    ItemRange probe = ItemRange.of(itemId);
+    int rangeStart = 0;
+
+    for (ItemRange range : ranges) {
+      int offset = range.offsetOf(probe);
+      if (offset >= 0) {
+        return rangeStart + offset;
+      }
+      rangeStart += range.size();
+    }
+
+    return -1;
+  }
+
+  public boolean isReserved(int position) {
+    return (reserved[position >> 3] & (1 << (position & 7))) != 0;
+  }
+
+  /**
+   * First unreserved position from the given one, skipping fully reserved
+   * bytes of the bitmap.
+   **/
+  public int nextUnreserved(int from) {
+    int position = from;
+
+    while (position < size) {
+      if ((position & 7) == 0 && (reserved[position >> 3] & FULL_BYTE) == FULL_BYTE) {
+        position += 8;
+      } else if (isReserved(position)) {
+        position++;
+      } else {
+        return position;
+      }
+    }
+
+    return size;
+  }
+
+  public String getReservedByOrderId(int position) {
+    int index = runAt(position);
+    return index >= 0 && reservedRuns.get(index).contains(position) ? reservedRuns.get(index).getOrderId() : null;
+  }
+
+  public void reserve(int position, String orderId) {
+    if (isReserved(position)) {
+      throw new IllegalStateException(String.format("Item at position %d is reserved already", position));
+    }
+
+    reserved[position >> 3] |= 1 << (position & 7);
+
+    int index = runAt(position);
+    ReservedRun before = index >= 0 ? reservedRuns.get(index) : null;
+    ReservedRun after = index + 1 < reservedRuns.size() ? reservedRuns.get(index + 1) : null;
+    boolean extendsBefore = Objects.nonNull(before) && before.getTo() == position
+      && before.getOrderId().equals(orderId);
+    boolean extendsAfter = Objects.nonNull(after) && after.getFrom() == position + 1
+      && after.getOrderId().equals(orderId);
+
+    if (extendsBefore && extendsAfter) {
+      before.setTo(after.getTo());
+      reservedRuns.remove(index + 1);
+    } else if (extendsBefore) {
+      before.setTo(position + 1);
+    } else if (extendsAfter) {
+      after.setFrom(position);
+    } else {
+      reservedRuns.add(index + 1, new ReservedRun(orderId, position, position + 1));
+    }
+  }
+
+  /**
+   * Releases the item at the position if the order reserved it.
+   *
+   * @return whether the item got released
+   **/
+  public boolean release(int position, String orderId) {
+    int index = runAt(position);
+
+    if (index < 0 || !reservedRuns.get(index).contains(position)
+      || !reservedRuns.get(index).getOrderId().equals(orderId)) {
+      return false;
+    }
+
+    reserved[position >> 3] &= ~(1 << (position & 7));
+
+    ReservedRun run = reservedRuns.get(index);
+    if (run.getTo() - run.getFrom() == 1) {
+      reservedRuns.remove(index);
+    } else if (position == run.getFrom()) {
+      run.setFrom(position + 1);
+    } else if (position == run.getTo() - 1) {
+      run.setTo(position);
+    } else {
+      reservedRuns.add(index + 1, new ReservedRun(orderId, position + 1, run.getTo()));
+      run.setTo(position);
+    }
+
+    return true;
+  }
+
+  public List<Item> toItems() {
+    List<Item> items = new ArrayList<>(size);
+
+    for (int position = 0; position < size; position++) {
+      Item item = new Item(getItemId(position));
+      if (isReserved(position)) {
+        item.reserve(getReservedByOrderId(position));
+      }
+      items.add(item);
+    }
+
+    return items;
+  }
+
+  /**
+   * Index of the last run starting at or before the position, or -1.
+   **/
+  private int runAt(int position) {
+    int low = 0;
+    int high = reservedRuns.size() - 1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (reservedRuns.get(middle).getFrom() <= position) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return high;
+  }
+}
@@ -1,11 +1,19 @@
 package com.raga.ecommerce.inventory.vo;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Document
@@ -17,6 +25,31 @@ public class Product {
   private BigDecimal price;
   private List<Item> items;
 
+  /**
+   * Items stored as ranges of ids in place of the embedded items, for products
+   * migrated to that encoding. Only the strategies writing back the whole
+   * document can reserve such products.
+   **/
+  private ItemRanges itemRanges;
+
+  /**
+   * Number of unreserved items and the position before which every item is
+   * reserved. Both are persisted along with the items so that a product loaded
+   * from the database can be reserved without scanning its items. They are
+   * computed once for documents saved before they were introduced.
+   **/
+  @Indexed
+  private Integer availableQuantity;
+  private Integer unreservedCursor;
+
+  /**
+   * Position of every embedded item by item id, built on the first lookup and
+   * kept up to date as items are added, so that a release looks up the items
+   * it releases instead of scanning every item.
+   **/
+  @Transient
+  private Map<String, Integer> positionsByItemId;
+
   public Product(String productId, String productName, BigDecimal price) {
     this.productId = productId;
     this.productName = productName;
@@ -36,21 +69,202 @@ public class Product {
     return price;
   }
 
+  /**
+   * Items of the product, decoded if they are stored as ranges, in which case
+   * changes to them are not kept.
+   **/
   public List<Item> getItems() {
-    return items;
+    return hasItemRanges() ? itemRanges.toItems() : items;
+  }
+
+  public ItemRanges getItemRanges() {
+    return itemRanges;
+  }
+
+  public boolean hasItemRanges() {
+    return Objects.nonNull(itemRanges);
+  }
+
+  public int getItemCount() {
+    return hasItemRanges() ? itemRanges.size() : items.size();
   }
 
   public List<Item> getUnreservedItems() {
-    return items.stream()
+    return getItems().stream()
       .filter(Item::isNotReserved)
       .collect(Collectors.toList());
   }
 
+  public int getAvailableQuantity() {
+    indexItems();
+    return availableQuantity;
+  }
+
+  public int getUnreservedCursor() {
+    indexItems();
+    return unreservedCursor;
+  }
+
+  public boolean hasUnreservedItems() {
+    return getAvailableQuantity() > 0;
+  }
+
   public void addItems(List<String> itemIds) {
-    List<Item> itemsToBeAdded = itemIds.stream()
-      .map(Item::new)
-      .collect(Collectors.toList());
+    indexItems();
+
+    if (hasItemRanges()) {
+      itemRanges.addItems(itemIds);
+    } else {
+      for (String itemId : itemIds) {
+        if (Objects.nonNull(positionsByItemId)) {
+          positionsByItemId.putIfAbsent(itemId, items.size());
+        }
+        items.add(new Item(itemId));
+      }
+    }
+
+    this.availableQuantity += itemIds.size();
+  }
+
+  /**
+   * Moves the embedded items of the product to ranges of item ids.
+   **/
+  public void encodeItemRanges() {
+    if (!hasItemRanges()) {
+      itemRanges = ItemRanges.encode(items);
+      items = new ArrayList<>();
+      positionsByItemId = null;
+    }
+  }
+
+  /**
+   * Reserves the first unreserved items starting from the cursor, hence the
+   * cost depends on the quantity and not on the number of items. Items have to
+   * be reserved through this method for the available quantity to stay right.
+   **/
+  public List<Item> reserveItems(String orderId, int quantity) {
+    List<Integer> positions = getUnreservedPositions(quantity);
+    List<Item> itemsReserved = new ArrayList<>(quantity);
+
+    for (int position : positions) {
+      Item item;
+      if (hasItemRanges()) {
+        itemRanges.reserve(position, orderId);
+        item = new Item(itemRanges.getItemId(position));
+      } else {
+        item = items.get(position);
+      }
+      item.reserve(orderId);
+      itemsReserved.add(item);
+    }
+
+    availableQuantity -= quantity;
+    unreservedCursor = firstUnreservedPosition(unreservedCursor);
+    return itemsReserved;
+  }
+
+  /**
+   * Releases the given items which are reserved by the order, and moves the
+   * cursor back to the first of them.
+   *
+   * @return the number of items released
+   **/
+  public int releaseItems(String orderId, Collection<String> itemIds) {
+    indexItems();
+
+    int released = 0;
+
+    for (int position : getReservedPositions(orderId, itemIds)) {
+      if (hasItemRanges() ? itemRanges.release(position, orderId) : items.get(position).release(orderId)) {
+        released++;
+        unreservedCursor = Math.min(unreservedCursor, position);
+      }
+    }
+
+    availableQuantity += released;
+    return released;
+  }
+
+  /**
+   * Positions of the items reserved by the order among the given items.
+   **/
+  public List<Integer> getReservedPositions(String orderId, Collection<String> itemIds) {
+    Set<String> reservedItems = new HashSet<>(itemIds);
+    List<Integer> positions = new ArrayList<>(reservedItems.size());
+
+    if (hasItemRanges()) {
+      reservedItems.stream()
+        .map(itemRanges::positionOf)
+        .filter(position -> position >= 0 && orderId.equals(itemRanges.getReservedByOrderId(position)))
+        .sorted()
+        .forEach(positions::add);
+      return positions;
+    }
+
+    Map<String, Integer> itemPositions = indexPositions();
+    reservedItems.stream()
+      .map(itemPositions::get)
+      .filter(position -> Objects.nonNull(position) && orderId.equals(items.get(position).getReservedByOrderId()))
+      .sorted()
+      .forEach(positions::add);
+    return positions;
+  }
+
+  /**
+   * Positions of the first unreserved items without reserving them.
+   **/
+  public List<Integer> getUnreservedPositions(int quantity) {
+    if (quantity > getAvailableQuantity()) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot reserve %d items of product %s, only %d available", quantity, productId, availableQuantity));
+    }
+
+    List<Integer> positions = new ArrayList<>(quantity);
+    int position = firstUnreservedPosition(unreservedCursor);
+
+    while (positions.size() < quantity && position < getItemCount()) {
+      positions.add(position);
+      position = firstUnreservedPosition(position + 1);
+    }
+
+    if (positions.size() < quantity) {
+      throw new IllegalStateException(String.format(
+        "Available quantity of product %s does not match its unreserved items", productId));
+    }
+
+    return positions;
+  }
+
+  private void indexItems() {
+    if (Objects.isNull(availableQuantity) || Objects.isNull(unreservedCursor)) {
+      availableQuantity = (int) getItems().stream().filter(Item::isNotReserved).count();
+      unreservedCursor = firstUnreservedPosition(0);
+    }
+  }
+
+  /**
+   * Rebuilt if items got added to the list of items directly.
+   **/
+  private Map<String, Integer> indexPositions() {
+    if (Objects.isNull(positionsByItemId) || positionsByItemId.size() != items.size()) {
+      positionsByItemId = new HashMap<>(items.size() * 2);
+
+      for (int position = 0; position < items.size(); position++) {
+        positionsByItemId.putIfAbsent(items.get(position).getItemId(), position);
+      }
+    }
+    return positionsByItemId;
+  }
+
+  private int firstUnreservedPosition(int from) {
+    if (hasItemRanges()) {
+      return itemRanges.nextUnreserved(from);
+    }
 
-    this.items.addAll(itemsToBeAdded);
+    int position = from;
+    while (position < items.size() && !items.get(position).isNotReserved()) {
+      position++;
+    }
+    return position;
   }
 }
@@ -0,0 +1,24 @@
+package com.raga.ecommerce.inventory.vo;
+
+/**
+ * Product as listed in the catalog, without its items, along with the number
+ * of its items available.
+ **/
+public class ProductAvailability {
+
+  private final Product product;
+  private final int availableQuantity;
+
+  public ProductAvailability(Product product, int availableQuantity) {
+    this.product = product;
+    this.availableQuantity = availableQuantity;
+  }
+
+  public Product getProduct() {
+    return product;
+  }
+
+  public int getAvailableQuantity() {
+    return availableQuantity;
+  }
+}
@@ -0,0 +1,46 @@
+package com.raga.ecommerce.inventory.vo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Item of a product stored in a collection of its own rather than embedded in
+ * the product, so that reserving an item writes this small document only.
+ **/
+@Document
+@CompoundIndexes({
+  @CompoundIndex(name = "productId_reservedByOrderId", def = "{ 'productId': 1, 'reservedByOrderId': 1 }"),
+  @CompoundIndex(name = "productId_itemId", def = "{ 'productId': 1, 'itemId': 1 }", unique = true)
+})
+public class ProductItem {
+
+  @Id
+  private String id;
+  private String productId;
+  private String itemId;
+  private String reservedByOrderId;
+
+  public ProductItem(String productId, String itemId, String reservedByOrderId) {
+    this.productId = productId;
+    this.itemId = itemId;
+    this.reservedByOrderId = reservedByOrderId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public String getItemId() {
+    return itemId;
+  }
+
+  public String getReservedByOrderId() {
+    return reservedByOrderId;
+  }
+}
@@ -3,8 +3,14 @@ package com.raga.ecommerce.inventory.vo;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
+/**
+ * Lease on a product, held by at most one inventory instance at a time. The
+ * document of a product is kept once created so that its fencing token keeps
+ * increasing with every lease handed out.
+ **/
 @Document
 public class ProductReservationLockLog {
 
@@ -12,11 +18,18 @@ public class ProductReservationLockLog {
   private String productId;
   private String orderId;
   private LocalDateTime productLockedTimestamp;
+  private String owner;
+  private long fencingToken;
+  private Instant leaseExpiresAt;
 
-  public ProductReservationLockLog(String productId, String orderId, LocalDateTime productLockedTimestamp) {
+  public ProductReservationLockLog(String productId, String orderId, LocalDateTime productLockedTimestamp,
+                                   String owner, long fencingToken, Instant leaseExpiresAt) {
     this.productId = productId;
     this.orderId = orderId;
     this.productLockedTimestamp = productLockedTimestamp;
+    this.owner = owner;
+    this.fencingToken = fencingToken;
+    this.leaseExpiresAt = leaseExpiresAt;
   }
 
   public String getProductId() {
@@ -30,4 +43,16 @@ public class ProductReservationLockLog {
   public LocalDateTime getProductLockedTimestamp() {
     return productLockedTimestamp;
   }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public long getFencingToken() {
+    return fencingToken;
+  }
+
+  public Instant getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
 }
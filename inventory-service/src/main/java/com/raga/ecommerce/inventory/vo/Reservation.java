@@ -0,0 +1,78 @@
+package com.raga.ecommerce.inventory.vo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Items of a product reserved by an order, so that the reservations of an
+ * order are found without going through the items of every product. A
+ * reservation with an expiry is a hold, whose items are released unless the
+ * hold is confirmed before it expires.
+ **/
+@Document
+public class Reservation {
+
+  private static final String ID_SEPARATOR = ":";
+
+  @Id
+  private String id;
+  @Indexed
+  private String orderId;
+  private String productId;
+  private List<String> items;
+  private BigDecimal price;
+  @Indexed(sparse = true)
+  private Instant expiresAt;
+
+  public Reservation(String id, String orderId, String productId, List<String> items, BigDecimal price,
+                     Instant expiresAt) {
+    this.id = id;
+    this.orderId = orderId;
+    this.productId = productId;
+    this.items = items;
+    this.price = price;
+    this.expiresAt = expiresAt;
+  }
+
+  public static String idOf(String orderId, String productId) {
+    return orderId + ID_SEPARATOR + productId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public List<String> getItems() {
+    return items;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+
+  public boolean isHold() {
+    return Objects.nonNull(expiresAt);
+  }
+
+  public boolean isExpiredAt(Instant instant) {
+    return isHold() && !expiresAt.isAfter(instant);
+  }
+}
@@ -0,0 +1,42 @@
+package com.raga.ecommerce.inventory.vo;
+
+/**
+ * Consecutive item positions, from inclusive to exclusive, reserved by the
+ * same order.
+ **/
+public class ReservedRun {
+
+  private String orderId;
+  private int from;
+  private int to;
+
+  public ReservedRun(String orderId, int from, int to) {
+    this.orderId = orderId;
+    this.from = from;
+    this.to = to;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public int getFrom() {
+    return from;
+  }
+
+  public int getTo() {
+    return to;
+  }
+
+  boolean contains(int position) {
+    return from <= position && position < to;
+  }
+
+  void setFrom(int from) {
+    this.from = from;
+  }
+
+  void setTo(int to) {
+    this.to = to;
+  }
+}
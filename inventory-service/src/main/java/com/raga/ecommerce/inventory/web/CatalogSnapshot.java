@@ -0,0 +1,55 @@
+package com.raga.ecommerce.inventory.web;
+
+import java.time.Instant;
+
+/**
+ * Catalog rendered once as JSON, along with its gzip encoding and the strong
+ * entity tag of each. The byte arrays are shared by every response written
+ * from the snapshot and must not be modified.
+ **/
+public class CatalogSnapshot {
+
+  private static final String GZIP_TAG_SUFFIX = "-gzip";
+
+  private final long version;
+  private final Instant builtAt;
+  private final byte[] json;
+  private final byte[] gzippedJson;
+  private final String contentHash;
+
+  CatalogSnapshot(long version, Instant builtAt, byte[] json, byte[] gzippedJson, String contentHash) {
+    this.version = version;
+    this.builtAt = builtAt;
+    this.json = json;
+    this.gzippedJson = gzippedJson;
+    this.contentHash = contentHash;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Instant getBuiltAt() {
+    return builtAt;
+  }
+
+  public byte[] getJson() {
+    return json;
+  }
+
+  public byte[] getGzippedJson() {
+    return gzippedJson;
+  }
+
+  /**
+   * Derived from the content only, so a rebuilt snapshot of an unchanged
+   * catalog keeps the tag clients already hold.
+   **/
+  public String getEtag() {
+    return "\"" + contentHash + "\"";
+  }
+
+  public String getGzipEtag() {
+    return "\"" + contentHash + GZIP_TAG_SUFFIX + "\"";
+  }
+}
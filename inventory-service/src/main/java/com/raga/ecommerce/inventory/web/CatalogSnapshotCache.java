@@ -0,0 +1,168 @@
+package com.raga.ecommerce.inventory.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.service.ProductService;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
+import com.raga.ecommerce.inventory.vo.ProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the catalog of available products rendered as JSON so that reads of
+ * the whole catalog do not serialize it again. The snapshot is rebuilt on the
+ * first read after a stock change published by this instance made a product
+ * available or sold it out, or once it is older than its time to live to pick
+ * up changes made by other instances, price changes included. A single reader
+ * rebuilds it, the others keep being served the previous snapshot meanwhile.
+ **/
+@Component
+public class CatalogSnapshotCache {
+
+  private static final String PRODUCTS_FIELD = "products";
+
+  private final ProductService productService;
+  private final ObjectMapper objectMapper;
+  private final Duration timeToLive;
+  private final Clock clock;
+  private final AtomicLong version;
+  private final ReentrantLock rebuildLock;
+  private final Counter builds;
+  private volatile CatalogSnapshot snapshot;
+  private volatile ConcurrentMap<String, Integer> availableQuantities;
+
+  @Autowired
+  public CatalogSnapshotCache(ProductService productService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${inventory.catalog.snapshot.ttl-millis:10000}") long timeToLiveMillis) {
+    this(productService, objectMapper, meterRegistry, Duration.ofMillis(timeToLiveMillis), Clock.systemUTC());
+  }
+
+  CatalogSnapshotCache(ProductService productService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       Duration timeToLive, Clock clock) {
+    this.productService = productService;
+    this.objectMapper = objectMapper;
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+    this.version = new AtomicLong();
+    this.rebuildLock = new ReentrantLock();
+    this.builds = meterRegistry.counter("inventory.catalog.snapshot.builds");
+    this.availableQuantities = new ConcurrentHashMap<>();
+  }
+
+  public CatalogSnapshot getSnapshot() {
+    CatalogSnapshot current = snapshot;
+
+    if (isFresh(current)) {
+      return current;
+    }
+
+    if (Objects.nonNull(current) && !rebuildLock.tryLock()) {
+      return current;
+    }
+    if (Objects.isNull(current)) {
+      rebuildLock.lock();
+    }
+
+    try {
+      current = snapshot;
+      if (!isFresh(current)) {
+        current = build();
+        snapshot = current;
+      }
+      return current;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * The catalog only lists the products which are available, so only a change
+   * making a product available or selling it out changes it. The quantities
+   * of the listed products are read in the same read as them and kept up to
+   * date with the changes, changes made while the snapshot is built may be
+   * missed until it expires.
+   **/
+  @EventListener
+  public void onStockChanged(ProductStockChangedEvent event) {
+    Integer availableQuantity = availableQuantities.computeIfPresent(event.getProductId(),
+      (productId, quantity) -> quantity + event.getQuantityChange());
+
+    boolean madeAvailable = Objects.isNull(availableQuantity) && event.getQuantityChange() > 0;
+    boolean soldOut = Objects.nonNull(availableQuantity) && availableQuantity <= 0;
+
+    if (madeAvailable || soldOut) {
+      invalidate();
+    }
+  }
+
+  public void invalidate() {
+    version.incrementAndGet();
+  }
+
+  private boolean isFresh(CatalogSnapshot current) {
+    return Objects.nonNull(current)
+      && current.getVersion() == version.get()
+      && current.getBuiltAt().plus(timeToLive).isAfter(clock.instant());
+  }
+
+  private CatalogSnapshot build() {
+    long builtVersion = version.get();
+    Instant builtAt = clock.instant();
+
+    List<ProductAvailability> availability = productService.getProductAvailability();
+    List<ProductResponse> products = new ArrayList<>(availability.size());
+    ConcurrentMap<String, Integer> listedQuantities = new ConcurrentHashMap<>(availability.size());
+
+    for (ProductAvailability product : availability) {
+      products.add(new ProductResponse(product.getProduct()));
+      listedQuantities.put(product.getProduct().getProductId(), product.getAvailableQuantity());
+    }
+    availableQuantities = listedQuantities;
+
+    byte[] json = toJson(products);
+    builds.increment();
+    return new CatalogSnapshot(builtVersion, builtAt, json, gzip(json),
+      Hashing.sha256().hashBytes(json).toString());
+  }
+
+  private byte[] toJson(List<ProductResponse> products) {
+    try {
+      return objectMapper.writeValueAsBytes(ImmutableMap.of(PRODUCTS_FIELD, products));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private byte[] gzip(byte[] json) {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4);
+
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+      gzipOutputStream.write(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return gzipped.toByteArray();
+  }
+}
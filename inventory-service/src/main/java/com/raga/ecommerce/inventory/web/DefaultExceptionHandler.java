@@ -1,11 +1,21 @@
 package com.raga.ecommerce.inventory.web;
 
 import com.google.common.collect.ImmutableMap;
+import com.raga.ecommerce.inventory.exception.InvalidItemIdException;
 import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductLeaseExpiredException;
 import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.exception.ProductReservationRejectedException;
+import com.raga.ecommerce.inventory.exception.ProductReservedTwiceException;
 import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
 import com.raga.ecommerce.inventory.exception.ProductsException;
+import com.raga.ecommerce.inventory.exception.ReservationNotFoundException;
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
 import com.raga.ecommerce.inventory.web.response.Error;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -15,6 +25,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 @ControllerAdvice
@@ -22,6 +38,13 @@ public class DefaultExceptionHandler {
 
   private static final String ERRORS_FIELD = "errors";
 
+  private final long retryAfterSeconds;
+
+  @Autowired
+  public DefaultExceptionHandler(@Value("${inventory.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
   @ResponseBody
   @ExceptionHandler(value = ProductUnavailableException.class)
   @ResponseStatus(code = UNPROCESSABLE_ENTITY)
@@ -43,6 +66,60 @@ public class DefaultExceptionHandler {
     return buildErrors("2003", e);
   }
 
+  @ResponseBody
+  @ExceptionHandler(value = ProductReservationConflictException.class)
+  @ResponseStatus(code = CONFLICT)
+  public Map<String, List<Error>> handle(ProductReservationConflictException e) {
+    return buildErrors("2004", e);
+  }
+
+  @ResponseBody
+  @ExceptionHandler(value = ProductLeaseExpiredException.class)
+  @ResponseStatus(code = CONFLICT)
+  public Map<String, List<Error>> handle(ProductLeaseExpiredException e) {
+    return buildErrors("2005", e);
+  }
+
+  @ResponseBody
+  @ExceptionHandler(value = ProductReservedTwiceException.class)
+  @ResponseStatus(code = UNPROCESSABLE_ENTITY)
+  public Map<String, List<Error>> handle(ProductReservedTwiceException e) {
+    return buildErrors("2006", e);
+  }
+
+  @ResponseBody
+  @ExceptionHandler(value = ProductReservationRejectedException.class)
+  @ResponseStatus(code = SERVICE_UNAVAILABLE)
+  public Map<String, List<Error>> handle(ProductReservationRejectedException e) {
+    return buildErrors("2007", e);
+  }
+
+  @ResponseBody
+  @ExceptionHandler(value = ReservationNotFoundException.class)
+  @ResponseStatus(code = NOT_FOUND)
+  public Map<String, List<Error>> handle(ReservationNotFoundException e) {
+    return buildErrors("2008", e);
+  }
+
+  @ResponseBody
+  @ExceptionHandler(value = InvalidItemIdException.class)
+  @ResponseStatus(code = BAD_REQUEST)
+  public Map<String, List<Error>> handle(InvalidItemIdException e) {
+    return buildErrors("2009", e);
+  }
+
+  /**
+   * Tells the client when to retry, the reservation having been throttled
+   * before it changed any product. A group commit reservation is only
+   * throttled once its change is back off the queue.
+   **/
+  @ExceptionHandler(value = ReservationThrottledException.class)
+  public ResponseEntity<Map<String, List<Error>>> handle(ReservationThrottledException e) {
+    return ResponseEntity.status(TOO_MANY_REQUESTS)
+      .header(RETRY_AFTER, String.valueOf(retryAfterSeconds))
+      .body(buildErrors("2010", e));
+  }
+
   private Map<String, List<Error>> buildErrors(String code, ProductsException e) {
     List<Error> errors = new ArrayList<>();
 
@@ -0,0 +1,132 @@
+package com.raga.ecommerce.inventory.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.raga.ecommerce.inventory.exception.InvalidItemIdException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Item ids read one line at a time off a request body, either as plain text
+ * or as newline delimited JSON, where a line is a JSON string or an object
+ * with an item id. Blank lines are skipped. Nothing is read ahead of the
+ * item id asked for, so a slow consumer holds back the client. A line longer
+ * than any item id could be is refused as soon as it gets too long, so a
+ * body without line breaks is never held in memory.
+ **/
+class ItemIdReader implements Iterator<String> {
+
+  private static final String ITEM_ID_FIELD = "itemId";
+  static final int MAX_LINE_LENGTH = 4096;
+
+  private final String productId;
+  private final BufferedReader reader;
+  private final ObjectReader jsonReader;
+  private long lineNumber;
+  private String next;
+
+  private ItemIdReader(String productId, InputStream body, ObjectReader jsonReader) {
+    this.productId = productId;
+    this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    this.jsonReader = jsonReader;
+  }
+
+  static ItemIdReader plainText(String productId, InputStream body) {
+    return new ItemIdReader(productId, body, null);
+  }
+
+  static ItemIdReader ndjson(String productId, InputStream body, ObjectReader jsonReader) {
+    return new ItemIdReader(productId, body, jsonReader);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (Objects.isNull(next)) {
+      String line = readLine();
+
+      if (Objects.isNull(line)) {
+        return false;
+      }
+
+      lineNumber++;
+
+      if (!line.trim().isEmpty()) {
+        next = parse(line.trim())
+          .orElseThrow(() -> new InvalidItemIdException(productId, lineNumber));
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    String itemId = next;
+    next = null;
+    return itemId;
+  }
+
+  private Optional<String> parse(String line) {
+    if (Objects.isNull(jsonReader)) {
+      return Optional.of(line);
+    }
+
+    try {
+      JsonNode node = jsonReader.readTree(line);
+      JsonNode itemId = node.isObject() ? node.path(ITEM_ID_FIELD) : node;
+
+      return itemId.isTextual() && !itemId.asText().trim().isEmpty() ?
+        Optional.of(itemId.asText()) : Optional.empty();
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Next line without its line break, null once the body is read.
+   **/
+  private String readLine() {
+    StringBuilder line = new StringBuilder();
+
+    try {
+      int read = reader.read();
+
+      if (read == -1) {
+        return null;
+      }
+
+      while (read != -1 && read != '\n' && read != '\r') {
+        if (line.length() == MAX_LINE_LENGTH) {
+          throw new InvalidItemIdException(productId, lineNumber + 1);
+        }
+
+        line.append((char) read);
+        read = reader.read();
+      }
+
+      if (read == '\r') {
+        reader.mark(1);
+        if (reader.read() != '\n') {
+          reader.reset();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return line.toString();
+  }
+}
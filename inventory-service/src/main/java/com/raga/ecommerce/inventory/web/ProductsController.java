@@ -1,20 +1,41 @@
 package com.raga.ecommerce.inventory.web;
 
-import com.google.common.collect.ImmutableMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.raga.ecommerce.inventory.reservation.ReservationLine;
 import com.raga.ecommerce.inventory.service.ProductService;
 import com.raga.ecommerce.inventory.vo.Product;
 import com.raga.ecommerce.inventory.vo.ProductResponse;
 import com.raga.ecommerce.inventory.web.request.ReserveProductRequest;
+import com.raga.ecommerce.inventory.web.request.ReserveProductsRequest;
+import com.raga.ecommerce.inventory.web.response.ProductsPage;
 import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import com.raga.ecommerce.inventory.web.response.ReserveProductsResponse;
+import com.raga.ecommerce.inventory.web.response.ReservedProductLine;
+import com.raga.ecommerce.inventory.web.response.RestockResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
@@ -22,20 +43,84 @@ import static org.springframework.web.bind.annotation.RequestMethod.POST;
 @RequestMapping(value = "/products")
 public class ProductsController {
 
-  private static final String PRODUCTS_FIELD = "products";
+  private static final String GZIP_ENCODING = "gzip";
+  private static final String NDJSON_VALUE = "application/x-ndjson";
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final byte NEW_LINE = '\n';
 
   private final ProductService productService;
+  private final CatalogSnapshotCache catalogSnapshotCache;
+  private final ObjectWriter productWriter;
+  private final ObjectReader itemIdReader;
 
   @Autowired
-  public ProductsController(ProductService productService) {
+  public ProductsController(ProductService productService, CatalogSnapshotCache catalogSnapshotCache,
+                            ObjectMapper objectMapper) {
     this.productService = productService;
+    this.catalogSnapshotCache = catalogSnapshotCache;
+    this.productWriter = objectMapper.writerFor(ProductResponse.class);
+    this.itemIdReader = objectMapper.reader();
   }
 
-  @ResponseStatus(HttpStatus.OK)
+  /**
+   * Whole catalog of available products written from its last snapshot, gzip
+   * encoded when the client accepts it. Nothing but the headers is written if
+   * the client already holds the snapshot.
+   **/
   @RequestMapping(method = GET, produces = APPLICATION_JSON_VALUE)
-  public Map<String, List<ProductResponse>> getProducts() {
+  public ResponseEntity<byte[]> getProducts(@RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            WebRequest webRequest) {
+
+    CatalogSnapshot snapshot = catalogSnapshotCache.getSnapshot();
+    boolean gzip = acceptsGzip(acceptEncoding);
+
+    if (webRequest.checkNotModified(gzip ? snapshot.getGzipEtag() : snapshot.getEtag())) {
+      return null;
+    }
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_JSON_UTF8)
+      .header(VARY, ACCEPT_ENCODING);
+
+    return gzip ?
+      response.header(CONTENT_ENCODING, GZIP_ENCODING).body(snapshot.getGzippedJson()) :
+      response.body(snapshot.getJson());
+  }
+
+  /**
+   * Page of available products after the cursor, which is the id of the last
+   * product of the previous page. There are no more pages once the next
+   * cursor is null.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(method = GET, params = "size", produces = APPLICATION_JSON_VALUE)
+  public ProductsPage getProducts(@RequestParam(required = false) String cursor, @RequestParam int size) {
+
+    int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    List<ProductResponse> products = toProductResponses(productService.getAvailableProducts(cursor, pageSize));
 
-    return buildProductResponse(productService.getAvailableProducts());
+    String nextCursor = products.size() < pageSize ? null : products.get(products.size() - 1).getProductId();
+    return new ProductsPage(products, nextCursor);
+  }
+
+  /**
+   * Available products as newline delimited JSON, written while they are read
+   * from the database so that the catalog is never held in memory.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/stream", method = GET, produces = NDJSON_VALUE)
+  public StreamingResponseBody streamProducts() {
+
+    return outputStream -> {
+      try (Stream<Product> products = productService.streamAvailableProducts()) {
+        Iterator<Product> iterator = products.iterator();
+
+        while (iterator.hasNext()) {
+          outputStream.write(productWriter.writeValueAsBytes(new ProductResponse(iterator.next())));
+          outputStream.write(NEW_LINE);
+        }
+      }
+    };
   }
 
   @ResponseStatus(HttpStatus.OK)
@@ -48,11 +133,66 @@ public class ProductsController {
       request.getQuantity(), request.getExpectedPrice());
   }
 
-  private Map<String, List<ProductResponse>> buildProductResponse(List<Product> products) {
-    List<ProductResponse> productResponses = products.stream()
-      .map(ProductResponse::new)
+  /**
+   * Reserves several products for the order, all of them or none. The lines
+   * of the response come in the order of the request.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/reserve", method = POST,
+    consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+  public ReserveProductsResponse reserveItems(@RequestBody ReserveProductsRequest request) {
+
+    List<ReservationLine> lines = request.getLines()
+      .stream()
+      .map(line -> new ReservationLine(line.getProductId(), line.getQuantity(), line.getExpectedPrice()))
       .collect(Collectors.toList());
 
-    return ImmutableMap.of(PRODUCTS_FIELD, productResponses);
+    Map<String, ReserveProductResponse> responses = productService.reserveItems(request.getOrderId(), lines);
+
+    return new ReserveProductsResponse(lines.stream()
+      .map(line -> new ReservedProductLine(line.getProductId(), responses.get(line.getProductId())))
+      .collect(Collectors.toList()));
+  }
+
+  private boolean acceptsGzip(String acceptEncoding) {
+    if (Objects.isNull(acceptEncoding)) {
+      return false;
+    }
+
+    return Arrays.stream(acceptEncoding.split(","))
+      .map(coding -> coding.trim().split(";"))
+      .anyMatch(coding -> GZIP_ENCODING.equalsIgnoreCase(coding[0].trim())
+        && !(coding.length > 1 && coding[1].replace(" ", "").matches("q=0(\\.0*)?")));
+  }
+
+  /**
+   * Adds the items of the body to the product, one item id per line, as a
+   * JSON string or an object with an item id. The body is read while the
+   * items are written in batches, so a restock of any size is never held in
+   * memory.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/{productId}/items", method = POST, consumes = NDJSON_VALUE, produces = APPLICATION_JSON_VALUE)
+  public RestockResponse restockItems(@PathVariable String productId, InputStream body) {
+
+    return new RestockResponse(productId,
+      productService.restock(productId, ItemIdReader.ndjson(productId, body, itemIdReader)));
+  }
+
+  /**
+   * Same as the newline delimited JSON restock with a bare item id per line.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/{productId}/items", method = POST, consumes = TEXT_PLAIN_VALUE,
+    produces = APPLICATION_JSON_VALUE)
+  public RestockResponse restockItemIds(@PathVariable String productId, InputStream body) {
+
+    return new RestockResponse(productId, productService.restock(productId, ItemIdReader.plainText(productId, body)));
+  }
+
+  private List<ProductResponse> toProductResponses(List<Product> products) {
+    return products.stream()
+      .map(ProductResponse::new)
+      .collect(Collectors.toList());
   }
 }
@@ -0,0 +1,60 @@
+package com.raga.ecommerce.inventory.web;
+
+import com.google.common.collect.ImmutableMap;
+import com.raga.ecommerce.inventory.service.ProductService;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import com.raga.ecommerce.inventory.web.response.ReservationResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+@RestController
+@RequestMapping(value = "/reservations")
+public class ReservationsController {
+
+  private static final String RESERVATIONS_FIELD = "reservations";
+
+  private final ProductService productService;
+
+  @Autowired
+  public ReservationsController(ProductService productService) {
+    this.productService = productService;
+  }
+
+  /**
+   * Confirms the holds of the order so that they do not expire.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/{orderId}/confirm", method = POST, produces = APPLICATION_JSON_VALUE)
+  public Map<String, List<ReservationResponse>> confirmReservations(@PathVariable String orderId) {
+
+    return buildReservationResponse(productService.confirmReservations(orderId));
+  }
+
+  /**
+   * Releases every item reserved by the order, for instance once the order
+   * is cancelled.
+   **/
+  @ResponseStatus(HttpStatus.OK)
+  @RequestMapping(value = "/{orderId}/release", method = POST, produces = APPLICATION_JSON_VALUE)
+  public Map<String, List<ReservationResponse>> releaseReservations(@PathVariable String orderId) {
+
+    return buildReservationResponse(productService.releaseReservations(orderId));
+  }
+
+  private Map<String, List<ReservationResponse>> buildReservationResponse(List<Reservation> reservations) {
+    return ImmutableMap.of(RESERVATIONS_FIELD, reservations.stream()
+      .map(ReservationResponse::new)
+      .collect(Collectors.toList()));
+  }
+}
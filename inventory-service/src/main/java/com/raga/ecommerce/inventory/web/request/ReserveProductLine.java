@@ -0,0 +1,28 @@
+package com.raga.ecommerce.inventory.web.request;
+
+import java.math.BigDecimal;
+
+public class ReserveProductLine {
+
+  private final String productId;
+  private final int quantity;
+  private final BigDecimal expectedPrice;
+
+  public ReserveProductLine(String productId, int quantity, BigDecimal expectedPrice) {
+    this.productId = productId;
+    this.quantity = quantity;
+    this.expectedPrice = expectedPrice;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public int getQuantity() {
+    return quantity;
+  }
+
+  public BigDecimal getExpectedPrice() {
+    return expectedPrice;
+  }
+}
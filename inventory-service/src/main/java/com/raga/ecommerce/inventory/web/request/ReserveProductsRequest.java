@@ -0,0 +1,22 @@
+package com.raga.ecommerce.inventory.web.request;
+
+import java.util.List;
+
+public class ReserveProductsRequest {
+
+  private final String orderId;
+  private final List<ReserveProductLine> lines;
+
+  public ReserveProductsRequest(String orderId, List<ReserveProductLine> lines) {
+    this.orderId = orderId;
+    this.lines = lines;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public List<ReserveProductLine> getLines() {
+    return lines;
+  }
+}
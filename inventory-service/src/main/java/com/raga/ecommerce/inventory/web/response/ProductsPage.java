@@ -0,0 +1,24 @@
+package com.raga.ecommerce.inventory.web.response;
+
+import com.raga.ecommerce.inventory.vo.ProductResponse;
+
+import java.util.List;
+
+public class ProductsPage {
+
+  private final List<ProductResponse> products;
+  private final String nextCursor;
+
+  public ProductsPage(List<ProductResponse> products, String nextCursor) {
+    this.products = products;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<ProductResponse> getProducts() {
+    return products;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
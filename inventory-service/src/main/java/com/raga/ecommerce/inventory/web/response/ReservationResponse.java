@@ -0,0 +1,38 @@
+package com.raga.ecommerce.inventory.web.response;
+
+import com.raga.ecommerce.inventory.vo.Reservation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public class ReservationResponse {
+
+  private final String productId;
+  private final List<String> items;
+  private final BigDecimal price;
+  private final Instant expiresAt;
+
+  public ReservationResponse(Reservation reservation) {
+    this.productId = reservation.getProductId();
+    this.items = reservation.getItems();
+    this.price = reservation.getPrice();
+    this.expiresAt = reservation.getExpiresAt();
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public List<String> getItems() {
+    return items;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+}
@@ -0,0 +1,16 @@
+package com.raga.ecommerce.inventory.web.response;
+
+import java.util.List;
+
+public class ReserveProductsResponse {
+
+  private final List<ReservedProductLine> lines;
+
+  public ReserveProductsResponse(List<ReservedProductLine> lines) {
+    this.lines = lines;
+  }
+
+  public List<ReservedProductLine> getLines() {
+    return lines;
+  }
+}
@@ -0,0 +1,29 @@
+package com.raga.ecommerce.inventory.web.response;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ReservedProductLine {
+
+  private final String productId;
+  private final List<String> items;
+  private final BigDecimal currentPrice;
+
+  public ReservedProductLine(String productId, ReserveProductResponse response) {
+    this.productId = productId;
+    this.items = response.getItems();
+    this.currentPrice = response.getCurrentPrice();
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public List<String> getItems() {
+    return items;
+  }
+
+  public BigDecimal getCurrentPrice() {
+    return currentPrice;
+  }
+}
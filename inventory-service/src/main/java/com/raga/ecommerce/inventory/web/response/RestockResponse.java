@@ -0,0 +1,20 @@
+package com.raga.ecommerce.inventory.web.response;
+
+public class RestockResponse {
+
+  private String productId;
+  private int itemsAdded;
+
+  public RestockResponse(String productId, int itemsAdded) {
+    this.productId = productId;
+    this.itemsAdded = itemsAdded;
+  }
+
+  public String getProductId() {
+    return productId;
+  }
+
+  public int getItemsAdded() {
+    return itemsAdded;
+  }
+}
@@ -0,0 +1,99 @@
+package com.raga.ecommerce.inventory.catalog;
+
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AvailableProductsIndexTest {
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private MeterRegistry meterRegistry;
+  private AvailableProductsIndex index;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    index = new AvailableProductsIndex(productRepository, meterRegistry,
+      Clock.fixed(Instant.parse("2019-07-01T10:00:00Z"), ZoneOffset.UTC));
+  }
+
+  @Test
+  public void shouldServeAvailableProductsOnceLoaded() {
+    when(productRepository.streamProductAvailability()).thenReturn(Stream.of(
+      product("prod-123", 2), product("prod-456", 1), product("prod-789", 3)));
+
+    assertThat(index.isLoaded()).isFalse();
+    index.load();
+
+    assertThat(index.isLoaded()).isTrue();
+    assertThat(index.getAvailableProducts()).extracting(Product::getProductId)
+      .containsExactly("prod-123", "prod-456", "prod-789");
+    assertThat(index.getAvailableProducts("prod-123", 1)).extracting(Product::getProductId)
+      .containsExactly("prod-456");
+    assertThat(meterRegistry.get("inventory.catalog.index.size").gauge().value()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldDropProductsWhoseItemsAreAllReserved() {
+    when(productRepository.streamProductAvailability()).thenReturn(Stream.of(
+      product("prod-123", 2), product("prod-456", 1)));
+    index.load();
+
+    index.onStockChanged(new ProductStockChangedEvent("prod-456", -1));
+
+    assertThat(index.getAvailableProducts()).extracting(Product::getProductId).containsExactly("prod-123");
+  }
+
+  @Test
+  public void shouldAddProductsNotKnownYetOnStockChange() {
+    when(productRepository.streamProductAvailability()).thenReturn(Stream.empty());
+    when(productRepository.findAvailabilityByProductId("prod-123")).thenReturn(Optional.of(product("prod-123", 5)));
+    index.load();
+
+    index.onStockChanged(new ProductStockChangedEvent("prod-123", 5));
+
+    assertThat(index.getAvailableProducts()).extracting(Product::getProductId).containsExactly("prod-123");
+  }
+
+  @Test
+  public void shouldCorrectEntriesWhichDifferFromDatabaseOnResynchronization() {
+    when(productRepository.streamProductAvailability()).thenReturn(
+      Stream.of(product("prod-123", 2), product("prod-456", 1)),
+      Stream.of(product("prod-123", 1)));
+    index.load();
+
+    index.synchronize();
+
+    assertThat(index.getAvailableProducts()).extracting(Product::getProductId).containsExactly("prod-123");
+    assertThat(meterRegistry.get("inventory.catalog.index.corrections").counter().count()).isEqualTo(2);
+  }
+
+  private Product product(String productId, int availableQuantity) {
+    Product product = new Product(productId, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    for (int i = 0; i < availableQuantity; i++) {
+      product.addItems(newArrayList(productId + "-item-" + i));
+    }
+    return product;
+  }
+}
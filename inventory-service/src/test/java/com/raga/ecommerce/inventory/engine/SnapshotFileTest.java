@@ -0,0 +1,80 @@
+package com.raga.ecommerce.inventory.engine;
+
+import com.raga.ecommerce.inventory.vo.CompactItems;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldReadBackProductsWithTheirReservations() {
+    Path file = folder.getRoot().toPath().resolve("inventory.snapshot");
+    SnapshotFile snapshotFile = new SnapshotFile(file);
+
+    try (SnapshotFile.Writer writer = snapshotFile.write(42)) {
+      writer.add(watch());
+      writer.add(new SnapshotProduct("prod-789", null, null, false, new CompactItems()));
+      writer.commit();
+    }
+
+    List<SnapshotProduct> products = new ArrayList<>();
+    OptionalLong sequence = snapshotFile.read(products::add);
+
+    assertThat(sequence).hasValue(42);
+    assertThat(products).hasSize(2);
+    SnapshotProduct watch = products.get(0);
+    assertThat(watch.getProductId()).isEqualTo("prod-456");
+    assertThat(watch.getProductName()).isEqualTo("Fasttrack Watch");
+    assertThat(watch.getPrice()).isEqualByComparingTo("2222.25");
+    assertThat(watch.hasItemRanges()).isTrue();
+    assertThat(watch.getItems().size()).isEqualTo(3);
+    assertThat(watch.getItems().getReservedByOrderId(0)).isEqualTo("order-123");
+    assertThat(watch.getItems().getReservedByOrderId(1)).isNull();
+    assertThat(watch.getItems().getReservedByOrderId(2)).isEqualTo("order-123");
+    assertThat(watch.getItems().getAvailableQuantity()).isEqualTo(1);
+    assertThat(products.get(1).getProductName()).isNull();
+  }
+
+  @Test
+  public void shouldIgnoreCorruptSnapshotAndKeepPreviousOneWhenNotCommitted() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("inventory.snapshot");
+    SnapshotFile snapshotFile = new SnapshotFile(file);
+
+    try (SnapshotFile.Writer writer = snapshotFile.write(42)) {
+      writer.add(watch());
+      writer.commit();
+    }
+    try (SnapshotFile.Writer writer = snapshotFile.write(43)) {
+      writer.add(watch());
+    }
+
+    assertThat(snapshotFile.read(product -> { })).hasValue(42);
+    assertThat(folder.getRoot().list()).containsExactly("inventory.snapshot");
+
+    try (RandomAccessFile corrupted = new RandomAccessFile(file.toFile(), "rw")) {
+      corrupted.seek(20);
+      corrupted.write(0x7F);
+    }
+
+    assertThat(snapshotFile.read(product -> { })).isEmpty();
+  }
+
+  private static SnapshotProduct watch() {
+    CompactItems items = CompactItems.of(new String[]{"item-a1", "item-a2", "item-a3"},
+      new String[]{"order-123", null, "order-123"});
+    return new SnapshotProduct("prod-456", "Fasttrack Watch", BigDecimal.valueOf(2222.25), true, items);
+  }
+}
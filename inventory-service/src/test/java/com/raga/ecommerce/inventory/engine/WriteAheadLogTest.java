@@ -0,0 +1,125 @@
+package com.raga.ecommerce.inventory.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteAheadLogTest {
+
+  private static final int SEGMENT_BYTES = 128;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldReplayRecordsAfterReopening() {
+    Path directory = folder.getRoot().toPath();
+
+    try (WriteAheadLog log = open(directory)) {
+      log.awaitDurable(log.append(reserve("order-1", 0, 1)));
+      log.awaitDurable(log.append(release("order-1", 1)));
+    }
+
+    try (WriteAheadLog log = open(directory)) {
+      List<WalRecord> records = replay(log, 0);
+
+      assertThat(records).extracting(WalRecord::getSequence).containsExactly(1L, 2L);
+      assertThat(records.get(0).getEntries().get(0).getSlots()).containsExactly(0, 1);
+      assertThat(records.get(1).getType()).isEqualTo(WalRecord.Type.RELEASE);
+      assertThat(log.append(reserve("order-2", 2))).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void shouldRollSegmentsAndDeleteThoseBeforeCheckpoint() throws IOException {
+    Path directory = folder.getRoot().toPath();
+
+    try (WriteAheadLog log = open(directory)) {
+      for (int order = 0; order < 10; order++) {
+        log.append(reserve("order-" + order, order));
+      }
+      assertThat(segmentCount(directory)).isGreaterThan(2);
+
+      log.checkpoint(8);
+
+      assertThat(replay(log, log.getCheckpoint())).extracting(WalRecord::getSequence).containsExactly(9L, 10L);
+      assertThat(replay(log, 0).get(0).getSequence()).isGreaterThan(1L).isLessThanOrEqualTo(9L);
+    }
+
+    try (WriteAheadLog log = open(directory)) {
+      assertThat(log.getCheckpoint()).isEqualTo(8);
+      assertThat(log.getLastSequence()).isEqualTo(10);
+    }
+  }
+
+  @Test
+  public void shouldIgnoreRecordTornByCrash() throws IOException {
+    Path directory = folder.getRoot().toPath();
+
+    try (WriteAheadLog log = open(directory)) {
+      log.append(reserve("order-1", 0));
+      log.append(reserve("order-2", 1));
+    }
+
+    Path segment = segments(directory).get(0);
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      long secondRecordBody = 2 * Integer.BYTES + reserve("order-1", 0).encodedSize() + 2 * Integer.BYTES;
+      file.seek(secondRecordBody + 3);
+      file.write(0x7F);
+    }
+
+    try (WriteAheadLog log = open(directory)) {
+      assertThat(replay(log, 0)).extracting(WalRecord::getSequence).containsExactly(1L);
+
+      log.append(reserve("order-3", 1));
+    }
+
+    try (WriteAheadLog log = open(directory)) {
+      assertThat(replay(log, 0)).extracting(WalRecord::getOrderId).containsExactly("order-1", "order-3");
+    }
+  }
+
+  private WriteAheadLog open(Path directory) {
+    return new WriteAheadLog(directory, SEGMENT_BYTES, new SimpleMeterRegistry());
+  }
+
+  private static List<WalRecord> replay(WriteAheadLog log, long afterSequence) {
+    List<WalRecord> records = new ArrayList<>();
+    log.replay(afterSequence, records::add);
+    return records;
+  }
+
+  private static WalRecord reserve(String orderId, int... slots) {
+    return new WalRecord(0, WalRecord.Type.RESERVE, orderId,
+      Collections.singletonList(new WalRecord.Entry("prod-456", slots)));
+  }
+
+  private static WalRecord release(String orderId, int... slots) {
+    return new WalRecord(0, WalRecord.Type.RELEASE, orderId,
+      Collections.singletonList(new WalRecord.Entry("prod-456", slots)));
+  }
+
+  private static long segmentCount(Path directory) throws IOException {
+    return segments(directory).size();
+  }
+
+  private static List<Path> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted()
+        .collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package com.raga.ecommerce.inventory.hold;
+
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.repository.ReservationRepository;
+import com.raga.ecommerce.inventory.reservation.ReservationStrategy;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReservationHoldsTest {
+
+  private static final Instant NOW = Instant.parse("2019-07-01T10:00:00Z");
+  private static final String ORDER_ID = "order-123";
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String RESERVATION_ID = "order-123:prod-456";
+  private static final List<String> ITEMS = newArrayList("item-a1", "item-a2");
+
+  @Mock
+  private ReservationRepository reservationRepository;
+
+  @Mock
+  private ReservationStrategy reservationStrategy;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  private MeterRegistry meterRegistry;
+  private MutableClock clock;
+  private ReservationHolds reservationHolds;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clock = new MutableClock(NOW);
+    reservationHolds = new ReservationHolds(reservationRepository, reservationStrategy, eventPublisher, meterRegistry,
+      Duration.ofMinutes(15), 1000, 100, Duration.ofMinutes(10), clock);
+  }
+
+  @Test
+  public void shouldReleaseItemsOfHoldWhichExpiredUnconfirmed() {
+    reservationHolds.record(ORDER_ID, PRODUCT_ID, new ReserveProductResponse(ITEMS, BigDecimal.valueOf(2222.25)));
+    verify(reservationRepository).addItems(ORDER_ID, PRODUCT_ID, ITEMS, BigDecimal.valueOf(2222.25),
+      NOW.plus(Duration.ofMinutes(15)));
+    assertThat(reservationHolds.getPendingCount()).isEqualTo(1);
+
+    clock.instant = NOW.plus(Duration.ofMinutes(15));
+    when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(hold(clock.instant)));
+    when(reservationStrategy.releaseItems(ORDER_ID, PRODUCT_ID, ITEMS)).thenReturn(2);
+
+    reservationHolds.expireDueHolds();
+
+    verify(reservationRepository).deleteExpired(RESERVATION_ID, clock.instant);
+    ArgumentCaptor<ProductStockChangedEvent> event = ArgumentCaptor.forClass(ProductStockChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().getQuantityChange()).isEqualTo(2);
+    assertThat(reservationHolds.getPendingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldKeepItemsOfHoldConfirmedBeforeItExpired() {
+    reservationHolds.record(ORDER_ID, PRODUCT_ID, new ReserveProductResponse(ITEMS, BigDecimal.valueOf(2222.25)));
+
+    clock.instant = NOW.plus(Duration.ofMinutes(15));
+    when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(hold(null)));
+
+    reservationHolds.expireDueHolds();
+
+    verify(reservationStrategy, never()).releaseItems(any(), any(), any());
+    verify(reservationRepository, never()).deleteExpired(any(), any());
+  }
+
+  @Test
+  public void shouldReleaseHoldsLeftByPreviousRunWhichExpiredMeanwhile() {
+    when(reservationRepository.streamHolds()).thenReturn(Stream.of(hold(NOW.minusSeconds(1))));
+    when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(hold(NOW.minusSeconds(1))));
+    when(reservationStrategy.releaseItems(ORDER_ID, PRODUCT_ID, ITEMS)).thenReturn(2);
+
+    reservationHolds.load();
+
+    verify(reservationRepository).deleteExpired(RESERVATION_ID, NOW);
+  }
+
+  @Test
+  public void shouldReleaseEveryReservationOfOrder() {
+    Reservation laptop = new Reservation("order-123:prod-789", ORDER_ID, "prod-789", newArrayList("item-b1"),
+      BigDecimal.valueOf(72222.59), null);
+    when(reservationRepository.findByOrderId(ORDER_ID)).thenReturn(newArrayList(hold(null), laptop));
+    when(reservationStrategy.releaseItems(ORDER_ID, PRODUCT_ID, ITEMS)).thenReturn(2);
+    when(reservationStrategy.releaseItems(ORDER_ID, "prod-789", newArrayList("item-b1"))).thenReturn(0);
+
+    assertThat(reservationHolds.release(ORDER_ID)).hasSize(2);
+
+    verify(reservationRepository).deleteById(RESERVATION_ID);
+    verify(reservationRepository).deleteById("order-123:prod-789");
+    ArgumentCaptor<ProductStockChangedEvent> event = ArgumentCaptor.forClass(ProductStockChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().getProductId()).isEqualTo(PRODUCT_ID);
+  }
+
+  @Test
+  public void shouldReturnRecordedReservationWhenOrderReservesProductAgain() {
+    AtomicInteger reservations = new AtomicInteger();
+    Supplier<ReserveProductResponse> reservation = () -> {
+      reservations.incrementAndGet();
+      return new ReserveProductResponse(ITEMS, BigDecimal.valueOf(2222.25));
+    };
+
+    ReserveProductResponse first = reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID, reservation);
+    ReserveProductResponse second = reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID, reservation);
+
+    assertThat(second).isSameAs(first);
+    assertThat(reservations.get()).isEqualTo(1);
+    verify(reservationRepository).findById(RESERVATION_ID);
+    assertThat(meterRegistry.get("inventory.reservation.phase").tag("phase", "lookup").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReturnPersistedReservationMissingFromCache() {
+    when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(hold(null)));
+
+    ReserveProductResponse response = reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID, () -> {
+      throw new IllegalStateException("Reserved twice");
+    });
+
+    assertThat(response.getItems()).isEqualTo(ITEMS);
+  }
+
+  @Test
+  public void shouldReserveAgainOnceReservationIsReleased() {
+    when(reservationRepository.findByOrderId(ORDER_ID)).thenReturn(newArrayList(hold(null)));
+    reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID, () -> new ReserveProductResponse(ITEMS, BigDecimal.ONE));
+    reservationHolds.release(ORDER_ID);
+
+    ReserveProductResponse response = reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID,
+      () -> new ReserveProductResponse(newArrayList("item-a3"), BigDecimal.ONE));
+
+    assertThat(response.getItems()).containsExactly("item-a3");
+  }
+
+  @Test
+  public void shouldReleaseEveryReservedProductIfAnyCannotBeRecorded() {
+    Map<String, ReserveProductResponse> reservations = new LinkedHashMap<>();
+    reservations.put(PRODUCT_ID, new ReserveProductResponse(ITEMS, BigDecimal.ONE));
+    reservations.put("prod-789", new ReserveProductResponse(newArrayList("item-b1"), BigDecimal.ONE));
+    doThrow(new IllegalStateException("Write failed")).when(reservationRepository)
+      .addItems(eq(ORDER_ID), eq("prod-789"), any(), any(), any());
+
+    assertThatThrownBy(() -> reservationHolds.record(ORDER_ID, reservations))
+      .isInstanceOf(IllegalStateException.class);
+
+    verify(reservationStrategy).releaseItems(ORDER_ID, PRODUCT_ID, ITEMS);
+    verify(reservationStrategy).releaseItems(ORDER_ID, "prod-789", newArrayList("item-b1"));
+    verify(reservationRepository).deleteById(RESERVATION_ID);
+    verify(reservationRepository).deleteById("order-123:prod-789");
+  }
+
+  @Test
+  public void shouldKeepRecordOfItemsWhichCannotBeReleased() {
+    doThrow(new IllegalStateException("Write failed")).when(reservationRepository)
+      .addItems(eq(ORDER_ID), eq(PRODUCT_ID), any(), any(), any());
+    when(reservationStrategy.releaseItems(ORDER_ID, PRODUCT_ID, ITEMS))
+      .thenThrow(new IllegalStateException("Release failed"));
+
+    assertThatThrownBy(() -> reservationHolds.record(ORDER_ID, PRODUCT_ID,
+      new ReserveProductResponse(ITEMS, BigDecimal.ONE)))
+      .hasMessage("Write failed")
+      .satisfies(e -> assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("Release failed"));
+
+    verify(reservationRepository, never()).deleteById(any());
+  }
+
+  @Test
+  public void shouldReserveOnlyProductsNotReservedByTheOrderYet() {
+    when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(hold(null)));
+    List<List<String>> reserved = new ArrayList<>();
+
+    Map<String, ReserveProductResponse> responses = reservationHolds.reserveOnce(ORDER_ID,
+      newArrayList(PRODUCT_ID, "prod-789"), productIds -> {
+        reserved.add(productIds);
+        return singletonMap("prod-789", new ReserveProductResponse(newArrayList("item-b1"), BigDecimal.ONE));
+      });
+
+    assertThat(reserved).containsExactly(newArrayList("prod-789"));
+    assertThat(responses.get(PRODUCT_ID).getItems()).isEqualTo(ITEMS);
+    assertThat(responses.get("prod-789").getItems()).containsExactly("item-b1");
+  }
+
+  @Test
+  public void shouldReserveBatchOnceWhenRetriedWhileTheFirstAttemptIsRunning() throws Exception {
+    AtomicInteger reservations = new AtomicInteger();
+    CountDownLatch reserving = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    Function<List<String>, Map<String, ReserveProductResponse>> reservation = productIds -> {
+      reservations.incrementAndGet();
+      reserving.countDown();
+      awaitUninterruptibly(resume);
+      return singletonMap(PRODUCT_ID, new ReserveProductResponse(ITEMS, BigDecimal.ONE));
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    Future<Map<String, ReserveProductResponse>> first = executor.submit(() ->
+      reservationHolds.reserveOnce(ORDER_ID, newArrayList(PRODUCT_ID), reservation));
+    reserving.await();
+    Future<Map<String, ReserveProductResponse>> retry = executor.submit(() ->
+      reservationHolds.reserveOnce(ORDER_ID, newArrayList(PRODUCT_ID), reservation));
+    Future<ReserveProductResponse> single = executor.submit(() -> reservationHolds.reserveOnce(ORDER_ID, PRODUCT_ID,
+      () -> reservation.apply(newArrayList(PRODUCT_ID)).get(PRODUCT_ID)));
+    Thread.sleep(50);
+    resume.countDown();
+
+    assertThat(retry.get().get(PRODUCT_ID)).isSameAs(first.get().get(PRODUCT_ID));
+    assertThat(single.get()).isSameAs(first.get().get(PRODUCT_ID));
+    executor.shutdown();
+    assertThat(reservations.get()).isEqualTo(1);
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Reservation hold(Instant expiresAt) {
+    return new Reservation(RESERVATION_ID, ORDER_ID, PRODUCT_ID, ITEMS, BigDecimal.valueOf(2222.25), expiresAt);
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.raga.ecommerce.inventory.hold;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+  @Test
+  public void shouldMakeValuesDueOnceTheirExpiryIsReached() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 4, 1000);
+
+    wheel.schedule("soon", 1025);
+    wheel.schedule("later", 1300);
+
+    assertThat(wheel.advanceTo(1020)).isEmpty();
+    assertThat(wheel.advanceTo(1030)).containsExactly("soon");
+    assertThat(wheel.advanceTo(1290)).isEmpty();
+    assertThat(wheel.advanceTo(1300)).containsExactly("later");
+    assertThat(wheel.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotScheduleValuesWhichAreDueAlready() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 4, 1000);
+
+    assertThat(wheel.schedule("past", 990)).isFalse();
+    assertThat(wheel.schedule("now", 1000)).isFalse();
+    assertThat(wheel.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldCascadeValuesFromUpperLevelsAtTheRightTick() {
+    TimingWheel<Long> wheel = new TimingWheel<>(1, 4, 0);
+    Random random = new Random(42);
+    List<Long> expiries = new ArrayList<>();
+
+    for (int i = 0; i < 2000; i++) {
+      long expiresAt = 1 + random.nextInt(5000);
+      expiries.add(expiresAt);
+      wheel.schedule(expiresAt, expiresAt);
+    }
+
+    for (long now = 1; now <= 5000; now++) {
+      List<Long> due = wheel.advanceTo(now);
+      long current = now;
+      assertThat(due).allMatch(expiresAt -> expiresAt == current);
+      assertThat(due).hasSize((int) expiries.stream().filter(expiresAt -> expiresAt == current).count());
+    }
+
+    assertThat(wheel.size()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,58 @@
+package com.raga.ecommerce.inventory.lock;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ContentionSketchTest {
+
+  @Test
+  public void shouldCountContentionsOfEachProductWhileThereIsRoom() {
+    ContentionSketch sketch = new ContentionSketch(3);
+
+    add(sketch, "prod-1", 5);
+    add(sketch, "prod-2", 2);
+    add(sketch, "prod-3", 7);
+
+    assertThat(sketch.top(2))
+      .extracting(ContendedProduct::getProductId, ContendedProduct::getContentions,
+        ContendedProduct::getGuaranteedContentions)
+      .containsExactly(tuple("prod-3", 7L, 7L), tuple("prod-1", 5L, 5L));
+  }
+
+  @Test
+  public void shouldTakeOverCounterOfLeastContendedProductOnceFull() {
+    ContentionSketch sketch = new ContentionSketch(2);
+
+    add(sketch, "prod-1", 5);
+    add(sketch, "prod-2", 2);
+    add(sketch, "prod-3", 1);
+
+    assertThat(sketch.top(10))
+      .extracting(ContendedProduct::getProductId, ContendedProduct::getContentions,
+        ContendedProduct::getGuaranteedContentions)
+      .containsExactly(tuple("prod-1", 5L, 5L), tuple("prod-3", 3L, 1L));
+  }
+
+  @Test
+  public void shouldKeepHeavyHitterAmongManyRarelyContendedProducts() {
+    ContentionSketch sketch = new ContentionSketch(4);
+
+    for (int round = 0; round < 100; round++) {
+      sketch.add("prod-hot");
+      sketch.add("prod-" + round);
+    }
+
+    assertThat(sketch.top(1))
+      .extracting(ContendedProduct::getProductId)
+      .containsExactly("prod-hot");
+    assertThat(sketch.top(1).get(0).getGuaranteedContentions()).isGreaterThanOrEqualTo(50);
+  }
+
+  private static void add(ContentionSketch sketch, String productId, int times) {
+    for (int time = 0; time < times; time++) {
+      sketch.add(productId);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.raga.ecommerce.inventory.lock;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.repository.ProductReservationLockLogRepository;
+import com.raga.ecommerce.inventory.vo.ProductReservationLockLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductLeaseManagerTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+  private static final Instant NOW = Instant.parse("2019-07-01T10:00:00Z");
+
+  @Mock
+  private ProductReservationLockLogRepository lockLogRepository;
+
+  private MeterRegistry meterRegistry;
+  private ProductLeaseManager leaseManager;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    leaseManager = new ProductLeaseManager(lockLogRepository, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC),
+      "instance-1", Duration.ofSeconds(5), Duration.ZERO);
+  }
+
+  @Test
+  public void shouldTakeOverReleasedLeaseWithNextFencingToken() {
+    when(lockLogRepository.takeOverExpired(PRODUCT_ID, ORDER_ID, "instance-1",
+      LocalDateTime.of(2019, 7, 1, 10, 0), NOW, NOW.plusSeconds(5)))
+      .thenReturn(Optional.of(lockLog(null, 7)));
+
+    ProductLease lease = leaseManager.acquire(ORDER_ID, PRODUCT_ID);
+
+    assertThat(lease.getFencingToken()).isEqualTo(8);
+    assertThat(lease.getExpiresAt()).isEqualTo(NOW.plusSeconds(5));
+    assertThat(meterRegistry.get("inventory.lease.steals").counter().count()).isEqualTo(0);
+    verify(lockLogRepository, never()).insertIfAbsent(any());
+  }
+
+  @Test
+  public void shouldCountTakeOverOfExpiredLeaseStillOwnedByAnotherInstanceAsSteal() {
+    when(lockLogRepository.takeOverExpired(eq(PRODUCT_ID), eq(ORDER_ID), eq("instance-1"), any(), any(), any()))
+      .thenReturn(Optional.of(lockLog("instance-2", 7)));
+
+    leaseManager.acquire(ORDER_ID, PRODUCT_ID);
+
+    assertThat(meterRegistry.get("inventory.lease.steals").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCreateLeaseOfProductNeverLeasedBefore() {
+    when(lockLogRepository.takeOverExpired(eq(PRODUCT_ID), eq(ORDER_ID), eq("instance-1"), any(), any(), any()))
+      .thenReturn(Optional.empty());
+    when(lockLogRepository.insertIfAbsent(any())).thenReturn(true);
+
+    ProductLease lease = leaseManager.acquire(ORDER_ID, PRODUCT_ID);
+
+    assertThat(lease.getFencingToken()).isEqualTo(1);
+    assertThat(meterRegistry.get("inventory.lease.acquisitions").counter().count()).isEqualTo(1);
+  }
+
+  @Test(expected = ProductReservationConflictException.class)
+  public void shouldGiveUpIfLeaseIsHeldUntilAcquireTimeout() {
+    when(lockLogRepository.takeOverExpired(eq(PRODUCT_ID), eq(ORDER_ID), eq("instance-1"), any(), any(), any()))
+      .thenReturn(Optional.empty());
+    when(lockLogRepository.insertIfAbsent(any())).thenReturn(false);
+
+    leaseManager.acquire(ORDER_ID, PRODUCT_ID);
+  }
+
+  @Test
+  public void shouldReleaseOnlyTheLeaseWithItsFencingToken() {
+    leaseManager.release(new ProductLease(PRODUCT_ID, 8, NOW, NOW.plusSeconds(5)));
+
+    verify(lockLogRepository).release(PRODUCT_ID, 8);
+    assertThat(meterRegistry.get("inventory.lease.holds").timer().count()).isEqualTo(1);
+  }
+
+  private ProductReservationLockLog lockLog(String owner, long fencingToken) {
+    return new ProductReservationLockLog(PRODUCT_ID, "order-000", LocalDateTime.of(2019, 7, 1, 9, 0),
+      owner, fencingToken, NOW.minusSeconds(1));
+  }
+}
@@ -0,0 +1,136 @@
+package com.raga.ecommerce.inventory.lock;
+
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ProductReservationLockManagerTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+
+  private MeterRegistry meterRegistry;
+  private ProductReservationLockManager lockManager;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    lockManager = new ProductReservationLockManager(meterRegistry, 16, 2000, 50);
+  }
+
+  @Test
+  public void shouldReturnSameLockForSameProductWhileItIsInUse() {
+    ProductLock first = lockManager.getLock(PRODUCT_ID);
+    ProductLock second = lockManager.getLock(PRODUCT_ID);
+
+    assertThat(first).isSameAs(second);
+    assertThat(lockManager.getLock("prod-123")).isNotSameAs(first);
+  }
+
+  @Test
+  public void shouldEvictLockOnceNoRequestIsUsingIt() {
+    ProductLock first = lockManager.getLock(PRODUCT_ID);
+    ProductLock second = lockManager.getLock(PRODUCT_ID);
+
+    first.lock();
+    first.unlock();
+    assertThat(lockManager.getLiveLockCount()).isEqualTo(1);
+
+    second.lock();
+    second.unlock();
+    assertThat(lockManager.getLiveLockCount()).isEqualTo(0);
+    assertThat(meterRegistry.get("inventory.lock.acquisitions").counter().count()).isEqualTo(2);
+    assertThat(meterRegistry.get("inventory.lock.wait.time").timer().count()).isEqualTo(2);
+    assertThat(meterRegistry.get("inventory.lock.hold.time").timer().count()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldRecordHoldOnceForReentrantLocking() {
+    ProductLock first = lockManager.getLock(PRODUCT_ID);
+    ProductLock second = lockManager.getLock(PRODUCT_ID);
+
+    first.lock();
+    second.lock();
+    second.unlock();
+    assertThat(meterRegistry.get("inventory.lock.hold.time").timer().count()).isEqualTo(0);
+
+    first.unlock();
+    assertThat(meterRegistry.get("inventory.lock.hold.time").timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("inventory.lock.wait.time").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCountWaitsForLockHeldByAnotherRequest() throws InterruptedException {
+    ProductLock lock = lockManager.getLock(PRODUCT_ID);
+    lock.lock();
+
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      ProductLock sameLock = lockManager.getLock(PRODUCT_ID);
+      sameLock.lock();
+      acquired.countDown();
+      sameLock.unlock();
+    });
+    waiter.start();
+
+    while (meterRegistry.get("inventory.lock.waits").counter().count() == 0) {
+      Thread.sleep(1);
+    }
+    lock.unlock();
+    acquired.await();
+    waiter.join();
+
+    assertThat(meterRegistry.get("inventory.lock.waits").counter().count()).isEqualTo(1);
+    assertThat(lockManager.getLiveLockCount()).isEqualTo(0);
+    assertThat(lockManager.getMostContended(10))
+      .extracting(ContendedProduct::getProductId, ContendedProduct::getContentions)
+      .containsExactly(tuple(PRODUCT_ID, 1L));
+
+    lockManager.resetContention();
+    assertThat(lockManager.getMostContended(10)).isEmpty();
+  }
+
+  @Test
+  public void shouldThrottleOnceTheLockIsNotAcquiredInTime() throws InterruptedException {
+    ProductReservationLockManager timingOutLockManager = new ProductReservationLockManager(meterRegistry, 16, 10, 50);
+    ProductLock lock = timingOutLockManager.getLock(PRODUCT_ID);
+    lock.lock();
+
+    Throwable thrown = lockFromAnotherThread(timingOutLockManager);
+    lock.unlock();
+
+    assertThat(thrown).isInstanceOf(ReservationThrottledException.class).hasMessageContaining(PRODUCT_ID);
+    assertThat(meterRegistry.get("inventory.lock.rejections").tag("reason", "timeout").counter().count()).isEqualTo(1);
+    assertThat(timingOutLockManager.getLiveLockCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldThrottleWithoutWaitingOnceTooManyRequestsWaitForTheProduct() throws InterruptedException {
+    ProductReservationLockManager boundedLockManager = new ProductReservationLockManager(meterRegistry, 16, 60000, 0);
+    ProductLock lock = boundedLockManager.getLock(PRODUCT_ID);
+    lock.lock();
+
+    Throwable thrown = lockFromAnotherThread(boundedLockManager);
+    lock.unlock();
+
+    assertThat(thrown).isInstanceOf(ReservationThrottledException.class);
+    assertThat(meterRegistry.get("inventory.lock.rejections").tag("reason", "waiters").counter().count()).isEqualTo(1);
+    assertThat(boundedLockManager.getLiveLockCount()).isEqualTo(0);
+  }
+
+  private Throwable lockFromAnotherThread(ProductReservationLockManager manager) throws InterruptedException {
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    Thread waiter = new Thread(() -> thrown.set(catchThrowable(() -> manager.getLock(PRODUCT_ID).lock())));
+    waiter.start();
+    waiter.join();
+    return thrown.get();
+  }
+}
@@ -0,0 +1,38 @@
+package com.raga.ecommerce.inventory.migration;
+
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.reservation.AtomicUpdateReservationStrategy;
+import com.raga.ecommerce.inventory.reservation.LockingReservationStrategy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ItemRangeMigrationTest {
+
+  @Mock
+  private ProductRepository productRepository;
+
+  @Mock
+  private AtomicUpdateReservationStrategy atomicUpdateReservationStrategy;
+
+  @Mock
+  private LockingReservationStrategy lockingReservationStrategy;
+
+  @Test
+  public void shouldRefuseToStartAlongWithStrategyReservingItemsByPosition() {
+    assertThatThrownBy(() -> new ItemRangeMigration(productRepository,
+      newArrayList(lockingReservationStrategy, atomicUpdateReservationStrategy)))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("reserves items by position");
+  }
+
+  @Test
+  public void shouldStartAlongWithStrategyWritingBackWholeProducts() {
+    new ItemRangeMigration(productRepository, newArrayList(lockingReservationStrategy));
+  }
+}
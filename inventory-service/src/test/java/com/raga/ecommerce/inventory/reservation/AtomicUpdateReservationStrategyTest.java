@@ -0,0 +1,93 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AtomicUpdateReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private AtomicUpdateReservationStrategy strategy;
+
+  @Before
+  public void setUp() {
+    strategy = new AtomicUpdateReservationStrategy(productRepository, 3);
+  }
+
+  @Test
+  public void shouldReserveFirstUnreservedItemsWithConditionalUpdate() {
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch()));
+    when(productRepository.reserveItems(any(), eq(newArrayList(0, 1)), eq(ORDER_ID))).thenReturn(true);
+
+    ReserveProductResponse response = strategy.reserveItems(ORDER_ID, PRODUCT_ID, 2, BigDecimal.valueOf(2222.25));
+
+    assertThat(response.getItems()).containsExactly("item-a1", "item-a2");
+    assertThat(response.getCurrentPrice()).isEqualTo(BigDecimal.valueOf(2222.25));
+    verify(productRepository, times(0)).save(any());
+  }
+
+  @Test
+  public void shouldRetryWithFreshProductIfConditionalUpdateFails() {
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch()));
+    when(productRepository.reserveItems(any(), any(), eq(ORDER_ID))).thenReturn(false, true);
+
+    strategy.reserveItems(ORDER_ID, PRODUCT_ID, 1, BigDecimal.valueOf(2222.25));
+
+    verify(productRepository, times(2)).findByProductId(PRODUCT_ID);
+  }
+
+  @Test(expected = ProductReservationConflictException.class)
+  public void shouldGiveUpAfterMaxAttempts() {
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch()));
+    when(productRepository.reserveItems(any(), any(), eq(ORDER_ID))).thenReturn(false);
+
+    strategy.reserveItems(ORDER_ID, PRODUCT_ID, 1, BigDecimal.valueOf(2222.25));
+  }
+
+  @Test
+  public void shouldReleaseReservedLinesIfLaterLineFails() {
+    Product laptop = new Product("prod-789", "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    laptop.addItems(newArrayList("item-b1"));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch()));
+    when(productRepository.findByProductId("prod-789")).thenReturn(Optional.of(laptop));
+    when(productRepository.reserveItems(any(), eq(newArrayList(0, 1)), eq(ORDER_ID))).thenReturn(true);
+
+    assertThatThrownBy(() -> strategy.reserveItems(ORDER_ID, newArrayList(
+      new ReservationLine("prod-789", 2, BigDecimal.valueOf(72222.59)),
+      new ReservationLine(PRODUCT_ID, 2, BigDecimal.valueOf(2222.25)))))
+      .isInstanceOf(ProductAvailableInLessQuantityException.class);
+
+    verify(productRepository).releaseItems(PRODUCT_ID, newArrayList(0, 1), ORDER_ID);
+  }
+
+  private Product watch() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    return watch;
+  }
+}
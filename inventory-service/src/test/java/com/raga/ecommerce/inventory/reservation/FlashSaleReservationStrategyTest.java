@@ -0,0 +1,174 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlashSaleReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final BigDecimal PRICE = BigDecimal.valueOf(2222.25);
+
+  @Mock
+  private ProductRepository productRepository;
+
+  @Mock
+  private ReservationStrategy delegate;
+
+  private MeterRegistry meterRegistry;
+  private Set<Integer> reservedPositions;
+  private int unreservedCursor;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    reservedPositions = new HashSet<>();
+  }
+
+  @Test
+  public void shouldNotOversellUnderContention() throws Exception {
+    FlashSaleReservationStrategy strategy = strategy(4, "round-robin");
+    storeProductWithItems(100);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<ReserveProductResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      String orderId = "order-" + i;
+      responses.add(executor.submit(() -> strategy.reserveItems(orderId, PRODUCT_ID, 1, PRICE)));
+    }
+
+    List<String> items = new ArrayList<>();
+    int soldOut = 0;
+    for (Future<ReserveProductResponse> response : responses) {
+      try {
+        items.addAll(response.get().getItems());
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(ProductUnavailableException.class);
+        soldOut++;
+      }
+    }
+    executor.shutdown();
+
+    assertThat(items).hasSize(100).doesNotHaveDuplicates();
+    assertThat(soldOut).isEqualTo(50);
+  }
+
+  @Test
+  public void shouldStealFromOtherStripesWhenAssignedStripeRunsDry() {
+    FlashSaleReservationStrategy strategy = strategy(2, "hash");
+    storeProductWithItems(4);
+
+    ReserveProductResponse response = strategy.reserveItems("order-123", PRODUCT_ID, 3, PRICE);
+
+    assertThat(response.getItems()).hasSize(3);
+    assertThat(meterRegistry.get("inventory.flash-sale.steals").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("inventory.flash-sale.stripe.imbalance").gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldLeaveProductsNotInFlashSaleToTheStrategyInUse() {
+    FlashSaleReservationStrategy strategy = strategy(2, "round-robin");
+
+    strategy.reserveItems("order-123", "prod-123", 1, PRICE);
+    strategy.releaseItems("order-123", "prod-123", newArrayList("item-a1"));
+
+    verify(delegate).reserveItems("order-123", "prod-123", 1, PRICE);
+    verify(delegate).releaseItems("order-123", "prod-123", newArrayList("item-a1"));
+    verify(productRepository, never()).findByProductId(anyString());
+  }
+
+  @Test
+  public void shouldLeaveItemsNotTakenFromTheStripesToTheStrategyInUse() {
+    FlashSaleReservationStrategy strategy = strategy(2, "hash");
+    storeProductWithItems(4);
+
+    assertThat(strategy.reserveItems("order-2", PRODUCT_ID, 1, PRICE).getItems()).containsExactly("item-1");
+
+    LockingReservationStrategy lockingStrategy = new LockingReservationStrategy(productRepository,
+      new ProductReservationLockManager(meterRegistry, 16, 2000, 50), meterRegistry);
+    ReserveProductResponse response = lockingStrategy.reserveItems("order-3", PRODUCT_ID, 3, PRICE);
+
+    assertThat(response.getItems()).containsExactly("item-0", "item-2", "item-3");
+  }
+
+  private FlashSaleReservationStrategy strategy(int stripes, String assignment) {
+    return new FlashSaleReservationStrategy(delegate, productRepository, meterRegistry,
+      new String[]{PRODUCT_ID}, stripes, assignment, 5);
+  }
+
+  /**
+   * Stands in for the product document, whose conditional update only marks
+   * items which are still unreserved, and which keeps its available quantity
+   * and unreserved cursor as they are written.
+   **/
+  private void storeProductWithItems(int itemCount) {
+    when(productRepository.findByProductId(PRODUCT_ID)).thenAnswer(invocation -> {
+      Product product = new Product(PRODUCT_ID, "Fasttrack Watch", PRICE);
+      synchronized (reservedPositions) {
+        for (int position = 0; position < itemCount; position++) {
+          Item item = new Item("item-" + position);
+          if (reservedPositions.contains(position)) {
+            item.reserve("order");
+          }
+          product.getItems().add(item);
+        }
+        ReflectionTestUtils.setField(product, "availableQuantity", itemCount - reservedPositions.size());
+        ReflectionTestUtils.setField(product, "unreservedCursor", unreservedCursor);
+      }
+      return Optional.of(product);
+    });
+
+    when(productRepository.reserveItemsOutOfOrder(any(Product.class), anyList(), anyString())).thenAnswer(invocation -> {
+      List<Integer> positions = invocation.getArgument(1);
+      synchronized (reservedPositions) {
+        return positions.stream().noneMatch(reservedPositions::contains) && reservedPositions.addAll(positions);
+      }
+    });
+
+    lenient().when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+      Product product = invocation.getArgument(0);
+      synchronized (reservedPositions) {
+        for (int position = 0; position < itemCount; position++) {
+          if (!product.getItems().get(position).isNotReserved()) {
+            reservedPositions.add(position);
+          }
+        }
+        unreservedCursor = product.getUnreservedCursor();
+      }
+      return product;
+    });
+  }
+}
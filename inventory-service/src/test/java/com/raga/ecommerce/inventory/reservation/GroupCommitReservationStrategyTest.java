@@ -0,0 +1,124 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import com.raga.ecommerce.inventory.lock.ProductLock;
+import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GroupCommitReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final int REQUESTS = 40;
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private MeterRegistry meterRegistry;
+  private GroupCommitReservationStrategy strategy;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    strategy = new GroupCommitReservationStrategy(productRepository,
+      new ProductReservationLockManager(meterRegistry, 16, 2000, 50), meterRegistry, 100);
+  }
+
+  @Test
+  public void shouldCommitConcurrentReservationsOfSameProductTogether() throws Exception {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(IntStream.range(0, REQUESTS).mapToObj(i -> "item-" + i).collect(Collectors.toList()));
+    AtomicInteger reads = new AtomicInteger();
+    when(productRepository.findByProductId(PRODUCT_ID)).thenAnswer(invocation -> {
+      reads.incrementAndGet();
+      Thread.sleep(20);
+      return Optional.of(watch);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+    List<Future<ReserveProductResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < REQUESTS; i++) {
+      String orderId = "order-" + i;
+      responses.add(executor.submit(() ->
+        strategy.reserveItems(orderId, PRODUCT_ID, 1, BigDecimal.valueOf(2222.25))));
+    }
+
+    List<String> items = new ArrayList<>();
+    for (Future<ReserveProductResponse> response : responses) {
+      items.addAll(response.get().getItems());
+    }
+    executor.shutdown();
+
+    assertThat(items).hasSize(REQUESTS).doesNotHaveDuplicates();
+    assertThat(watch.getAvailableQuantity()).isEqualTo(0);
+    assertThat(reads.get()).isLessThan(REQUESTS);
+    assertThat(meterRegistry.get("inventory.reservation.group-commit.batch.size").summary().max())
+      .isGreaterThan(1);
+  }
+
+  @Test
+  public void shouldFailOnlyTheReservationWhichCannotBeApplied() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    assertThatThrownBy(() -> strategy.reserveItems("order-1", PRODUCT_ID, 2, BigDecimal.valueOf(2222.25)))
+      .isInstanceOf(ProductAvailableInLessQuantityException.class);
+
+    assertThat(strategy.reserveItems("order-2", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)).getItems())
+      .containsExactly("item-a1");
+    verify(productRepository, times(2)).save(any());
+  }
+
+  @Test
+  public void shouldNotCommitReservationThrottledWhileWaitingForTheLock() throws Exception {
+    ProductReservationLockManager lockManager = new ProductReservationLockManager(meterRegistry, 16, 2000, 0);
+    strategy = new GroupCommitReservationStrategy(productRepository, lockManager, meterRegistry, 100);
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    ProductLock lock = lockManager.getLock(PRODUCT_ID);
+    lock.lock();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<ReserveProductResponse> throttled = executor.submit(() ->
+      strategy.reserveItems("order-1", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)));
+    assertThatThrownBy(throttled::get).hasCauseInstanceOf(ReservationThrottledException.class);
+    executor.shutdown();
+    lock.unlock();
+
+    assertThat(strategy.reserveItems("order-2", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)).getItems())
+      .containsExactly("item-a1");
+    assertThat(watch.getItems().get(0).getReservedByOrderId()).isEqualTo("order-2");
+    verify(productRepository, times(1)).save(any());
+  }
+}
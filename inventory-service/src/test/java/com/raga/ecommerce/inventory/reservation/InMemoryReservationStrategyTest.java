@@ -0,0 +1,182 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.engine.SnapshotFile;
+import com.raga.ecommerce.inventory.engine.WriteAheadLog;
+import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Item;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InMemoryReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final BigDecimal PRICE = BigDecimal.valueOf(2222.25);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private MeterRegistry meterRegistry;
+  private Path walDirectory;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    walDirectory = folder.getRoot().toPath();
+    when(productRepository.findByProductId(PRODUCT_ID)).thenAnswer(invocation -> Optional.of(watch()));
+  }
+
+  @Test
+  public void shouldWriteReservationsToDatabaseOnlyWhenFlushing() {
+    InMemoryReservationStrategy strategy = strategy();
+
+    ReserveProductResponse response = strategy.reserveItems("order-123", PRODUCT_ID, 2, PRICE);
+
+    assertThat(response.getItems()).containsExactly("item-a1", "item-a2");
+    verify(productRepository, never()).saveInBulk(any());
+
+    strategy.flush();
+
+    assertThat(reservedByOrder(savedProduct())).containsExactly("order-123", "order-123", null);
+  }
+
+  @Test
+  public void shouldReplayReservationsNotFlushedBeforeRestart() {
+    InMemoryReservationStrategy crashed = strategy();
+    crashed.reserveItems("order-123", PRODUCT_ID, 1, PRICE);
+    crashed.reserveItems("order-456", PRODUCT_ID, 1, PRICE);
+    crashed.releaseItems("order-123", PRODUCT_ID, newArrayList("item-a1"));
+
+    InMemoryReservationStrategy restarted = strategy();
+
+    assertThat(reservedByOrder(savedProduct())).containsExactly(null, "order-456", null);
+    assertThat(restarted.reserveItems("order-789", PRODUCT_ID, 2, PRICE).getItems())
+      .containsExactly("item-a1", "item-a3");
+  }
+
+  @Test
+  public void shouldLoadProductsFromSnapshotAndReplayReservationsMadeSince() {
+    InMemoryReservationStrategy stopped = strategy();
+    stopped.reserveItems("order-123", PRODUCT_ID, 1, PRICE);
+    stopped.stop();
+    stopped.reserveItems("order-456", PRODUCT_ID, 1, PRICE);
+    clearInvocations(productRepository);
+
+    InMemoryReservationStrategy restarted = strategy();
+
+    verify(productRepository, never()).findByProductId(anyString());
+    assertThat(reservedByOrder(savedProduct())).containsExactly("order-123", "order-456", null);
+    assertThat(restarted.reserveItems("order-789", PRODUCT_ID, 1, PRICE).getItems()).containsExactly("item-a3");
+  }
+
+  @Test
+  public void shouldReserveItemsAddedAndReplayAdditionsAfterRestart() {
+    InMemoryReservationStrategy crashed = strategy();
+    crashed.reserveItems("order-123", PRODUCT_ID, 3, PRICE);
+
+    assertThat(crashed.addItems(PRODUCT_ID, newArrayList("item-a4", "item-a5"))).isEqualTo(2);
+    assertThat(crashed.reserveItems("order-456", PRODUCT_ID, 1, PRICE).getItems()).containsExactly("item-a4");
+
+    strategy();
+
+    assertThat(reservedByOrder(savedProduct())).containsExactly("order-123", "order-123", "order-123",
+      "order-456", null);
+  }
+
+  @Test
+  public void shouldReserveNoLineIfAnyLineCannotBeReserved() {
+    Product laptop = new Product("prod-789", "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    laptop.addItems(newArrayList("item-b1"));
+    when(productRepository.findByProductId("prod-789")).thenReturn(Optional.of(laptop));
+    InMemoryReservationStrategy strategy = strategy();
+
+    assertThatThrownBy(() -> strategy.reserveItems("order-123", newArrayList(
+      new ReservationLine(PRODUCT_ID, 1, PRICE),
+      new ReservationLine("prod-789", 2, BigDecimal.valueOf(72222.59)))))
+      .isInstanceOf(ProductAvailableInLessQuantityException.class);
+
+    assertThat(strategy.reserveItems("order-456", PRODUCT_ID, 3, PRICE).getItems()).hasSize(3);
+  }
+
+  private InMemoryReservationStrategy strategy() {
+    return strategy(new WriteAheadLog(walDirectory, 4096, meterRegistry));
+  }
+
+  private InMemoryReservationStrategy strategy(WriteAheadLog log) {
+    InMemoryReservationStrategy strategy = new InMemoryReservationStrategy(productRepository, log,
+      new SnapshotFile(folder.getRoot().toPath().resolve("inventory.snapshot")), meterRegistry);
+    strategy.recover();
+    return strategy;
+  }
+
+  @Test
+  public void shouldStopChangingProductsOnceReservationCannotBeMadeDurable() {
+    WriteAheadLog log = spy(new WriteAheadLog(walDirectory, 4096, meterRegistry));
+    InMemoryReservationStrategy failed = strategy(log);
+    doThrow(new UncheckedIOException(new IOException("fsync failed"))).when(log).awaitDurable(anyLong());
+
+    assertThatThrownBy(() -> failed.reserveItems("order-123", PRODUCT_ID, 1, PRICE))
+      .isInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> failed.releaseItems("order-123", PRODUCT_ID, newArrayList("item-a1")))
+      .isInstanceOf(IllegalStateException.class)
+      .hasCauseInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> failed.addItems(PRODUCT_ID, newArrayList("item-a4")))
+      .isInstanceOf(IllegalStateException.class);
+
+    clearInvocations(productRepository);
+    failed.stop();
+
+    verify(productRepository, never()).saveInBulk(any());
+  }
+
+  private static Product watch() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", PRICE);
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    return watch;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Product savedProduct() {
+    ArgumentCaptor<Collection<Product>> saved = ArgumentCaptor.forClass(Collection.class);
+    verify(productRepository).saveInBulk(saved.capture());
+    return saved.getValue().iterator().next();
+  }
+
+  private static Iterable<String> reservedByOrder(Product product) {
+    return () -> product.getItems().stream().map(Item::getReservedByOrderId).iterator();
+  }
+}
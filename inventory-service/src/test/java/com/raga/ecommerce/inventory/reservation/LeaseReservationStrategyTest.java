@@ -0,0 +1,87 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductLeaseExpiredException;
+import com.raga.ecommerce.inventory.lock.ProductLease;
+import com.raga.ecommerce.inventory.lock.ProductLeaseManager;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LeaseReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+  private static final BigDecimal PRICE = BigDecimal.valueOf(2222.25);
+
+  @Mock
+  private ProductRepository productRepository;
+
+  @Mock
+  private ProductLeaseManager productLeaseManager;
+
+  private MeterRegistry meterRegistry;
+  private LeaseReservationStrategy strategy;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    strategy = new LeaseReservationStrategy(productRepository, productLeaseManager, meterRegistry);
+    when(productLeaseManager.acquire(ORDER_ID, PRODUCT_ID))
+      .thenReturn(new ProductLease(PRODUCT_ID, 6, Instant.EPOCH, Instant.EPOCH.plusSeconds(5)));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch()));
+  }
+
+  @Test
+  public void shouldFenceProductBeforeReadingItAndWriteItWithTheSameToken() {
+    when(productRepository.fence(PRODUCT_ID, 6)).thenReturn(true);
+    when(productRepository.saveFenced(any(), anyLong())).thenReturn(true);
+
+    strategy.reserveItems(ORDER_ID, PRODUCT_ID, 1, PRICE);
+
+    InOrder order = inOrder(productRepository);
+    order.verify(productRepository).fence(PRODUCT_ID, 6);
+    order.verify(productRepository).findByProductId(PRODUCT_ID);
+    order.verify(productRepository).saveFenced(any(), eq(6L));
+  }
+
+  @Test
+  public void shouldNotReserveProductFencedByLaterLease() {
+    when(productRepository.fence(PRODUCT_ID, 6)).thenReturn(false);
+
+    assertThatThrownBy(() -> strategy.reserveItems(ORDER_ID, PRODUCT_ID, 1, PRICE))
+      .isInstanceOf(ProductLeaseExpiredException.class);
+
+    verify(productRepository, never()).saveFenced(any(), anyLong());
+    verify(productLeaseManager).release(any());
+    assertThat(meterRegistry.get("inventory.lease.fenced.writes").counter().count()).isEqualTo(1);
+  }
+
+  private Product watch() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", PRICE);
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    return watch;
+  }
+}
@@ -0,0 +1,96 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.vo.Product;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the bytes sent to the database per reservation by the strategies
+ * writing back the whole product document and by the item-collection one.
+ **/
+public class ReservationWriteSizeTest {
+
+  private static final String ORDER_ID = "3f2c8a4e-5b1d-4c7e-9a0f-6d2b8e1c4a7f";
+  private static final int QUANTITY = 2;
+
+  private MappingMongoConverter converter;
+
+  @Before
+  public void setUp() {
+    MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+    MongoMappingContext mappingContext = new MongoMappingContext();
+    mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+
+    converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+  }
+
+  @Test
+  public void shouldWriteLessPerReservationWithItemsInTheirOwnCollection() {
+    for (int itemCount : new int[]{1_000, 100_000}) {
+      assertThat(itemCollectionLayoutBytes()).isLessThan(documentLayoutBytes(itemCount) / 10);
+    }
+  }
+
+  @Test
+  public void shouldWriteLessPerReservationWithItemsStoredAsRanges() {
+    for (int itemCount : new int[]{1_000, 100_000}) {
+      assertThat(documentLayoutBytes(itemCount, true)).isLessThan(documentLayoutBytes(itemCount, false) / 10);
+    }
+  }
+
+  private int documentLayoutBytes(int itemCount) {
+    return documentLayoutBytes(itemCount, false);
+  }
+
+  private int documentLayoutBytes(int itemCount, boolean itemRanges) {
+    Product product = new Product("prod-456", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    product.addItems(itemIds(itemCount));
+    if (itemRanges) {
+      product.encodeItemRanges();
+    }
+    product.reserveItems(ORDER_ID, QUANTITY);
+
+    Document document = new Document();
+    converter.write(product, document);
+    return size(document);
+  }
+
+  private int itemCollectionLayoutBytes() {
+    Document takeQuantity = new Document("_id", "prod-456")
+      .append("price", "2222.25")
+      .append("availableQuantity", new Document("$gte", QUANTITY));
+    Document decrement = new Document("$inc", new Document("availableQuantity", -QUANTITY));
+
+    Document anyUnreservedItem = new Document("productId", "prod-456").append("reservedByOrderId", null);
+    Document reserveItem = new Document("$set", new Document("reservedByOrderId", ORDER_ID));
+
+    return size(takeQuantity) + size(decrement) + QUANTITY * (size(anyUnreservedItem) + size(reserveItem));
+  }
+
+  private List<String> itemIds(int itemCount) {
+    return IntStream.rangeClosed(1, itemCount)
+      .mapToObj(i -> String.format("SKU456-%06d", i))
+      .collect(Collectors.toList());
+  }
+
+  private int size(Document document) {
+    return new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+  }
+}
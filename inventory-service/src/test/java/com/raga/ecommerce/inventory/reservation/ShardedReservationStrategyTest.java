@@ -0,0 +1,132 @@
+package com.raga.ecommerce.inventory.reservation;
+
+import com.raga.ecommerce.inventory.exception.ProductReservationRejectedException;
+import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ShardedReservationStrategyTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private MeterRegistry meterRegistry;
+  private ShardedReservationStrategy strategy;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @After
+  public void tearDown() {
+    strategy.stop();
+  }
+
+  @Test
+  public void shouldReserveConcurrentlyWithoutReservingAnyItemTwice() throws Exception {
+    strategy = new ShardedReservationStrategy(productRepository, meterRegistry, 4, 1000, 100);
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(IntStream.range(0, 50).mapToObj(i -> "item-" + i).collect(Collectors.toList()));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<ReserveProductResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      String orderId = "order-" + i;
+      responses.add(executor.submit(() ->
+        strategy.reserveItems(orderId, PRODUCT_ID, 1, BigDecimal.valueOf(2222.25))));
+    }
+
+    List<String> items = new ArrayList<>();
+    for (Future<ReserveProductResponse> response : responses) {
+      items.addAll(response.get().getItems());
+    }
+    executor.shutdown();
+
+    assertThat(items).hasSize(50).doesNotHaveDuplicates();
+    assertThat(watch.getAvailableQuantity()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRejectReservationOnceQueueOfShardIsFull() throws Exception {
+    strategy = new ShardedReservationStrategy(productRepository, meterRegistry, 1, 1, 1);
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    when(productRepository.findByProductId(PRODUCT_ID)).thenAnswer(invocation -> {
+      reading.countDown();
+      resume.await();
+      return Optional.of(watch);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<ReserveProductResponse> first = executor.submit(() ->
+      strategy.reserveItems("order-1", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)));
+    reading.await();
+    Future<ReserveProductResponse> second = executor.submit(() ->
+      strategy.reserveItems("order-2", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)));
+    while (meterRegistry.get("inventory.shard.queue.depth").gauge().value() == 0) {
+      Thread.sleep(1);
+    }
+
+    assertThatThrownBy(() -> strategy.reserveItems("order-3", PRODUCT_ID, 1, BigDecimal.valueOf(2222.25)))
+      .isInstanceOf(ProductReservationRejectedException.class);
+
+    resume.countDown();
+    assertThat(first.get().getItems()).containsExactly("item-a1");
+    assertThat(second.get().getItems()).containsExactly("item-a2");
+    executor.shutdown();
+    assertThat(meterRegistry.get("inventory.shard.rejections").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReserveProductsOfSeveralShardsTogether() {
+    strategy = new ShardedReservationStrategy(productRepository, meterRegistry, 4, 1000, 100);
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    laptop.addItems(newArrayList("item-b1"));
+    when(productRepository.findAllById(any())).thenReturn(newArrayList(watch, laptop));
+
+    Map<String, ReserveProductResponse> responses = strategy.reserveItems("order-1", newArrayList(
+      new ReservationLine(PRODUCT_ID, 1, BigDecimal.valueOf(72222.59)),
+      new ReservationLine("prod-123", 1, BigDecimal.valueOf(2222.25))));
+
+    assertThat(responses.get("prod-123").getItems()).containsExactly("item-a1");
+    assertThat(responses.get(PRODUCT_ID).getItems()).containsExactly("item-b1");
+    verify(productRepository).saveInBulk(any());
+  }
+}
@@ -1,25 +1,47 @@
 package com.raga.ecommerce.inventory.service;
 
+import com.raga.ecommerce.inventory.catalog.AvailableProductsIndex;
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
 import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
 import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductReservedTwiceException;
 import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.exception.ReservationNotFoundException;
+import com.raga.ecommerce.inventory.hold.ReservationHolds;
+import com.raga.ecommerce.inventory.lock.ProductLock;
 import com.raga.ecommerce.inventory.lock.ProductReservationLockManager;
 import com.raga.ecommerce.inventory.repository.ProductRepository;
+import com.raga.ecommerce.inventory.reservation.LockingReservationStrategy;
+import com.raga.ecommerce.inventory.reservation.ReservationLine;
 import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
 import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -27,6 +49,7 @@ public class ProductServiceTest {
 
   private static final String PRODUCT_ID = "prod-456";
   private static final String ORDER_ID = "order-123";
+  private static final int RESTOCK_BATCH_SIZE = 2;
 
   @Mock
   private ProductRepository productRepository;
@@ -34,26 +57,51 @@ public class ProductServiceTest {
   @Mock
   private ProductReservationLockManager productReservationLockManager;
 
+  @Mock
+  private ReservationHolds reservationHolds;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  private MeterRegistry meterRegistry;
+
   private ProductService productService;
 
   @Before
   public void setUp() {
-    productService = new ProductService(productRepository, productReservationLockManager);
-    when(productReservationLockManager.getLock(anyString())).thenReturn(new ReentrantLock());
+    meterRegistry = new SimpleMeterRegistry();
+    productService = new ProductService(productRepository,
+      new LockingReservationStrategy(productRepository, productReservationLockManager, meterRegistry), Optional.empty(),
+      reservationHolds, new ReservationAdmission(meterRegistry, 10), eventPublisher, meterRegistry, RESTOCK_BATCH_SIZE);
+    when(productReservationLockManager.getLock(anyString())).thenReturn(mock(ProductLock.class));
+    lenient().when(reservationHolds.reserveOnce(anyString(), anyString(), any()))
+      .thenAnswer(invocation -> invocation.<Supplier<ReserveProductResponse>>getArgument(2).get());
+    lenient().when(reservationHolds.reserveOnce(anyString(), anyList(), any()))
+      .thenAnswer(invocation -> invocation.<Function<List<String>, Map<String, ReserveProductResponse>>>getArgument(2)
+        .apply(invocation.getArgument(1)));
   }
 
   @Test
   public void shouldReturnOnlyAvailableProducts() {
     Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
-    List<String> items = newArrayList("item-a1", "item-a2");
-    watch.addItems(items);
-    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
-    List<Product> products = newArrayList(watch, laptop);
-    when(productRepository.findAll()).thenReturn(products);
+    when(productRepository.findAvailableProducts()).thenReturn(newArrayList(watch));
 
     List<Product> actual = productService.getAvailableProducts();
     assertThat(actual.size()).isEqualTo(1);
     assertThat(actual.get(0).getProductId()).isEqualTo("prod-123");
+    verify(productRepository, never()).findAll();
+  }
+
+  @Test
+  public void shouldReadAvailableProductsAlongWithTheirQuantityInOnePass() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    when(productRepository.streamProductAvailability()).thenReturn(Stream.of(watch));
+
+    assertThat(productService.getProductAvailability())
+      .extracting(availability -> availability.getProduct().getProductId(), ProductAvailability::getAvailableQuantity)
+      .containsExactly(tuple("prod-123", 2));
+    verify(productRepository, never()).findAvailableProducts();
   }
 
   @Test(expected = ProductUnavailableException.class)
@@ -107,6 +155,22 @@ public class ProductServiceTest {
     assertThat(response.getCurrentPrice()).isEqualTo(BigDecimal.valueOf(2222.25));
   }
 
+  @Test
+  public void shouldTimeEachPhaseOfReservation() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, BigDecimal.valueOf(2222.25));
+
+    for (String phase : newArrayList("reserve", "record", "publish")) {
+      assertThat(meterRegistry.get("inventory.reservation.phase").tag("phase", phase).timer().count()).isEqualTo(1);
+    }
+    for (String phase : newArrayList("read", "change", "save")) {
+      assertThat(meterRegistry.get("inventory.product.update").tag("phase", phase).timer().count()).isEqualTo(1);
+    }
+  }
+
   @Test
   public void shouldReserveItemsIfAvailableAtLessThanExpectedPrice() {
     Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
@@ -136,4 +200,167 @@ public class ProductServiceTest {
 
     verify(productRepository, times(1)).save(any());
   }
-}
\ No newline at end of file
+
+  @Test(expected = ReservationNotFoundException.class)
+  public void shouldThrowExceptionIfOrderHasNoReservationToConfirm() {
+    when(reservationHolds.confirm(ORDER_ID)).thenReturn(newArrayList());
+
+    productService.confirmReservations(ORDER_ID);
+  }
+
+  @Test
+  public void shouldPublishStockChangeOfReservedItems() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    productService.reserveItems(ORDER_ID, PRODUCT_ID, 2, BigDecimal.valueOf(2222.25));
+
+    verify(reservationHolds).record(eq(ORDER_ID), eq(PRODUCT_ID), any(ReserveProductResponse.class));
+    ArgumentCaptor<ProductStockChangedEvent> event = ArgumentCaptor.forClass(ProductStockChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().getProductId()).isEqualTo(PRODUCT_ID);
+    assertThat(event.getValue().getQuantityChange()).isEqualTo(-2);
+  }
+
+  @Test
+  public void shouldReadAvailableProductsFromIndexOnceLoaded() {
+    AvailableProductsIndex index = mock(AvailableProductsIndex.class);
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(index.isLoaded()).thenReturn(true);
+    when(index.getAvailableProducts()).thenReturn(newArrayList(watch));
+
+    ProductService indexedProductService = new ProductService(productRepository,
+      new LockingReservationStrategy(productRepository, productReservationLockManager, meterRegistry), Optional.of(index),
+      reservationHolds, new ReservationAdmission(meterRegistry, 10), eventPublisher, meterRegistry, RESTOCK_BATCH_SIZE);
+
+    assertThat(indexedProductService.getAvailableProducts()).containsExactly(watch);
+    verify(productRepository, never()).findAvailableProducts();
+  }
+
+  @Test
+  public void shouldReserveAllLinesLockingProductsInIdOrderAndSavingThemInBulk() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    laptop.addItems(newArrayList("item-b1"));
+    when(productRepository.findAllById(any())).thenReturn(newArrayList(laptop, watch));
+
+    Map<String, ReserveProductResponse> responses = productService.reserveItems(ORDER_ID, newArrayList(
+      new ReservationLine(PRODUCT_ID, 1, BigDecimal.valueOf(72222.59)),
+      new ReservationLine("prod-123", 2, BigDecimal.valueOf(2222.25))));
+
+    assertThat(responses.get(PRODUCT_ID).getItems()).containsExactly("item-b1");
+    assertThat(responses.get("prod-123").getItems()).containsExactly("item-a1", "item-a2");
+
+    InOrder lockOrder = inOrder(productReservationLockManager);
+    lockOrder.verify(productReservationLockManager).getLock("prod-123");
+    lockOrder.verify(productReservationLockManager).getLock(PRODUCT_ID);
+    verify(productRepository, times(1)).saveInBulk(argThat(products -> products.size() == 2));
+    verify(productRepository, never()).save(any());
+    verify(eventPublisher, times(2)).publishEvent(any(ProductStockChangedEvent.class));
+  }
+
+  @Test
+  public void shouldReserveNoLineIfAnyLineCannotBeReserved() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    laptop.addItems(newArrayList("item-b1"));
+    when(productRepository.findAllById(any())).thenReturn(newArrayList(watch, laptop));
+
+    assertThatThrownBy(() -> productService.reserveItems(ORDER_ID, newArrayList(
+      new ReservationLine("prod-123", 2, BigDecimal.valueOf(2222.25)),
+      new ReservationLine(PRODUCT_ID, 2, BigDecimal.valueOf(72222.59)))))
+      .isInstanceOf(ProductAvailableInLessQuantityException.class);
+
+    assertThat(watch.getAvailableQuantity()).isEqualTo(2);
+    verify(productRepository, never()).saveInBulk(any());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  public void shouldReserveOnlyLinesNotReservedByTheOrderYet() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+    when(productRepository.findAllById(any())).thenReturn(newArrayList(watch));
+    when(reservationHolds.reserveOnce(eq(ORDER_ID), eq(newArrayList(PRODUCT_ID, "prod-123")), any()))
+      .thenAnswer(invocation -> {
+        Map<String, ReserveProductResponse> responses = new HashMap<>(invocation
+          .<Function<List<String>, Map<String, ReserveProductResponse>>>getArgument(2).apply(newArrayList("prod-123")));
+        responses.put(PRODUCT_ID, new ReserveProductResponse(newArrayList("item-b1"), BigDecimal.valueOf(72222.59)));
+        return responses;
+      });
+
+    Map<String, ReserveProductResponse> responses = productService.reserveItems(ORDER_ID, newArrayList(
+      new ReservationLine(PRODUCT_ID, 1, BigDecimal.valueOf(72222.59)),
+      new ReservationLine("prod-123", 1, BigDecimal.valueOf(2222.25))));
+
+    assertThat(responses.get(PRODUCT_ID).getItems()).containsExactly("item-b1");
+    assertThat(responses.get("prod-123").getItems()).containsExactly("item-a1");
+    verify(reservationHolds).record(eq(ORDER_ID), argThat((Map<String, ReserveProductResponse> reserved) ->
+      reserved.keySet().equals(singleton("prod-123"))));
+    verify(eventPublisher, times(1)).publishEvent(any(ProductStockChangedEvent.class));
+  }
+
+  @Test(expected = ProductReservedTwiceException.class)
+  public void shouldThrowExceptionIfProductAppearsInMoreThanOneLine() {
+    productService.reserveItems(ORDER_ID, newArrayList(
+      new ReservationLine(PRODUCT_ID, 1, BigDecimal.valueOf(72222.59)),
+      new ReservationLine(PRODUCT_ID, 2, BigDecimal.valueOf(72222.59))));
+  }
+
+  @Test
+  public void shouldRestockInBatchesAppendingItemsAndPublishingStockChanges() {
+    when(productRepository.pushItems(eq(PRODUCT_ID), anyList())).thenReturn(true);
+
+    int added = productService.restock(PRODUCT_ID, newArrayList("item-a1", "item-a2", "item-a3").iterator());
+
+    assertThat(added).isEqualTo(3);
+    InOrder inOrder = inOrder(productRepository);
+    inOrder.verify(productRepository).pushItems(PRODUCT_ID, newArrayList("item-a1", "item-a2"));
+    inOrder.verify(productRepository).pushItems(PRODUCT_ID, newArrayList("item-a3"));
+    verify(productRepository, never()).save(any(Product.class));
+
+    ArgumentCaptor<ProductStockChangedEvent> events = ArgumentCaptor.forClass(ProductStockChangedEvent.class);
+    verify(eventPublisher, times(2)).publishEvent(events.capture());
+    assertThat(events.getAllValues()).extracting(ProductStockChangedEvent::getQuantityChange).containsExactly(2, 1);
+  }
+
+  @Test
+  public void shouldRestockProductStoredAsItemRangesByWritingItBack() {
+    Product watch = new Product(PRODUCT_ID, "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+    watch.encodeItemRanges();
+    when(productRepository.pushItems(eq(PRODUCT_ID), anyList())).thenReturn(false);
+    when(productRepository.findByProductId(PRODUCT_ID)).thenReturn(Optional.of(watch));
+
+    productService.restock(PRODUCT_ID, newArrayList("item-a2").iterator());
+
+    verify(productRepository).save(watch);
+    assertThat(watch.getAvailableQuantity()).isEqualTo(2);
+    assertThat(watch.getItemRanges().size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldAddItemsReadBeforeFailingRestock() {
+    when(productRepository.pushItems(eq(PRODUCT_ID), anyList())).thenReturn(true);
+    Iterator<String> itemIds = Stream.<Supplier<String>>of(() -> "item-a1", () -> {
+      throw new IllegalStateException("Connection reset");
+    }).map(Supplier::get).iterator();
+
+    assertThatThrownBy(() -> productService.restock(PRODUCT_ID, itemIds)).isInstanceOf(IllegalStateException.class);
+
+    verify(productRepository).pushItems(PRODUCT_ID, newArrayList("item-a1"));
+  }
+
+  @Test
+  public void shouldNotAddBatchAgainOnceItFailedToBeAdded() {
+    when(productRepository.pushItems(eq(PRODUCT_ID), anyList())).thenThrow(new IllegalStateException("Write failed"));
+
+    assertThatThrownBy(() -> productService.restock(PRODUCT_ID, newArrayList("item-a1", "item-a2").iterator()))
+      .isInstanceOf(IllegalStateException.class);
+
+    verify(productRepository, times(1)).pushItems(eq(PRODUCT_ID), anyList());
+  }
+}
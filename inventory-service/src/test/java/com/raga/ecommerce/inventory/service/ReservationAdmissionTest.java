@@ -0,0 +1,47 @@
+package com.raga.ecommerce.inventory.service;
+
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReservationAdmissionTest {
+
+  private MeterRegistry meterRegistry;
+  private ReservationAdmission reservationAdmission;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    reservationAdmission = new ReservationAdmission(meterRegistry, 1);
+  }
+
+  @Test
+  public void shouldThrottleReservationsBeyondTheOnesInFlight() {
+    String reserved = reservationAdmission.admit(() -> {
+      assertThat(reservationAdmission.getInFlightCount()).isEqualTo(1);
+      assertThatThrownBy(() -> reservationAdmission.admit(() -> "second"))
+        .isInstanceOf(ReservationThrottledException.class)
+        .hasMessage("Reservation throttled, too many reservations are in progress");
+      return "first";
+    });
+
+    assertThat(reserved).isEqualTo("first");
+    assertThat(reservationAdmission.getInFlightCount()).isEqualTo(0);
+    assertThat(meterRegistry.get("inventory.admission.rejections").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldAdmitAgainOnceAFailedReservationIsDone() {
+    assertThatThrownBy(() -> reservationAdmission.admit(() -> {
+      throw new IllegalStateException("failed");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(reservationAdmission.admit(() -> "reserved")).isEqualTo("reserved");
+    assertThat(reservationAdmission.getInFlightCount()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,56 @@
+package com.raga.ecommerce.inventory.vo;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap retained per item by a product holding its items as
+ * {@link Item} objects, as they are read from the database, and by
+ * {@link CompactItems}, with half of the items reserved by orders of ten items.
+ * The item ids are the same strings in both forms, so the comparison is made
+ * on what is retained besides them.
+ **/
+public class CompactItemsFootprintTest {
+
+  private static final int ITEMS_PER_ORDER = 10;
+
+  @Test
+  public void shouldRetainLessHeapPerItemInCompactForm() {
+    for (int itemCount : new int[]{1_000, 100_000}) {
+      List<Item> items = readItems(itemCount);
+      Product product = new Product("prod-456", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+      product.getItems().addAll(items);
+      CompactItems compactItems = CompactItems.of(items);
+
+      long itemIdBytes = GraphLayout.parseInstance(items.stream().map(Item::getItemId).toArray()).totalSize()
+        / itemCount;
+      long itemBytes = GraphLayout.parseInstance(product.getItems()).totalSize() / itemCount - itemIdBytes;
+      long compactBytes = GraphLayout.parseInstance(compactItems).totalSize() / itemCount - itemIdBytes;
+
+      assertThat(compactBytes).isLessThan(itemBytes / 3);
+    }
+  }
+
+  /**
+   * Items as the mapping layer builds them, with a distinct order id string
+   * for every reserved item.
+   **/
+  private static List<Item> readItems(int itemCount) {
+    return IntStream.range(0, itemCount)
+      .mapToObj(position -> {
+        Item item = new Item(String.format("item-%08d", position));
+        if (position % 2 == 0) {
+          item.reserve(new String("order-" + position / (2 * ITEMS_PER_ORDER)));
+        }
+        return item;
+      })
+      .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,67 @@
+package com.raga.ecommerce.inventory.vo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactItemsTest {
+
+  @Test
+  public void shouldConvertItemsBackToTheSameItems() {
+    Item reserved = new Item("item-a2");
+    reserved.reserve("order-123");
+    List<Item> items = newArrayList(new Item("item-a1"), reserved, new Item("item-a3"));
+
+    List<Item> converted = CompactItems.of(items).toItems();
+
+    assertThat(converted).extracting(Item::getItemId).containsExactly("item-a1", "item-a2", "item-a3");
+    assertThat(converted).extracting(Item::getReservedByOrderId).containsExactly(null, "order-123", null);
+  }
+
+  @Test
+  public void shouldReserveFirstUnreservedItems() {
+    Item reserved = new Item("item-a1");
+    reserved.reserve("order-123");
+    CompactItems items = CompactItems.of(newArrayList(reserved, new Item("item-a2"), new Item("item-a3")));
+
+    int[] slots = items.reserve("order-456", 2);
+
+    assertThat(slots).containsExactly(1, 2);
+    assertThat(items.getReservedByOrderId(2)).isEqualTo("order-456");
+    assertThat(items.getAvailableQuantity()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReleaseOnlyItemsReservedByTheOrder() {
+    CompactItems items = new CompactItems();
+    items.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    items.reserve("order-123", 2);
+    items.reserve("order-456", 1);
+
+    assertThat(items.release("order-123", newArrayList("item-a1", "item-a3"))).isEqualTo(1);
+    assertThat(items.release("order-789", newArrayList("item-a2"))).isEqualTo(0);
+
+    assertThat(items.getAvailableQuantity()).isEqualTo(1);
+    assertThat(items.reserve("order-789", 1)).containsExactly(0);
+  }
+
+  @Test
+  public void shouldReuseOrderCodeOnceOrderHoldsNoSlot() {
+    CompactItems items = new CompactItems();
+    items.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    items.reserve("order-123", 2);
+    items.reserve("order-456", 1);
+
+    items.release("order-123", newArrayList("item-a1", "item-a2"));
+    assertThat(items.getOrderCount()).isEqualTo(1);
+
+    items.reserve("order-789", 1);
+    assertThat(items.getOrderCount()).isEqualTo(2);
+    assertThat(items.getAvailableQuantity()).isEqualTo(1);
+    assertThat(items.toItems()).extracting(Item::getReservedByOrderId).containsExactly("order-789", null, "order-456");
+    assertThat(items.release("order-123", newArrayList("item-a1"))).isEqualTo(0);
+  }
+}
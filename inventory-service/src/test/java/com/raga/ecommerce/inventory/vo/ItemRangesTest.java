@@ -0,0 +1,57 @@
+package com.raga.ecommerce.inventory.vo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ItemRangesTest {
+
+  @Test
+  public void shouldStoreSequentialItemIdsAsOneRange() {
+    ItemRanges itemRanges = new ItemRanges();
+    itemRanges.addItems(newArrayList("SKU123-000998", "SKU123-000999", "SKU123-001000", "gift-wrap", "SKU123-001001"));
+
+    assertThat(itemRanges.getRanges()).extracting(ItemRange::getPrefix)
+      .containsExactly("SKU123-", "gift-wrap", "SKU123-");
+    assertThat(itemRanges.getItemId(2)).isEqualTo("SKU123-001000");
+    assertThat(itemRanges.getItemId(3)).isEqualTo("gift-wrap");
+    assertThat(itemRanges.positionOf("SKU123-001001")).isEqualTo(4);
+    assertThat(itemRanges.positionOf("SKU123-1000")).isEqualTo(-1);
+  }
+
+  @Test
+  public void shouldKeepOrdersReservingConsecutiveItemsAsRuns() {
+    ItemRanges itemRanges = new ItemRanges();
+    itemRanges.addItems(newArrayList("item-1", "item-2", "item-3", "item-4", "item-5"));
+    itemRanges.reserve(0, "order-123");
+    itemRanges.reserve(1, "order-123");
+    itemRanges.reserve(3, "order-456");
+    itemRanges.reserve(2, "order-123");
+
+    assertThat(itemRanges.getReservedRuns()).extracting(ReservedRun::getOrderId)
+      .containsExactly("order-123", "order-456");
+    assertThat(itemRanges.getReservedByOrderId(2)).isEqualTo("order-123");
+    assertThat(itemRanges.nextUnreserved(0)).isEqualTo(4);
+
+    assertThat(itemRanges.release(3, "order-123")).isFalse();
+    assertThat(itemRanges.release(1, "order-123")).isTrue();
+    assertThat(itemRanges.getReservedRuns()).extracting(ReservedRun::getFrom).containsExactly(0, 2, 3);
+    assertThat(itemRanges.nextUnreserved(0)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldDecodeTheItemsItWasEncodedFrom() {
+    Item reserved = new Item("SKU123-000002");
+    reserved.reserve("order-123");
+    List<Item> items = newArrayList(new Item("SKU123-000001"), reserved, new Item("SKU123-000003"));
+
+    List<Item> decoded = ItemRanges.encode(items).toItems();
+
+    assertThat(decoded).extracting(Item::getItemId)
+      .containsExactly("SKU123-000001", "SKU123-000002", "SKU123-000003");
+    assertThat(decoded).extracting(Item::getReservedByOrderId).containsExactly(null, "order-123", null);
+  }
+}
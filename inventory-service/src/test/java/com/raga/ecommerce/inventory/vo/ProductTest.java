@@ -3,6 +3,7 @@ package com.raga.ecommerce.inventory.vo;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,4 +32,100 @@ public class ProductTest {
     assertThat(watch.getUnreservedItems().size()).isEqualTo(1);
     assertThat(watch.getUnreservedItems().get(0).getItemId()).isEqualTo("item-a2");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void shouldKeepCountOfAvailableItems() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+
+    assertThat(watch.hasUnreservedItems()).isFalse();
+
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    watch.reserveItems("order-123", 2);
+
+    assertThat(watch.getAvailableQuantity()).isEqualTo(1);
+    assertThat(watch.hasUnreservedItems()).isTrue();
+  }
+
+  @Test
+  public void shouldReserveFirstUnreservedItemsInOrder() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+
+    List<Item> first = watch.reserveItems("order-123", 1);
+    List<Item> second = watch.reserveItems("order-456", 2);
+
+    assertThat(first).extracting(Item::getItemId).containsExactly("item-a1");
+    assertThat(second).extracting(Item::getItemId).containsExactly("item-a2", "item-a3");
+    assertThat(watch.getUnreservedItems()).isEmpty();
+    assertThat(watch.getAvailableQuantity()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldIndexItemsOfProductsSavedWithoutCounters() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    Item reserved = new Item("item-a1");
+    reserved.reserve("order-123");
+    watch.getItems().add(reserved);
+    watch.getItems().add(new Item("item-a2"));
+
+    assertThat(watch.getAvailableQuantity()).isEqualTo(1);
+    assertThat(watch.reserveItems("order-456", 1)).extracting(Item::getItemId).containsExactly("item-a2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotReserveMoreItemsThanAvailable() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1"));
+
+    watch.reserveItems("order-123", 2);
+  }
+
+  @Test
+  public void shouldReleaseOnlyItemsReservedByTheOrder() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2", "item-a3"));
+    watch.reserveItems("order-123", 2);
+    watch.reserveItems("order-456", 1);
+
+    int released = watch.releaseItems("order-123", newArrayList("item-a2", "item-a3"));
+
+    assertThat(released).isEqualTo(1);
+    assertThat(watch.getAvailableQuantity()).isEqualTo(1);
+    assertThat(watch.getUnreservedCursor()).isEqualTo(1);
+    assertThat(watch.reserveItems("order-789", 1).get(0).getItemId()).isEqualTo("item-a2");
+  }
+
+  @Test
+  public void shouldFindReservedPositionsOfItemsAddedAfterTheFirstLookup() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("item-a1", "item-a2"));
+    watch.reserveItems("order-123", 1);
+    assertThat(watch.getReservedPositions("order-123", newArrayList("item-a1", "item-x"))).containsExactly(0);
+
+    watch.addItems(newArrayList("item-a3", "item-a4"));
+    watch.reserveItems("order-456", 3);
+
+    assertThat(watch.getReservedPositions("order-456", newArrayList("item-a4", "item-a2", "item-a3")))
+      .containsExactly(1, 2, 3);
+    assertThat(watch.getReservedPositions("order-456", newArrayList("item-a1"))).isEmpty();
+  }
+
+  @Test
+  public void shouldReserveAndReleaseItemsStoredAsRanges() {
+    Product watch = new Product("prod-123", "Fastrack Watch", BigDecimal.valueOf(2222.25));
+    watch.addItems(newArrayList("SKU123-000001", "SKU123-000002", "SKU123-000003"));
+    watch.reserveItems("order-123", 1);
+    watch.encodeItemRanges();
+    watch.addItems(newArrayList("SKU123-000004"));
+
+    List<Item> reserved = watch.reserveItems("order-456", 2);
+    int released = watch.releaseItems("order-456", newArrayList("SKU123-000002", "SKU123-000001"));
+
+    assertThat(watch.getItemRanges().getRanges()).hasSize(1);
+    assertThat(reserved).extracting(Item::getItemId).containsExactly("SKU123-000002", "SKU123-000003");
+    assertThat(released).isEqualTo(1);
+    assertThat(watch.getAvailableQuantity()).isEqualTo(2);
+    assertThat(watch.getUnreservedItems()).extracting(Item::getItemId)
+      .containsExactly("SKU123-000002", "SKU123-000004");
+  }
+}
@@ -0,0 +1,131 @@
+package com.raga.ecommerce.inventory.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.raga.ecommerce.inventory.event.ProductStockChangedEvent;
+import com.raga.ecommerce.inventory.service.ProductService;
+import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CatalogSnapshotCacheTest {
+
+  private static final Instant NOW = Instant.parse("2019-07-01T10:00:00Z");
+
+  @Mock
+  private ProductService productService;
+
+  private MeterRegistry meterRegistry;
+  private MutableClock clock;
+  private CatalogSnapshotCache catalogSnapshotCache;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clock = new MutableClock(NOW);
+    catalogSnapshotCache = new CatalogSnapshotCache(productService, new ObjectMapper(), meterRegistry,
+      Duration.ofSeconds(10), clock);
+  }
+
+  @Test
+  public void shouldReuseSnapshotUntilStockChanges() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getProductAvailability())
+      .thenReturn(newArrayList(new ProductAvailability(watch, 1)), newArrayList());
+
+    CatalogSnapshot first = catalogSnapshotCache.getSnapshot();
+    assertThat(catalogSnapshotCache.getSnapshot()).isSameAs(first);
+
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-123", -1));
+    CatalogSnapshot second = catalogSnapshotCache.getSnapshot();
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getEtag()).isNotEqualTo(first.getEtag());
+    assertThat(new String(second.getJson())).isEqualTo("{\"products\":[]}");
+    assertThat(meterRegistry.get("inventory.catalog.snapshot.builds").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldKeepSnapshotWhileListedProductsStayAvailable() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getProductAvailability()).thenReturn(newArrayList(new ProductAvailability(watch, 3)));
+
+    CatalogSnapshot first = catalogSnapshotCache.getSnapshot();
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-123", -2));
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-123", 1));
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-456", -1));
+    assertThat(catalogSnapshotCache.getSnapshot()).isSameAs(first);
+
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-123", -2));
+    assertThat(catalogSnapshotCache.getSnapshot()).isNotSameAs(first);
+    assertThat(meterRegistry.get("inventory.catalog.snapshot.builds").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldRebuildSnapshotOnceUnlistedProductGetsItems() {
+    when(productService.getProductAvailability()).thenReturn(newArrayList());
+
+    CatalogSnapshot first = catalogSnapshotCache.getSnapshot();
+    catalogSnapshotCache.onStockChanged(new ProductStockChangedEvent("prod-123", 5));
+
+    assertThat(catalogSnapshotCache.getSnapshot()).isNotSameAs(first);
+  }
+
+  @Test
+  public void shouldKeepEtagIfCatalogIsUnchangedWhenSnapshotExpires() {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getProductAvailability()).thenReturn(newArrayList(new ProductAvailability(watch, 1)));
+
+    CatalogSnapshot first = catalogSnapshotCache.getSnapshot();
+    clock.instant = NOW.plusSeconds(10);
+    CatalogSnapshot second = catalogSnapshotCache.getSnapshot();
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getEtag()).isEqualTo(first.getEtag());
+    assertThat(second.getGzipEtag()).isNotEqualTo(second.getEtag());
+    verify(productService, times(2)).getProductAvailability();
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
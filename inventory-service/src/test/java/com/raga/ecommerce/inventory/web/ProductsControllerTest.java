@@ -3,34 +3,69 @@ package com.raga.ecommerce.inventory.web;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.raga.ecommerce.inventory.exception.ProductAvailableInLessQuantityException;
+import com.raga.ecommerce.inventory.exception.ProductLeaseExpiredException;
 import com.raga.ecommerce.inventory.exception.ProductPriceIncreasedException;
+import com.raga.ecommerce.inventory.exception.ProductReservationConflictException;
+import com.raga.ecommerce.inventory.exception.ProductReservationRejectedException;
+import com.raga.ecommerce.inventory.exception.ProductReservedTwiceException;
 import com.raga.ecommerce.inventory.exception.ProductUnavailableException;
+import com.raga.ecommerce.inventory.exception.ReservationThrottledException;
 import com.raga.ecommerce.inventory.service.ProductService;
 import com.raga.ecommerce.inventory.vo.Product;
+import com.raga.ecommerce.inventory.vo.ProductAvailability;
 import com.raga.ecommerce.inventory.web.request.ReserveProductRequest;
 import com.raga.ecommerce.inventory.web.response.ReserveProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.VARY;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(ProductsController.class)
+@Import({CatalogSnapshotCache.class, SimpleMeterRegistry.class})
 public class ProductsControllerTest {
 
   private static final String PRODUCT_ID = "prod-456";
@@ -39,15 +74,23 @@ public class ProductsControllerTest {
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private CatalogSnapshotCache catalogSnapshotCache;
+
   @MockBean
   private ProductService productService;
 
+  @Before
+  public void setUp() {
+    catalogSnapshotCache.invalidate();
+  }
+
   @Test
   public void shouldReturnAvailableProducts() throws Exception {
     Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
     Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
-    List<Product> products = newArrayList(watch, laptop);
-    when(productService.getAvailableProducts()).thenReturn(products);
+    when(productService.getProductAvailability()).thenReturn(
+      newArrayList(new ProductAvailability(watch, 1), new ProductAvailability(laptop, 1)));
 
     mockMvc.perform(
       get("/products"))
@@ -62,6 +105,101 @@ public class ProductsControllerTest {
       .andExpect(jsonPath("$.products[1].items").doesNotExist());
   }
 
+  @Test
+  public void shouldReturnNotModifiedIfClientHoldsCurrentCatalog() throws Exception {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getProductAvailability()).thenReturn(newArrayList(new ProductAvailability(watch, 1)));
+
+    String etag = mockMvc.perform(
+      get("/products"))
+      .andExpect(status().isOk())
+      .andExpect(header().exists(ETAG))
+      .andReturn().getResponse().getHeader(ETAG);
+
+    mockMvc.perform(
+      get("/products")
+        .header(IF_NONE_MATCH, etag))
+      .andExpect(status().isNotModified())
+      .andExpect(content().string(""));
+
+    verify(productService, times(1)).getProductAvailability();
+  }
+
+  @Test
+  public void shouldReturnGzippedCatalogIfClientAcceptsIt() throws Exception {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getProductAvailability()).thenReturn(newArrayList(new ProductAvailability(watch, 1)));
+
+    byte[] body = mockMvc.perform(
+      get("/products")
+        .header(ACCEPT_ENCODING, "deflate, gzip;q=0.8"))
+      .andExpect(status().isOk())
+      .andExpect(header().string(CONTENT_ENCODING, "gzip"))
+      .andExpect(header().string(VARY, ACCEPT_ENCODING))
+      .andReturn().getResponse().getContentAsByteArray();
+
+    try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      assertThat(StreamUtils.copyToString(json, StandardCharsets.UTF_8)).isEqualTo(
+        "{\"products\":[{\"productId\":\"prod-123\",\"productName\":\"Fasttrack Watch\",\"price\":2222.25}]}");
+    }
+  }
+
+  @Test
+  public void shouldNotReturnGzippedCatalogIfClientRefusesIt() throws Exception {
+    when(productService.getProductAvailability()).thenReturn(newArrayList());
+
+    mockMvc.perform(
+      get("/products")
+        .header(ACCEPT_ENCODING, "gzip;q=0"))
+      .andExpect(status().isOk())
+      .andExpect(header().doesNotExist(CONTENT_ENCODING))
+      .andExpect(content().string("{\"products\":[]}"));
+  }
+
+  @Test
+  public void shouldReturnPageOfAvailableProductsWithNextCursor() throws Exception {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    when(productService.getAvailableProducts("prod-100", 2)).thenReturn(newArrayList(watch, laptop));
+
+    mockMvc.perform(
+      get("/products?cursor=prod-100&size=2"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.products[0].productId").value("prod-123"))
+      .andExpect(jsonPath("$.products[1].productId").value(PRODUCT_ID))
+      .andExpect(jsonPath("$.nextCursor").value(PRODUCT_ID));
+  }
+
+  @Test
+  public void shouldReturnLastPageOfAvailableProductsWithoutNextCursor() throws Exception {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    when(productService.getAvailableProducts(null, 2)).thenReturn(newArrayList(watch));
+
+    mockMvc.perform(
+      get("/products?size=2"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.products[0].productId").value("prod-123"))
+      .andExpect(jsonPath("$.nextCursor").doesNotExist());
+  }
+
+  @Test
+  public void shouldStreamAvailableProductsAsNewlineDelimitedJson() throws Exception {
+    Product watch = new Product("prod-123", "Fasttrack Watch", BigDecimal.valueOf(2222.25));
+    Product laptop = new Product(PRODUCT_ID, "Lenovo Thinkpad", BigDecimal.valueOf(72222.59));
+    when(productService.streamAvailableProducts()).thenReturn(Stream.of(watch, laptop));
+
+    MvcResult result = mockMvc.perform(
+      get("/products/stream"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+      .andExpect(status().isOk())
+      .andExpect(content().string(
+        "{\"productId\":\"prod-123\",\"productName\":\"Fasttrack Watch\",\"price\":2222.25}\n" +
+        "{\"productId\":\"prod-456\",\"productName\":\"Lenovo Thinkpad\",\"price\":72222.59}\n"));
+  }
+
   @Test
   public void shouldReserveGivenQuantityOfProductIfAvailable() throws Exception {
     List<String> items = newArrayList("item-a1", "item-a2");
@@ -145,6 +283,198 @@ public class ProductsControllerTest {
           "Expected: 2222.25, Current: 2400.99"));
   }
 
+  @Test
+  public void shouldShowErrorIfProductCouldNotBeReservedBecauseOfConcurrentReservations() throws Exception {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2,
+      BigDecimal.valueOf(2222.25))).thenThrow(new ProductReservationConflictException(PRODUCT_ID, 5));
+
+    ReserveProductRequest reserveProductRequest = new ReserveProductRequest(ORDER_ID,
+      2, BigDecimal.valueOf(2222.25));
+    String jsonRequest = jsonRequest(reserveProductRequest);
+
+    mockMvc.perform(
+      post("/products/prod-456/reserve")
+        .content(jsonRequest)
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isConflict())
+      .andExpect(jsonPath("$.errors[0].code").value("2004"))
+      .andExpect(jsonPath("$.errors[0].title").value("Product Reservation Conflict"))
+      .andExpect(jsonPath("$.errors[0].message")
+        .value("Product with id prod-456 could not be reserved after 5 attempts because of concurrent reservations"));
+  }
+
+  @Test
+  public void shouldShowErrorIfLeaseOnProductExpiredBeforeReservationWasSaved() throws Exception {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2,
+      BigDecimal.valueOf(2222.25))).thenThrow(new ProductLeaseExpiredException(PRODUCT_ID));
+
+    ReserveProductRequest reserveProductRequest = new ReserveProductRequest(ORDER_ID,
+      2, BigDecimal.valueOf(2222.25));
+    String jsonRequest = jsonRequest(reserveProductRequest);
+
+    mockMvc.perform(
+      post("/products/prod-456/reserve")
+        .content(jsonRequest)
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isConflict())
+      .andExpect(jsonPath("$.errors[0].code").value("2005"))
+      .andExpect(jsonPath("$.errors[0].title").value("Product Lease Expired"))
+      .andExpect(jsonPath("$.errors[0].message")
+        .value("Lease on product with id prod-456 expired before the reservation could be saved"));
+  }
+
+  @Test
+  public void shouldShowErrorIfReservationIsRejectedBecauseTooManyAreQueued() throws Exception {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2,
+      BigDecimal.valueOf(2222.25))).thenThrow(new ProductReservationRejectedException(PRODUCT_ID));
+
+    ReserveProductRequest reserveProductRequest = new ReserveProductRequest(ORDER_ID,
+      2, BigDecimal.valueOf(2222.25));
+    String jsonRequest = jsonRequest(reserveProductRequest);
+
+    mockMvc.perform(
+      post("/products/prod-456/reserve")
+        .content(jsonRequest)
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isServiceUnavailable())
+      .andExpect(jsonPath("$.errors[0].code").value("2007"))
+      .andExpect(jsonPath("$.errors[0].title").value("Product Reservation Rejected"))
+      .andExpect(jsonPath("$.errors[0].message")
+        .value("Reservation of product with id prod-456 rejected, too many reservations are queued"));
+  }
+
+  @Test
+  public void shouldShowErrorIfReservationIsThrottledBecauseTooManyAreWaiting() throws Exception {
+    when(productService.reserveItems(ORDER_ID, PRODUCT_ID, 2,
+      BigDecimal.valueOf(2222.25))).thenThrow(new ReservationThrottledException(PRODUCT_ID));
+
+    ReserveProductRequest reserveProductRequest = new ReserveProductRequest(ORDER_ID,
+      2, BigDecimal.valueOf(2222.25));
+    String jsonRequest = jsonRequest(reserveProductRequest);
+
+    mockMvc.perform(
+      post("/products/prod-456/reserve")
+        .content(jsonRequest)
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isTooManyRequests())
+      .andExpect(header().string("Retry-After", "1"))
+      .andExpect(jsonPath("$.errors[0].code").value("2010"))
+      .andExpect(jsonPath("$.errors[0].title").value("Reservation Throttled"))
+      .andExpect(jsonPath("$.errors[0].message")
+        .value("Reservation of product with id prod-456 throttled, too many reservations of it are waiting"));
+  }
+
+  @Test
+  public void shouldReserveEveryLineOfBatchInRequestOrder() throws Exception {
+    Map<String, ReserveProductResponse> responses = ImmutableMap.of(
+      "prod-123", new ReserveProductResponse(newArrayList("item-a1"), BigDecimal.valueOf(2222.25)),
+      PRODUCT_ID, new ReserveProductResponse(newArrayList("item-b1", "item-b2"), BigDecimal.valueOf(72222.59)));
+    when(productService.reserveItems(eq(ORDER_ID), any())).thenReturn(responses);
+
+    mockMvc.perform(
+      post("/products/reserve")
+        .content("{\"orderId\":\"order-123\",\"lines\":[" +
+          "{\"productId\":\"prod-456\",\"quantity\":2,\"expectedPrice\":72222.59}," +
+          "{\"productId\":\"prod-123\",\"quantity\":1,\"expectedPrice\":2222.25}]}")
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.lines[0].productId").value(PRODUCT_ID))
+      .andExpect(jsonPath("$.lines[0].items[1]").value("item-b2"))
+      .andExpect(jsonPath("$.lines[0].currentPrice").value("72222.59"))
+      .andExpect(jsonPath("$.lines[1].productId").value("prod-123"))
+      .andExpect(jsonPath("$.lines[1].items[0]").value("item-a1"));
+  }
+
+  @Test
+  public void shouldShowErrorIfProductAppearsInMoreThanOneLineOfBatch() throws Exception {
+    when(productService.reserveItems(eq(ORDER_ID), any())).thenThrow(new ProductReservedTwiceException(PRODUCT_ID));
+
+    mockMvc.perform(
+      post("/products/reserve")
+        .content("{\"orderId\":\"order-123\",\"lines\":[]}")
+        .contentType(APPLICATION_JSON_VALUE))
+      .andExpect(status().isUnprocessableEntity())
+      .andExpect(jsonPath("$.errors[0].code").value("2006"))
+      .andExpect(jsonPath("$.errors[0].title").value("Product Reserved Twice"))
+      .andExpect(jsonPath("$.errors[0].message")
+        .value("Product with id prod-456 appears in more than one line of the reservation"));
+  }
+
+  @Test
+  public void shouldRestockItemIdsReadFromNewlineDelimitedJson() throws Exception {
+    List<String> restocked = newArrayList();
+    when(productService.restock(eq(PRODUCT_ID), any())).thenAnswer(invocation -> {
+      invocation.<Iterator<String>>getArgument(1).forEachRemaining(restocked::add);
+      return restocked.size();
+    });
+
+    mockMvc.perform(
+      post("/products/prod-456/items")
+        .content("\"item-a1\"\n\n{\"itemId\":\"item-a2\"}\n")
+        .contentType("application/x-ndjson"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.productId").value(PRODUCT_ID))
+      .andExpect(jsonPath("$.itemsAdded").value(2));
+
+    assertThat(restocked).containsExactly("item-a1", "item-a2");
+  }
+
+  @Test
+  public void shouldRestockItemIdsReadFromPlainText() throws Exception {
+    List<String> restocked = newArrayList();
+    when(productService.restock(eq(PRODUCT_ID), any())).thenAnswer(invocation -> {
+      invocation.<Iterator<String>>getArgument(1).forEachRemaining(restocked::add);
+      return restocked.size();
+    });
+
+    mockMvc.perform(
+      post("/products/prod-456/items")
+        .content("item-a1\r\nitem-a2\r\n")
+        .contentType(TEXT_PLAIN_VALUE))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.itemsAdded").value(2));
+
+    assertThat(restocked).containsExactly("item-a1", "item-a2");
+  }
+
+  @Test
+  public void shouldShowErrorIfRestockLineHoldsNoItemId() throws Exception {
+    when(productService.restock(eq(PRODUCT_ID), any())).thenAnswer(invocation -> {
+      invocation.<Iterator<String>>getArgument(1).forEachRemaining(itemId -> { });
+      return 0;
+    });
+
+    mockMvc.perform(
+      post("/products/prod-456/items")
+        .content("\"item-a1\"\n{\"id\":\"item-a2\"}\n")
+        .contentType("application/x-ndjson"))
+      .andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.errors[0].code").value("2009"))
+      .andExpect(jsonPath("$.errors[0].title").value("Invalid Item Id"))
+      .andExpect(jsonPath("$.errors[0].message").value("No valid item id on line 2 of the items added to " +
+        "product prod-456, the items on the lines before it have been added"));
+  }
+
+  @Test
+  public void shouldShowErrorIfRestockLineIsLongerThanAnyItemId() throws Exception {
+    List<String> restocked = newArrayList();
+    when(productService.restock(eq(PRODUCT_ID), any())).thenAnswer(invocation -> {
+      invocation.<Iterator<String>>getArgument(1).forEachRemaining(restocked::add);
+      return restocked.size();
+    });
+
+    mockMvc.perform(
+      post("/products/prod-456/items")
+        .content("item-a1\n" + Strings.repeat("a", ItemIdReader.MAX_LINE_LENGTH + 1) + "\n")
+        .contentType(TEXT_PLAIN_VALUE))
+      .andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.errors[0].code").value("2009"))
+      .andExpect(jsonPath("$.errors[0].message").value("No valid item id on line 2 of the items added to " +
+        "product prod-456, the items on the lines before it have been added"));
+
+    assertThat(restocked).containsExactly("item-a1");
+  }
+
   private String jsonRequest(ReserveProductRequest request) throws JsonProcessingException {
     ObjectMapper objectMapper = new ObjectMapper();
     ObjectWriter objectWriter = objectMapper.writer().withDefaultPrettyPrinter();
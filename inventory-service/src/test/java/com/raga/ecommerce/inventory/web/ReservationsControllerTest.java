@@ -0,0 +1,74 @@
+package com.raga.ecommerce.inventory.web;
+
+import com.raga.ecommerce.inventory.exception.ReservationNotFoundException;
+import com.raga.ecommerce.inventory.service.ProductService;
+import com.raga.ecommerce.inventory.vo.Reservation;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(ReservationsController.class)
+public class ReservationsControllerTest {
+
+  private static final String PRODUCT_ID = "prod-456";
+  private static final String ORDER_ID = "order-123";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private ProductService productService;
+
+  @Test
+  public void shouldConfirmReservationsOfOrder() throws Exception {
+    Reservation reservation = new Reservation("order-123:prod-456", ORDER_ID, PRODUCT_ID,
+      newArrayList("item-a1", "item-a2"), BigDecimal.valueOf(2222.25), null);
+    when(productService.confirmReservations(ORDER_ID)).thenReturn(newArrayList(reservation));
+
+    mockMvc.perform(
+      post("/reservations/order-123/confirm"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.reservations[0].productId").value(PRODUCT_ID))
+      .andExpect(jsonPath("$.reservations[0].items[1]").value("item-a2"))
+      .andExpect(jsonPath("$.reservations[0].price").value("2222.25"))
+      .andExpect(jsonPath("$.reservations[0].expiresAt").doesNotExist());
+  }
+
+  @Test
+  public void shouldShowErrorIfOrderHasNoReservation() throws Exception {
+    when(productService.confirmReservations(ORDER_ID)).thenThrow(new ReservationNotFoundException(ORDER_ID));
+
+    mockMvc.perform(
+      post("/reservations/order-123/confirm"))
+      .andExpect(status().isNotFound())
+      .andExpect(jsonPath("$.errors[0].code").value("2008"))
+      .andExpect(jsonPath("$.errors[0].title").value("Reservation Not Found"))
+      .andExpect(jsonPath("$.errors[0].message").value("No reservation found for order with id: order-123"));
+  }
+
+  @Test
+  public void shouldReleaseReservationsOfOrder() throws Exception {
+    Reservation reservation = new Reservation("order-123:prod-456", ORDER_ID, PRODUCT_ID,
+      newArrayList("item-a1"), BigDecimal.valueOf(2222.25), null);
+    when(productService.releaseReservations(ORDER_ID)).thenReturn(newArrayList(reservation));
+
+    mockMvc.perform(
+      post("/reservations/order-123/release"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.reservations[0].productId").value(PRODUCT_ID))
+      .andExpect(jsonPath("$.reservations[0].items[0]").value("item-a1"));
+  }
+}